@@ -0,0 +1,52 @@
+package org.kiwiproject.consul.cache;
+
+import static java.util.Objects.nonNull;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.kiwiproject.consul.Awaiting.awaitAtMost1s;
+import static org.kiwiproject.consul.TestUtils.randomUUIDString;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kiwiproject.consul.AgentClient;
+import org.kiwiproject.consul.BaseIntegrationTest;
+import org.kiwiproject.consul.model.State;
+import org.kiwiproject.consul.option.QueryOptions;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+class AgentChecksCacheITest extends BaseIntegrationTest {
+
+    private AgentClient agentClient;
+
+    @BeforeEach
+    void setUp() {
+        agentClient = client.agentClient();
+    }
+
+    @Test
+    void cacheShouldSeeCheckStatusChanges() throws Exception {
+        var checkName = randomUUIDString();
+        var checkId = randomUUIDString();
+
+        agentClient.registerCheck(checkId, checkName, 20L);
+        try (var cache = AgentChecksCache.newCache(agentClient, QueryOptions.BLANK, Duration.ofMillis(100))) {
+            agentClient.passCheck(checkId);
+            cache.start();
+            assertThat(cache.awaitInitialized(3, TimeUnit.SECONDS)).isTrue();
+
+            awaitAtMost1s().until(() -> hasStatus(cache, checkId, State.PASS));
+
+            agentClient.failCheck(checkId);
+
+            awaitAtMost1s().until(() -> hasStatus(cache, checkId, State.FAIL));
+        } finally {
+            agentClient.deregisterCheck(checkId);
+        }
+    }
+
+    private static boolean hasStatus(AgentChecksCache cache, String checkId, State state) {
+        var check = cache.getMap().get(checkId);
+        return nonNull(check) && State.fromName(check.getStatus()) == state;
+    }
+}
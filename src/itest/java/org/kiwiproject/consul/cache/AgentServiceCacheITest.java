@@ -0,0 +1,50 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.kiwiproject.consul.Awaiting.awaitAtMost1s;
+import static org.kiwiproject.consul.TestUtils.randomUUIDString;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kiwiproject.consul.AgentClient;
+import org.kiwiproject.consul.BaseIntegrationTest;
+import org.kiwiproject.consul.option.QueryOptions;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+class AgentServiceCacheITest extends BaseIntegrationTest {
+
+    private AgentClient agentClient;
+
+    @BeforeEach
+    void setUp() {
+        agentClient = client.agentClient();
+    }
+
+    @Test
+    void cacheShouldBlockOnContentHashAndSeeChanges() throws Exception {
+        var serviceName = randomUUIDString();
+        var serviceId = randomUUIDString();
+
+        agentClient.register(9090, 20L, serviceName, serviceId, List.of("v1"), Map.of());
+        try (var cache = AgentServiceCache.newCache(agentClient, serviceId, QueryOptions.BLANK, 5)) {
+            var listener = new StubListener();
+            cache.addListener(listener);
+            cache.start();
+            assertThat(cache.awaitInitialized(3, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(cache.getMap()).containsOnlyKeys(serviceId);
+            assertThat(cache.getMap().get(serviceId).getTags()).containsExactly("v1");
+
+            // a blocking query returns as soon as the definition changes, long before the watch duration
+            agentClient.register(9090, 20L, serviceName, serviceId, List.of("v2"), Map.of());
+
+            awaitAtMost1s().until(() -> cache.getMap().get(serviceId).getTags().contains("v2"));
+            assertThat(listener.getCallCount()).isGreaterThanOrEqualTo(2);
+        } finally {
+            agentClient.deregister(serviceId);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.kiwiproject.consul;
 
 import com.google.common.net.HostAndPort;
 import org.kiwiproject.consul.async.ConsulResponseCallback;
+import org.kiwiproject.consul.cache.SharedWatchScheduler;
 import org.kiwiproject.consul.config.ClientConfig;
 import org.kiwiproject.consul.model.ConsulResponse;
 import org.kiwiproject.consul.model.State;
@@ -37,7 +38,7 @@ import java.util.Optional;
  *
  * @see <a href="https://developer.hashicorp.com/consul/api-docs/agent">The Consul API Docs</a>
  */
-public class AgentClient extends BaseClient {
+public class AgentClient extends BaseCacheableClient {
 
     private static final String CLIENT_NAME = "agent";
 
@@ -48,8 +49,9 @@ public class AgentClient extends BaseClient {
      *
      * @param retrofit The {@link Retrofit} to build a client from.
      */
-    AgentClient(Retrofit retrofit, ClientConfig config, ClientEventCallback eventCallback) {
-        super(CLIENT_NAME, config, eventCallback);
+    AgentClient(Retrofit retrofit, ClientConfig config, ClientEventCallback eventCallback, Consul.NetworkTimeoutConfig networkTimeoutConfig,
+            SharedWatchScheduler watchScheduler) {
+        super(CLIENT_NAME, config, eventCallback, networkTimeoutConfig, watchScheduler);
         this.api = retrofit.create(Api.class);
     }
 
@@ -460,6 +462,18 @@ public class AgentClient extends BaseClient {
         return http.extract(api.getChecks(queryOptions.toQuery()));
     }
 
+    /**
+     * Asynchronously retrieves all checks registered with the Agent.
+     * <p>
+     * GET /v1/agent/checks
+     *
+     * @param queryOptions The Query Options to use.
+     * @param callback     Callback implemented by callee to handle results, a Map of Check ID to Checks.
+     */
+    public void getChecks(QueryOptions queryOptions, ConsulResponseCallback<Map<String, HealthCheck>> callback) {
+        http.extractConsulResponse(api.getChecks(queryOptions.toQuery()), callback);
+    }
+
     /**
      * Retrieves all services registered with the Agent.
      * <p>
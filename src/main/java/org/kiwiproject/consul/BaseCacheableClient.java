@@ -1,19 +1,39 @@
 package org.kiwiproject.consul;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.kiwiproject.consul.cache.SharedWatchScheduler;
 import org.kiwiproject.consul.config.ClientConfig;
 import org.kiwiproject.consul.monitoring.ClientEventCallback;
 
 abstract class BaseCacheableClient extends BaseClient {
 
     private final Consul.NetworkTimeoutConfig networkTimeoutConfig;
+    private final SharedWatchScheduler watchScheduler;
 
     protected BaseCacheableClient(String name, ClientConfig config, ClientEventCallback eventCallback,
                                   Consul.NetworkTimeoutConfig networkTimeoutConfig) {
+        this(name, config, eventCallback, networkTimeoutConfig, null);
+    }
+
+    protected BaseCacheableClient(String name, ClientConfig config, ClientEventCallback eventCallback,
+                                  Consul.NetworkTimeoutConfig networkTimeoutConfig,
+                                  @Nullable SharedWatchScheduler watchScheduler) {
         super(name, config, eventCallback);
         this.networkTimeoutConfig = networkTimeoutConfig;
+        this.watchScheduler = watchScheduler;
     }
 
     public Consul.NetworkTimeoutConfig getNetworkTimeoutConfig() {
         return networkTimeoutConfig;
     }
+
+    /**
+     * Gets the watch scheduler shared by the caches created from this client.
+     *
+     * @return the shared watch scheduler, or null if caches should each use their own scheduler
+     */
+    @Nullable
+    public SharedWatchScheduler getWatchScheduler() {
+        return watchScheduler;
+    }
 }
@@ -1,6 +1,7 @@
 package org.kiwiproject.consul;
 
 import org.kiwiproject.consul.async.ConsulResponseCallback;
+import org.kiwiproject.consul.cache.SharedWatchScheduler;
 import org.kiwiproject.consul.config.ClientConfig;
 import org.kiwiproject.consul.model.ConsulResponse;
 import org.kiwiproject.consul.model.catalog.CatalogDeregistration;
@@ -37,8 +38,9 @@ public class CatalogClient extends BaseCacheableClient {
      *
      * @param retrofit The {@link Retrofit} to build a client from.
      */
-    CatalogClient(Retrofit retrofit, ClientConfig config, ClientEventCallback eventCallback, Consul.NetworkTimeoutConfig networkTimeoutConfig) {
-        super(CLIENT_NAME, config, eventCallback, networkTimeoutConfig);
+    CatalogClient(Retrofit retrofit, ClientConfig config, ClientEventCallback eventCallback, Consul.NetworkTimeoutConfig networkTimeoutConfig,
+            SharedWatchScheduler watchScheduler) {
+        super(CLIENT_NAME, config, eventCallback, networkTimeoutConfig, watchScheduler);
         this.api = retrofit.create(Api.class);
     }
 
@@ -1,21 +1,27 @@
 package org.kiwiproject.consul;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.net.HostAndPort;
+import okhttp3.Call;
 import okhttp3.ConnectionPool;
 import okhttp3.Dispatcher;
 import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.internal.Util;
+import org.kiwiproject.consul.cache.SharedWatchScheduler;
 import org.kiwiproject.consul.cache.TimeoutInterceptor;
+import org.kiwiproject.consul.config.CacheConfig;
 import org.kiwiproject.consul.config.ClientConfig;
+import org.kiwiproject.consul.config.TransportLaneConfig;
 import org.kiwiproject.consul.monitoring.ClientEventCallback;
 import org.kiwiproject.consul.monitoring.NoOpClientEventCallback;
 import org.kiwiproject.consul.util.Jackson;
@@ -35,6 +41,7 @@ import java.net.Proxy;
 import java.net.URL;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.SynchronousQueue;
@@ -75,6 +82,9 @@ public class Consul {
     private final ExecutorService executorService;
     private final ConnectionPool connectionPool;
     private final OkHttpClient okHttpClient;
+    private final SharedWatchScheduler watchScheduler;
+    private final TransportLane interactiveLane;
+    private final TransportLane blockingLane;
     private boolean destroyed;
 
 
@@ -112,6 +122,91 @@ public class Consul {
                      AclClient aclClient,
                      SnapshotClient snapshotClient,
                      OkHttpClient okHttpClient) {
+        this(agentClient, healthClient, keyValueClient, catalogClient, statusClient, sessionClient, eventClient,
+                preparedQueryClient, coordinateClient, operatorClient, executorService, connectionPool, aclClient,
+                snapshotClient, okHttpClient, null);
+    }
+
+    /**
+     * Package-private constructor.
+     *
+     * @param agentClient         the {@link AgentClient}
+     * @param healthClient        the {@link HealthClient}
+     * @param keyValueClient      the {@link KeyValueClient}
+     * @param catalogClient       the {@link CatalogClient}
+     * @param statusClient        the {@link StatusClient}
+     * @param sessionClient       the {@link SessionClient}
+     * @param eventClient         the {@link EventClient}
+     * @param preparedQueryClient the {@link PreparedQueryClient}
+     * @param coordinateClient    the {@link CoordinateClient}
+     * @param operatorClient      the {@link OperatorClient}
+     * @param executorService     the executor service provided to OkHttp
+     * @param connectionPool      the OkHttp connection pool
+     * @param aclClient           the {@link AclClient}
+     * @param snapshotClient      the {@link SnapshotClient}
+     * @param okHttpClient        the {@link OkHttpClient}
+     * @param watchScheduler      the {@link SharedWatchScheduler} shared by caches, may be null
+     */
+    protected Consul(AgentClient agentClient,
+                     HealthClient healthClient,
+                     KeyValueClient keyValueClient,
+                     CatalogClient catalogClient,
+                     StatusClient statusClient,
+                     SessionClient sessionClient,
+                     EventClient eventClient,
+                     PreparedQueryClient preparedQueryClient,
+                     CoordinateClient coordinateClient,
+                     OperatorClient operatorClient,
+                     ExecutorService executorService,
+                     ConnectionPool connectionPool,
+                     AclClient aclClient,
+                     SnapshotClient snapshotClient,
+                     OkHttpClient okHttpClient,
+                     SharedWatchScheduler watchScheduler) {
+        this(agentClient, healthClient, keyValueClient, catalogClient, statusClient, sessionClient, eventClient,
+                preparedQueryClient, coordinateClient, operatorClient, executorService, connectionPool, aclClient,
+                snapshotClient, okHttpClient, watchScheduler, null);
+    }
+
+    /**
+     * Package-private constructor.
+     *
+     * @param agentClient         the {@link AgentClient}
+     * @param healthClient        the {@link HealthClient}
+     * @param keyValueClient      the {@link KeyValueClient}
+     * @param catalogClient       the {@link CatalogClient}
+     * @param statusClient        the {@link StatusClient}
+     * @param sessionClient       the {@link SessionClient}
+     * @param eventClient         the {@link EventClient}
+     * @param preparedQueryClient the {@link PreparedQueryClient}
+     * @param coordinateClient    the {@link CoordinateClient}
+     * @param operatorClient      the {@link OperatorClient}
+     * @param executorService     the executor service provided to OkHttp
+     * @param connectionPool      the OkHttp connection pool
+     * @param aclClient           the {@link AclClient}
+     * @param snapshotClient      the {@link SnapshotClient}
+     * @param okHttpClient        the {@link OkHttpClient}, used for interactive requests
+     * @param watchScheduler      the {@link SharedWatchScheduler} shared by caches, may be null
+     * @param blockingLane        the {@link TransportLane} of blocking queries, or null if they also use the
+     *                            {@code okHttpClient}
+     */
+    protected Consul(AgentClient agentClient,
+                     HealthClient healthClient,
+                     KeyValueClient keyValueClient,
+                     CatalogClient catalogClient,
+                     StatusClient statusClient,
+                     SessionClient sessionClient,
+                     EventClient eventClient,
+                     PreparedQueryClient preparedQueryClient,
+                     CoordinateClient coordinateClient,
+                     OperatorClient operatorClient,
+                     ExecutorService executorService,
+                     ConnectionPool connectionPool,
+                     AclClient aclClient,
+                     SnapshotClient snapshotClient,
+                     OkHttpClient okHttpClient,
+                     SharedWatchScheduler watchScheduler,
+                     TransportLane blockingLane) {
         this.agentClient = agentClient;
         this.healthClient = healthClient;
         this.keyValueClient = keyValueClient;
@@ -127,6 +222,9 @@ public class Consul {
         this.aclClient = aclClient;
         this.snapshotClient = snapshotClient;
         this.okHttpClient = okHttpClient;
+        this.watchScheduler = watchScheduler;
+        this.interactiveLane = new TransportLane(isNull(blockingLane) ? "shared" : "interactive", okHttpClient);
+        this.blockingLane = isNull(blockingLane) ? interactiveLane : blockingLane;
     }
 
     /**
@@ -137,6 +235,12 @@ public class Consul {
         this.okHttpClient.dispatcher().cancelAll();
         this.executorService.shutdownNow();
         this.connectionPool.evictAll();
+        if (blockingLane != interactiveLane) {
+            blockingLane.shutdown();
+        }
+        if (nonNull(watchScheduler)) {
+            watchScheduler.close();
+        }
     }
 
     /**
@@ -280,6 +384,38 @@ public class Consul {
         return snapshotClient;
     }
 
+    /**
+     * Get the watch scheduler shared by the caches created from this client's HTTP clients.
+     *
+     * @return the shared watch scheduler, or null if it is disabled in the
+     * {@link org.kiwiproject.consul.config.CacheConfig CacheConfig}
+     */
+    public SharedWatchScheduler watchScheduler() {
+        return watchScheduler;
+    }
+
+    /**
+     * Get the transport lane of interactive requests, i.e. all requests except blocking queries.
+     *
+     * @return the interactive lane, which is also the {@link #blockingLane() blocking lane} unless lane isolation
+     * is enabled
+     * @see Builder#withLaneIsolation(TransportLaneConfig, TransportLaneConfig)
+     */
+    public TransportLane interactiveLane() {
+        return interactiveLane;
+    }
+
+    /**
+     * Get the transport lane of blocking queries, such as the ones of caches.
+     *
+     * @return the blocking lane, which is also the {@link #interactiveLane() interactive lane} unless lane
+     * isolation is enabled
+     * @see Builder#withLaneIsolation(TransportLaneConfig, TransportLaneConfig)
+     */
+    public TransportLane blockingLane() {
+        return blockingLane;
+    }
+
     /**
     * Creates a new {@link Builder} object.
     *
@@ -323,6 +459,10 @@ public class Consul {
         private ConnectionPool connectionPool;
         private ClientConfig clientConfig;
         private ClientEventCallback clientEventCallback;
+        private HttpProtocol httpProtocol = HttpProtocol.HTTP_2;
+        private int maxRequestsPerHost = Integer.MAX_VALUE;
+        private TransportLaneConfig interactiveLaneConfig;
+        private TransportLaneConfig blockingLaneConfig;
 
         /**
         * Constructs a new builder.
@@ -687,12 +827,90 @@ public class Consul {
             return this;
         }
 
+        /**
+         * Sets the HTTP protocol used to talk to Consul.
+         * <p>
+         * With HTTP/1.1, each request in flight, including each blocking query of a cache, holds its own
+         * connection. With HTTP/2, requests are multiplexed as streams over a few connections: the default,
+         * {@link HttpProtocol#HTTP_2}, negotiates it with ALPN on HTTPS connections; use
+         * {@link HttpProtocol#H2C_PRIOR_KNOWLEDGE} for plain HTTP connections to a server that accepts HTTP/2
+         * without TLS.
+         *
+         * @param httpProtocol the protocol to use
+         * @return The builder
+         */
+        public Builder withHttpProtocol(HttpProtocol httpProtocol) {
+            checkArgument(nonNull(httpProtocol), "httpProtocol must not be null");
+            this.httpProtocol = httpProtocol;
+
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of requests in flight to each Consul host, which with HTTP/2 is the number of
+         * concurrent streams across the connections to that host. Further requests wait until one completes.
+         * <p>
+         * Since each blocking query occupies a stream until Consul answers it, this must be larger than the
+         * number of caches. The number of streams on a single connection is limited by the server (its
+         * {@code SETTINGS_MAX_CONCURRENT_STREAMS}); another connection is opened when that limit is reached.
+         * By default, the number of requests is not limited.
+         *
+         * @param maxRequestsPerHost the maximum number of requests in flight to each host
+         * @return The builder
+         */
+        public Builder withMaxRequestsPerHost(int maxRequestsPerHost) {
+            checkArgument(maxRequestsPerHost > 0, "maxRequestsPerHost must be positive");
+            this.maxRequestsPerHost = maxRequestsPerHost;
+
+            return this;
+        }
+
+        /**
+         * Enables lane isolation with the default configuration of both lanes, i.e. no limits and the timeouts of
+         * this builder.
+         *
+         * @return The builder
+         * @see #withLaneIsolation(TransportLaneConfig, TransportLaneConfig)
+         */
+        public Builder withLaneIsolation() {
+            return withLaneIsolation(TransportLaneConfig.builder().build(), TransportLaneConfig.builder().build());
+        }
+
+        /**
+         * Enables lane isolation: blocking queries (GET requests with a {@code wait}, {@code index} or
+         * {@code hash} parameter, such as the ones of caches) use a dispatcher, dispatcher threads and connection
+         * pool of their own, separate from the ones used by all other requests.
+         * <p>
+         * Without isolation, many caches waking up at once can occupy all the connections and dispatcher slots
+         * available, so that latency-sensitive requests like session renewals, TTL check updates or key/value
+         * reads wait behind them. With isolation, each lane is sized and timed out on its own, for example a
+         * short read timeout for interactive requests, and its metrics are available from
+         * {@link Consul#interactiveLane()} and {@link Consul#blockingLane()}.
+         * <p>
+         * If a connection pool or an executor service is provided to this builder, it is used by the interactive
+         * lane; the blocking lane always has its own.
+         *
+         * @param interactiveLane the configuration of the lane of interactive requests
+         * @param blockingLane    the configuration of the lane of blocking queries
+         * @return The builder
+         */
+        public Builder withLaneIsolation(TransportLaneConfig interactiveLane, TransportLaneConfig blockingLane) {
+            checkArgument(nonNull(interactiveLane), "interactiveLane must not be null");
+            checkArgument(nonNull(blockingLane), "blockingLane must not be null");
+            this.interactiveLaneConfig = interactiveLane;
+            this.blockingLaneConfig = blockingLane;
+
+            return this;
+        }
+
         /**
         * Constructs a new {@link Consul} client.
         *
         * @return A new Consul client.
         */
         public Consul build() {
+            checkState(httpProtocol != HttpProtocol.H2C_PRIOR_KNOWLEDGE || !"https".equals(url.getProtocol()),
+                    "HTTP/2 with prior knowledge cannot be used with HTTPS");
             final Retrofit retrofit;
 
             // if an ExecutorService is provided to the Builder, we use it, otherwise, we create one
@@ -704,8 +922,9 @@ public class Consul {
                         new SynchronousQueue<>(), Util.threadFactory("OkHttp Dispatcher", true));
             }
 
+            boolean laneIsolation = nonNull(interactiveLaneConfig);
             if (isNull(connectionPool)) {
-                connectionPool = new ConnectionPool();
+                connectionPool = laneIsolation ? newConnectionPool(interactiveLaneConfig) : new ConnectionPool();
             }
 
             ClientConfig config = nonNull(clientConfig) ? clientConfig : new ClientConfig();
@@ -718,27 +937,49 @@ public class Consul {
                     localExecutorService,
                     connectionPool,
                     config);
+
+            OkHttpClient blockingOkHttpClient = okHttpClient;
+            TransportLane blockingLane = null;
+            Call.Factory callFactory = okHttpClient;
+            if (laneIsolation) {
+                ExecutorService blockingExecutorService = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                        new SynchronousQueue<>(), Util.threadFactory("OkHttp Blocking Dispatcher", true));
+                blockingOkHttpClient = createLaneOkHttpClient(okHttpClient, blockingLaneConfig,
+                        blockingExecutorService, newConnectionPool(blockingLaneConfig));
+                okHttpClient = createLaneOkHttpClient(okHttpClient, interactiveLaneConfig,
+                        localExecutorService, connectionPool);
+
+                blockingLane = new TransportLane("blocking", blockingOkHttpClient);
+                callFactory = new LaneRoutingCallFactory(new TransportLane("interactive", okHttpClient), blockingLane);
+            }
+
+            // caches only send blocking queries, so they check their watch duration against the blocking lane
             NetworkTimeoutConfig networkTimeoutConfig = new NetworkTimeoutConfig.Builder()
-                .withConnectTimeout(okHttpClient::connectTimeoutMillis)
-                .withReadTimeout(okHttpClient::readTimeoutMillis)
-                .withWriteTimeout(okHttpClient::writeTimeoutMillis)
+                .withConnectTimeout(blockingOkHttpClient::connectTimeoutMillis)
+                .withReadTimeout(blockingOkHttpClient::readTimeoutMillis)
+                .withWriteTimeout(blockingOkHttpClient::writeTimeoutMillis)
                 .build();
 
-            retrofit = createRetrofit(buildUrl(this.url), Jackson.MAPPER, okHttpClient);
+            retrofit = createRetrofit(buildUrl(this.url), Jackson.MAPPER, callFactory);
 
             ClientEventCallback eventCallback = nonNull(clientEventCallback) ?
                     clientEventCallback :
                     new NoOpClientEventCallback();
 
-            AgentClient agentClient = new AgentClient(retrofit, config, eventCallback);
-            HealthClient healthClient = new HealthClient(retrofit, config, eventCallback, networkTimeoutConfig);
-            KeyValueClient keyValueClient = new KeyValueClient(retrofit, config, eventCallback, networkTimeoutConfig);
-            CatalogClient catalogClient = new CatalogClient(retrofit, config, eventCallback, networkTimeoutConfig);
+            CacheConfig cacheConfig = config.getCacheConfig();
+            SharedWatchScheduler watchScheduler = cacheConfig.isSharedWatchSchedulerEnabled() ?
+                    new SharedWatchScheduler(cacheConfig.getWatchSchedulerThreads(), cacheConfig.getWatchSchedulerTickDuration()) :
+                    null;
+
+            AgentClient agentClient = new AgentClient(retrofit, config, eventCallback, networkTimeoutConfig, watchScheduler);
+            HealthClient healthClient = new HealthClient(retrofit, config, eventCallback, networkTimeoutConfig, watchScheduler);
+            KeyValueClient keyValueClient = new KeyValueClient(retrofit, config, eventCallback, networkTimeoutConfig, watchScheduler);
+            CatalogClient catalogClient = new CatalogClient(retrofit, config, eventCallback, networkTimeoutConfig, watchScheduler);
             StatusClient statusClient = new StatusClient(retrofit, config, eventCallback);
             SessionClient sessionClient = new SessionClient(retrofit, config, eventCallback);
             EventClient eventClient = new EventClient(retrofit, config, eventCallback);
             PreparedQueryClient preparedQueryClient = new PreparedQueryClient(retrofit, config, eventCallback);
-            CoordinateClient coordinateClient = new CoordinateClient(retrofit, config, eventCallback);
+            CoordinateClient coordinateClient = new CoordinateClient(retrofit, config, eventCallback, networkTimeoutConfig, watchScheduler);
             OperatorClient operatorClient = new OperatorClient(retrofit, config, eventCallback);
             AclClient aclClient = new AclClient(retrofit, config, eventCallback);
             SnapshotClient snapshotClient = new SnapshotClient(retrofit, config, eventCallback);
@@ -760,7 +1001,9 @@ public class Consul {
                     connectionPool,
                     aclClient,
                     snapshotClient,
-                    okHttpClient);
+                    okHttpClient,
+                    watchScheduler,
+                    blockingLane);
         }
 
         private String buildUrl(URL url) {
@@ -820,9 +1063,11 @@ public class Consul {
 
             builder.addInterceptor(new TimeoutInterceptor(clientConfig.getCacheConfig()));
 
+            builder.protocols(httpProtocol.getProtocols());
+
             Dispatcher dispatcher = new Dispatcher(executorService);
             dispatcher.setMaxRequests(Integer.MAX_VALUE);
-            dispatcher.setMaxRequestsPerHost(Integer.MAX_VALUE);
+            dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
             builder.dispatcher(dispatcher);
 
             if (nonNull(connectionPool)) {
@@ -831,7 +1076,32 @@ public class Consul {
             return builder.build();
         }
 
-        private Retrofit createRetrofit(String url, ObjectMapper mapper, OkHttpClient okHttpClient) {
+        /**
+         * Derive the client of a lane from the shared client, keeping its interceptors and TLS settings, with
+         * a dispatcher, a connection pool and timeouts of its own.
+         */
+        private OkHttpClient createLaneOkHttpClient(OkHttpClient sharedClient, TransportLaneConfig laneConfig,
+                                                    ExecutorService executorService, ConnectionPool connectionPool) {
+
+            Dispatcher dispatcher = new Dispatcher(executorService);
+            dispatcher.setMaxRequests(laneConfig.getMaxRequests());
+            dispatcher.setMaxRequestsPerHost(Math.min(maxRequestsPerHost, laneConfig.getMaxRequestsPerHost()));
+
+            final OkHttpClient.Builder builder = sharedClient.newBuilder()
+                    .dispatcher(dispatcher)
+                    .connectionPool(connectionPool);
+            laneConfig.getConnectTimeout().ifPresent(builder::connectTimeout);
+            laneConfig.getReadTimeout().ifPresent(builder::readTimeout);
+            laneConfig.getWriteTimeout().ifPresent(builder::writeTimeout);
+            return builder.build();
+        }
+
+        private static ConnectionPool newConnectionPool(TransportLaneConfig laneConfig) {
+            return new ConnectionPool(laneConfig.getMaxIdleConnections(),
+                    laneConfig.getKeepAliveDuration().toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        private Retrofit createRetrofit(String url, ObjectMapper mapper, Call.Factory callFactory) {
 
             final URL consulUrl = Urls.newUrl(url);
 
@@ -843,12 +1113,45 @@ public class Consul {
             return new Retrofit.Builder()
                     .baseUrl(baseUrl.toExternalForm())
                     .addConverterFactory(JacksonConverterFactory.create(mapper))
-                    .client(okHttpClient)
+                    .callFactory(callFactory)
                     .build();
         }
 
     }
 
+    /**
+     * The HTTP protocols that can be used to talk to Consul.
+     *
+     * @see Builder#withHttpProtocol(HttpProtocol)
+     */
+    public enum HttpProtocol {
+
+        /**
+         * HTTP/1.1 only, with one connection per request in flight.
+         */
+        HTTP_1_1(List.of(Protocol.HTTP_1_1)),
+
+        /**
+         * HTTP/2 when the server agrees to it with ALPN on an HTTPS connection, otherwise HTTP/1.1.
+         */
+        HTTP_2(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1)),
+
+        /**
+         * HTTP/2 without TLS (h2c), assuming the server supports it. Only for plain HTTP connections.
+         */
+        H2C_PRIOR_KNOWLEDGE(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+
+        private final List<Protocol> protocols;
+
+        HttpProtocol(List<Protocol> protocols) {
+            this.protocols = protocols;
+        }
+
+        List<Protocol> getProtocols() {
+            return protocols;
+        }
+    }
+
     public static class NetworkTimeoutConfig {
         private final IntSupplier readTimeoutMillisSupplier;
         private final IntSupplier writeTimeoutMillisSupplier;
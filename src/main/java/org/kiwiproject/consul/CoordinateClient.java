@@ -2,13 +2,18 @@ package org.kiwiproject.consul;
 
 import static java.util.Objects.nonNull;
 
+import org.kiwiproject.consul.async.ConsulResponseCallback;
+import org.kiwiproject.consul.cache.SharedWatchScheduler;
 import org.kiwiproject.consul.config.ClientConfig;
+import org.kiwiproject.consul.model.ConsulResponse;
 import org.kiwiproject.consul.model.coordinate.Coordinate;
 import org.kiwiproject.consul.model.coordinate.Datacenter;
 import org.kiwiproject.consul.monitoring.ClientEventCallback;
+import org.kiwiproject.consul.option.QueryOptions;
 import retrofit2.Call;
 import retrofit2.Retrofit;
 import retrofit2.http.GET;
+import retrofit2.http.HeaderMap;
 import retrofit2.http.QueryMap;
 
 import java.util.List;
@@ -19,7 +24,7 @@ import java.util.Map;
  *
  * @see <a href="https://developer.hashicorp.com/consul/api-docs/coordinate">The Consul API Docs</a>
  */
-public class CoordinateClient extends BaseClient {
+public class CoordinateClient extends BaseCacheableClient {
 
     private static final String CLIENT_NAME = "coordinate";
 
@@ -30,8 +35,9 @@ public class CoordinateClient extends BaseClient {
      *
      * @param retrofit The {@link Retrofit} to build a client from.
      */
-    CoordinateClient(Retrofit retrofit, ClientConfig config, ClientEventCallback eventCallback) {
-        super(CLIENT_NAME, config, eventCallback);
+    CoordinateClient(Retrofit retrofit, ClientConfig config, ClientEventCallback eventCallback,
+                     Consul.NetworkTimeoutConfig networkTimeoutConfig, SharedWatchScheduler watchScheduler) {
+        super(CLIENT_NAME, config, eventCallback, networkTimeoutConfig, watchScheduler);
         this.api = retrofit.create(Api.class);
     }
 
@@ -44,7 +50,31 @@ public class CoordinateClient extends BaseClient {
     }
 
     public List<Coordinate> getNodes() {
-        return getNodes(null);
+        return getNodes((String) null);
+    }
+
+    /**
+     * Retrieves the network coordinates of the nodes with {@link QueryOptions}, which supports blocking queries.
+     * <p>
+     * GET /v1/coordinate/nodes?dc={datacenter}
+     *
+     * @param queryOptions The Query Options to use.
+     * @return A {@link ConsulResponse} containing a list of {@link Coordinate} objects.
+     */
+    public ConsulResponse<List<Coordinate>> getNodes(QueryOptions queryOptions) {
+        return http.extractConsulResponse(api.getNodes(queryOptions.toQuery(), queryOptions.toHeaders()));
+    }
+
+    /**
+     * Asynchronously retrieves the network coordinates of the nodes with {@link QueryOptions}.
+     * <p>
+     * GET /v1/coordinate/nodes?dc={datacenter}
+     *
+     * @param queryOptions The Query Options to use.
+     * @param callback     Callback implemented by callee to handle results, which are a list of {@link Coordinate} objects.
+     */
+    public void getNodes(QueryOptions queryOptions, ConsulResponseCallback<List<Coordinate>> callback) {
+        http.extractConsulResponse(api.getNodes(queryOptions.toQuery(), queryOptions.toHeaders()), callback);
     }
 
     private Map<String, String> dcQuery(String dc) {
@@ -62,5 +92,9 @@ public class CoordinateClient extends BaseClient {
         @GET("coordinate/nodes")
         Call<List<Coordinate>> getNodes(@QueryMap Map<String, String> query);
 
+        @GET("coordinate/nodes")
+        Call<List<Coordinate>> getNodes(@QueryMap Map<String, Object> query,
+                                        @HeaderMap Map<String, String> headers);
+
     }
 }
@@ -0,0 +1,48 @@
+package org.kiwiproject.consul;
+
+import static java.util.Objects.nonNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sends blocking queries through the blocking lane and all other requests through the interactive lane.
+ * <p>
+ * A blocking query is a GET with a {@code wait}, {@code index} or {@code hash} query parameter: Consul holds it
+ * until the data changes or the wait time (five minutes by default) elapses.
+ */
+class LaneRoutingCallFactory implements Call.Factory {
+
+    private final TransportLane interactiveLane;
+    private final TransportLane blockingLane;
+
+    LaneRoutingCallFactory(TransportLane interactiveLane, TransportLane blockingLane) {
+        this.interactiveLane = interactiveLane;
+        this.blockingLane = blockingLane;
+    }
+
+    @NotNull
+    @Override
+    public Call newCall(@NotNull Request request) {
+        return laneFor(request).okHttpClient().newCall(request);
+    }
+
+    @VisibleForTesting
+    TransportLane laneFor(Request request) {
+        return isBlockingQuery(request) ? blockingLane : interactiveLane;
+    }
+
+    @VisibleForTesting
+    static boolean isBlockingQuery(Request request) {
+        if (!"GET".equals(request.method())) {
+            return false;
+        }
+        HttpUrl url = request.url();
+        return nonNull(url.queryParameter("wait")) ||
+                nonNull(url.queryParameter("index")) ||
+                nonNull(url.queryParameter("hash"));
+    }
+}
@@ -0,0 +1,124 @@
+package org.kiwiproject.consul;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * The dispatcher and connection pool used for one kind of request, and their current metrics.
+ * <p>
+ * When lane isolation is enabled with {@link Consul.Builder#withLaneIsolation(
+ * org.kiwiproject.consul.config.TransportLaneConfig, org.kiwiproject.consul.config.TransportLaneConfig)},
+ * blocking queries use the blocking lane and all other requests use the interactive lane, so that neither
+ * waits for a connection or a dispatcher slot held by the other. Otherwise, both kinds of requests share a
+ * single lane.
+ *
+ * @see Consul#interactiveLane()
+ * @see Consul#blockingLane()
+ */
+public final class TransportLane {
+
+    private final String name;
+    private final OkHttpClient okHttpClient;
+
+    TransportLane(String name, OkHttpClient okHttpClient) {
+        this.name = name;
+        this.okHttpClient = okHttpClient;
+    }
+
+    /**
+     * Get the name of this lane: {@code interactive}, {@code blocking}, or {@code shared} when lanes are not
+     * isolated.
+     *
+     * @return the name of this lane
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the number of requests of this lane currently in flight.
+     *
+     * @return the number of running calls
+     */
+    public int getRunningCallCount() {
+        return okHttpClient.dispatcher().runningCallsCount();
+    }
+
+    /**
+     * Get the number of requests of this lane waiting for a dispatcher slot, because the lane already has its
+     * maximum number of requests in flight.
+     *
+     * @return the number of queued calls
+     */
+    public int getQueuedCallCount() {
+        return okHttpClient.dispatcher().queuedCallsCount();
+    }
+
+    /**
+     * Get the maximum number of requests of this lane in flight.
+     *
+     * @return the maximum number of requests
+     */
+    public int getMaxRequests() {
+        return okHttpClient.dispatcher().getMaxRequests();
+    }
+
+    /**
+     * Get the maximum number of requests of this lane in flight to each Consul host.
+     *
+     * @return the maximum number of requests per host
+     */
+    public int getMaxRequestsPerHost() {
+        return okHttpClient.dispatcher().getMaxRequestsPerHost();
+    }
+
+    /**
+     * Get the number of connections in the connection pool of this lane.
+     *
+     * @return the number of open connections
+     */
+    public int getConnectionCount() {
+        return okHttpClient.connectionPool().connectionCount();
+    }
+
+    /**
+     * Get the number of idle connections in the connection pool of this lane.
+     *
+     * @return the number of idle connections
+     */
+    public int getIdleConnectionCount() {
+        return okHttpClient.connectionPool().idleConnectionCount();
+    }
+
+    /**
+     * Get the read timeout of this lane, before any adjustment to the wait time of blocking queries.
+     *
+     * @return the read timeout in milliseconds, zero for no timeout
+     */
+    public int getReadTimeoutMillis() {
+        return okHttpClient.readTimeoutMillis();
+    }
+
+    OkHttpClient okHttpClient() {
+        return okHttpClient;
+    }
+
+    /**
+     * Cancel the requests of this lane, stop its dispatcher threads and close its idle connections.
+     */
+    void shutdown() {
+        okHttpClient.dispatcher().cancelAll();
+        okHttpClient.dispatcher().executorService().shutdownNow();
+        okHttpClient.connectionPool().evictAll();
+    }
+
+    @Override
+    public String toString() {
+        return "TransportLane{" +
+                "name='" + name + '\'' +
+                ", runningCalls=" + getRunningCallCount() +
+                ", queuedCalls=" + getQueuedCallCount() +
+                ", connections=" + getConnectionCount() +
+                ", idleConnections=" + getIdleConnectionCount() +
+                '}';
+    }
+}
@@ -0,0 +1,61 @@
+package org.kiwiproject.consul.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.time.Duration;
+
+/**
+ * Computes the delay between two polls of a cache from how often its {@code X-Consul-Index} moves.
+ * <p>
+ * A blocking query that returns because the index moved is followed by a delay that doubles at each
+ * consecutive movement, up to the maximum, so that rapidly changing data is polled in batches. A query that
+ * returns without the index moving halves the delay, down to the minimum, since the blocking query itself
+ * already paces the polls of data that rarely changes.
+ */
+final class AdaptivePollingDelay {
+
+    @VisibleForTesting
+    static final Duration INITIAL_DELAY = Duration.ofMillis(100);
+
+    private final Duration minDelay;
+    private final Duration maxDelay;
+    private volatile Duration currentDelay;
+
+    AdaptivePollingDelay(Duration minDelay, Duration maxDelay) {
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay.compareTo(minDelay) < 0 ? minDelay : maxDelay;
+        this.currentDelay = minDelay;
+    }
+
+    /**
+     * Update and return the delay to wait before the next poll.
+     *
+     * @param indexMoved whether the last response had a different index than the one before it
+     * @return the delay, between the minimum and maximum
+     */
+    Duration next(boolean indexMoved) {
+        Duration delay = currentDelay;
+        if (indexMoved) {
+            delay = delay.compareTo(INITIAL_DELAY) < 0 ? INITIAL_DELAY : delay.multipliedBy(2);
+        } else {
+            delay = delay.dividedBy(2);
+            if (delay.compareTo(INITIAL_DELAY) < 0) {
+                delay = minDelay;
+            }
+        }
+        delay = clamp(delay);
+        currentDelay = delay;
+        return delay;
+    }
+
+    Duration getCurrentDelay() {
+        return currentDelay;
+    }
+
+    private Duration clamp(Duration delay) {
+        if (delay.compareTo(minDelay) < 0) {
+            return minDelay;
+        }
+        return delay.compareTo(maxDelay) > 0 ? maxDelay : delay;
+    }
+}
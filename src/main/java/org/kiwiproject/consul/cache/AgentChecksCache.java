@@ -0,0 +1,112 @@
+package org.kiwiproject.consul.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.kiwiproject.consul.AgentClient;
+import org.kiwiproject.consul.async.ConsulResponseCallback;
+import org.kiwiproject.consul.model.ConsulResponse;
+import org.kiwiproject.consul.model.health.HealthCheck;
+import org.kiwiproject.consul.option.QueryOptions;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * A cache of the checks registered with the local agent, keyed by check ID.
+ * <p>
+ * Unlike {@code /v1/agent/service/:service_id}, the agent endpoint {@code /v1/agent/checks} does not support
+ * blocking queries (neither on an index nor on a content hash) and always answers immediately. This cache
+ * therefore polls it at a fixed interval, which is never shorter than the given polling interval, and only
+ * notifies listeners when a check actually changed. The polls stay local to the agent and never reach the servers.
+ */
+public class AgentChecksCache extends ConsulCache<String, HealthCheck> {
+
+    @VisibleForTesting
+    static final Duration DEFAULT_POLLING_INTERVAL = Duration.ofSeconds(1);
+
+    private final Duration pollingInterval;
+
+    private AgentChecksCache(AgentClient agentClient,
+                             QueryOptions queryOptions,
+                             Duration pollingInterval,
+                             Scheduler callbackScheduler) {
+        super(HealthCheck::getCheckId,
+              (index, callback) -> agentClient.getChecks(queryOptions, new ChecksCallback(callback)),
+              agentClient.getConfig().getCacheConfig(),
+              agentClient.getEventHandler(),
+              new CacheDescriptor("agent.checks"),
+              callbackScheduler);
+
+        this.pollingInterval = pollingInterval;
+    }
+
+    @Override
+    protected Duration getMinimumPollingInterval() {
+        return pollingInterval;
+    }
+
+    public static AgentChecksCache newCache(
+            final AgentClient agentClient,
+            final QueryOptions queryOptions,
+            final Duration pollingInterval,
+            final ScheduledExecutorService callbackExecutorService) {
+
+        checkArguments(queryOptions, pollingInterval);
+        Scheduler scheduler = createExternal(callbackExecutorService);
+        return new AgentChecksCache(agentClient, queryOptions, pollingInterval, scheduler);
+    }
+
+    public static AgentChecksCache newCache(
+            final AgentClient agentClient,
+            final QueryOptions queryOptions,
+            final Duration pollingInterval) {
+
+        checkArguments(queryOptions, pollingInterval);
+        return new AgentChecksCache(agentClient, queryOptions, pollingInterval,
+                createDefault(agentClient.getWatchScheduler()));
+    }
+
+    public static AgentChecksCache newCache(final AgentClient agentClient) {
+        return newCache(agentClient, QueryOptions.BLANK, DEFAULT_POLLING_INTERVAL);
+    }
+
+    private static void checkArguments(QueryOptions queryOptions, Duration pollingInterval) {
+        checkArgument(nonNull(queryOptions), "queryOptions must not be null");
+        checkArgument(!queryOptions.isBlocking(), "/v1/agent/checks does not support blocking queries");
+        checkArgument(nonNull(pollingInterval) && !pollingInterval.isNegative() && !pollingInterval.isZero(),
+                "pollingInterval must be positive");
+    }
+
+    /**
+     * Passes the checks on to the cache as a list.
+     */
+    private static class ChecksCallback implements ConsulResponseCallback<Map<String, HealthCheck>> {
+
+        private final ConsulResponseCallback<List<HealthCheck>> callback;
+
+        ChecksCallback(ConsulResponseCallback<List<HealthCheck>> callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void onComplete(ConsulResponse<Map<String, HealthCheck>> consulResponse) {
+            Map<String, HealthCheck> checks = consulResponse.getResponse();
+            List<HealthCheck> values = isNull(checks) ? List.of() : List.copyOf(checks.values());
+            callback.onComplete(new ConsulResponse<>(values,
+                    consulResponse.getLastContact(),
+                    consulResponse.isKnownLeader(),
+                    consulResponse.getIndex(),
+                    consulResponse.getCacheResponseInfo()));
+        }
+
+        @Override
+        public void onFailure(Throwable throwable) {
+            callback.onFailure(throwable);
+        }
+    }
+}
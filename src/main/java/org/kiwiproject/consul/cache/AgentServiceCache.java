@@ -0,0 +1,129 @@
+package org.kiwiproject.consul.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.isNull;
+
+import com.google.common.base.Equivalence;
+import com.google.common.base.Strings;
+import com.google.common.primitives.Ints;
+import org.kiwiproject.consul.AgentClient;
+import org.kiwiproject.consul.async.ConsulResponseCallback;
+import org.kiwiproject.consul.config.CacheConfig;
+import org.kiwiproject.consul.model.ConsulResponse;
+import org.kiwiproject.consul.model.agent.FullService;
+import org.kiwiproject.consul.option.QueryOptions;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A cache of the definition of one service registered with the local agent.
+ * <p>
+ * The agent endpoint {@code /v1/agent/service/:service_id} supports blocking on the content hash of the service
+ * instead of an index, so this cache holds each request until the local definition of the service changes (or
+ * until the watch duration elapses), and changes are pushed without any polling traffic.
+ * <p>
+ * The map contains at most one entry, keyed by the service ID. A request for a service that is not registered
+ * fails, and is retried with the usual back-off delay.
+ */
+public class AgentServiceCache extends ConsulCache<String, FullService> {
+
+    private static final Equivalence<FullService> CONTENT_HASH_EQUIVALENCE =
+            Equivalence.equals().onResultOf(FullService::getContentHash);
+
+    private AgentServiceCache(AgentClient agentClient,
+                              String serviceId,
+                              QueryOptions queryOptions,
+                              int watchSeconds,
+                              Scheduler callbackScheduler) {
+        this(agentClient, serviceId, queryOptions, watchSeconds, callbackScheduler, new AtomicReference<>());
+    }
+
+    private AgentServiceCache(AgentClient agentClient,
+                              String serviceId,
+                              QueryOptions queryOptions,
+                              int watchSeconds,
+                              Scheduler callbackScheduler,
+                              AtomicReference<String> contentHash) {
+        super(FullService::getId,
+              (index, callback) -> {
+                  checkWatch(agentClient.getNetworkTimeoutConfig().getClientReadTimeoutMillis(), watchSeconds);
+                  QueryOptions params = hashWatchParams(contentHash.get(), watchSeconds, queryOptions);
+                  agentClient.getService(serviceId, params, new ContentHashCallback(contentHash, callback));
+              },
+              agentClient.getConfig().getCacheConfig(),
+              agentClient.getEventHandler(),
+              new CacheDescriptor("agent.service", serviceId),
+              callbackScheduler);
+    }
+
+    @Override
+    protected Equivalence<? super FullService> getEntryEquivalence() {
+        return CONTENT_HASH_EQUIVALENCE;
+    }
+
+    public static AgentServiceCache newCache(
+            final AgentClient agentClient,
+            final String serviceId,
+            final QueryOptions queryOptions,
+            final int watchSeconds,
+            final ScheduledExecutorService callbackExecutorService) {
+
+        checkArgument(!Strings.isNullOrEmpty(serviceId), "serviceId must not be null or empty");
+        Scheduler scheduler = createExternal(callbackExecutorService);
+        return new AgentServiceCache(agentClient, serviceId, queryOptions, watchSeconds, scheduler);
+    }
+
+    public static AgentServiceCache newCache(
+            final AgentClient agentClient,
+            final String serviceId,
+            final QueryOptions queryOptions,
+            final int watchSeconds) {
+
+        checkArgument(!Strings.isNullOrEmpty(serviceId), "serviceId must not be null or empty");
+        return new AgentServiceCache(agentClient, serviceId, queryOptions, watchSeconds,
+                createDefault(agentClient.getWatchScheduler()));
+    }
+
+    public static AgentServiceCache newCache(final AgentClient agentClient, final String serviceId) {
+        CacheConfig cacheConfig = agentClient.getConfig().getCacheConfig();
+        int watchSeconds = Ints.checkedCast(cacheConfig.getWatchDuration().getSeconds());
+        return newCache(agentClient, serviceId, QueryOptions.BLANK, watchSeconds);
+    }
+
+    /**
+     * Records the content hash of each response, so that the next request blocks until it changes, and passes
+     * the service on to the cache as a one-element list.
+     */
+    private static class ContentHashCallback implements ConsulResponseCallback<FullService> {
+
+        private final AtomicReference<String> contentHash;
+        private final ConsulResponseCallback<List<FullService>> callback;
+
+        ContentHashCallback(AtomicReference<String> contentHash, ConsulResponseCallback<List<FullService>> callback) {
+            this.contentHash = contentHash;
+            this.callback = callback;
+        }
+
+        @Override
+        public void onComplete(ConsulResponse<FullService> consulResponse) {
+            FullService service = consulResponse.getResponse();
+            contentHash.set(isNull(service) ? null : Strings.emptyToNull(service.getContentHash()));
+
+            List<FullService> services = isNull(service) ? List.of() : List.of(service);
+            callback.onComplete(new ConsulResponse<>(services,
+                    consulResponse.getLastContact(),
+                    consulResponse.isKnownLeader(),
+                    consulResponse.getIndex(),
+                    consulResponse.getCacheResponseInfo()));
+        }
+
+        @Override
+        public void onFailure(Throwable throwable) {
+            // the service may have been deregistered, so the next request must not block on its old hash
+            contentHash.set(null);
+            callback.onFailure(throwable);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.kiwiproject.consul.cache;
+
+import static java.util.Objects.isNull;
+
+import com.google.common.base.Equivalence;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
+/**
+ * The entries that changed in a {@link ConsulCache} between two consecutive versions of its map.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class CacheDiff<K, V> {
+
+    private final ImmutableMap<K, V> added;
+    private final ImmutableMap<K, V> removed;
+    private final ImmutableMap<K, V> modified;
+
+    public CacheDiff(ImmutableMap<K, V> added, ImmutableMap<K, V> removed, ImmutableMap<K, V> modified) {
+        this.added = added;
+        this.removed = removed;
+        this.modified = modified;
+    }
+
+    /**
+     * Compute the difference between two versions of a cache map.
+     *
+     * @param previous    the previous map, or null if there is none yet
+     * @param current     the current map
+     * @param equivalence decides whether the value of a key present in both maps was modified
+     * @param <K>         the type of keys
+     * @param <V>         the type of values
+     * @return the diff
+     */
+    public static <K, V> CacheDiff<K, V> between(Map<K, V> previous,
+                                                 Map<K, V> current,
+                                                 Equivalence<? super V> equivalence) {
+        if (isNull(previous) || previous.isEmpty()) {
+            return new CacheDiff<>(ImmutableMap.copyOf(current), ImmutableMap.of(), ImmutableMap.of());
+        }
+
+        ImmutableMap.Builder<K, V> added = ImmutableMap.builder();
+        ImmutableMap.Builder<K, V> removed = ImmutableMap.builder();
+        ImmutableMap.Builder<K, V> modified = ImmutableMap.builder();
+
+        for (Map.Entry<K, V> entry : current.entrySet()) {
+            V previousValue = previous.get(entry.getKey());
+            if (isNull(previousValue)) {
+                added.put(entry);
+            } else if (!equivalence.equivalent(previousValue, entry.getValue())) {
+                modified.put(entry);
+            }
+        }
+        for (Map.Entry<K, V> entry : previous.entrySet()) {
+            if (!current.containsKey(entry.getKey())) {
+                removed.put(entry);
+            }
+        }
+
+        return new CacheDiff<>(added.build(), removed.build(), modified.build());
+    }
+
+    /**
+     * @return the entries that were not present in the previous version
+     */
+    public ImmutableMap<K, V> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return the entries that are no longer present, with their last known values
+     */
+    public ImmutableMap<K, V> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return the entries whose value changed, with their new values
+     */
+    public ImmutableMap<K, V> getModified() {
+        return modified;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && modified.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheDiff[added=%d, removed=%d, modified=%d]",
+                added.size(), removed.size(), modified.size());
+    }
+}
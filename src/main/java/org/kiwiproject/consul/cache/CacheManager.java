@@ -0,0 +1,297 @@
+package org.kiwiproject.consul.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Owns a set of {@link ConsulCache} instances and starts, awaits and stops them together.
+ * <p>
+ * {@link #startAll()} starts the caches in order of decreasing priority, with at most
+ * {@link Builder#withMaxConcurrentStarts(int) a given number} of them fetching their initial content at the same
+ * time: a cache holds its slot until it is initialized, or until the {@link Builder#withStartSlotTimeout(Duration)
+ * slot timeout} elapses, so that many caches can be started quickly without a burst of requests to the servers,
+ * and a slow cache does not hold up the others for long.
+ * <p>
+ * {@link #awaitAllInitialized(Duration)} then waits for all the caches, and reports which ones failed to start
+ * or to initialize in time, and {@link #stopAll()} stops them all.
+ */
+public class CacheManager implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CacheManager.class);
+
+    @VisibleForTesting
+    static final int DEFAULT_MAX_CONCURRENT_STARTS = 8;
+
+    @VisibleForTesting
+    static final Duration DEFAULT_START_SLOT_TIMEOUT = Duration.ofSeconds(5);
+
+    private final int maxConcurrentStarts;
+    private final Duration startSlotTimeout;
+    private final List<ManagedCache> caches = new ArrayList<>();
+    private ExecutorService starter;
+    private boolean stopped;
+
+    private CacheManager(Builder builder) {
+        this.maxConcurrentStarts = builder.maxConcurrentStarts;
+        this.startSlotTimeout = builder.startSlotTimeout;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Add a cache with the default priority of zero.
+     *
+     * @param cache the cache to manage, which must not be started yet
+     * @param <C>   the type of the cache
+     * @return the cache
+     */
+    public <C extends ConsulCache<?, ?>> C register(C cache) {
+        return register(cache, 0);
+    }
+
+    /**
+     * Add a cache. If the caches are already started, the new one is started too.
+     *
+     * @param cache    the cache to manage, which must not be started yet
+     * @param priority the priority of the cache; caches with higher priorities are started first
+     * @param <C>      the type of the cache
+     * @return the cache
+     * @throws IllegalStateException if the caches have already been stopped
+     */
+    public synchronized <C extends ConsulCache<?, ?>> C register(C cache, int priority) {
+        checkArgument(nonNull(cache), "cache must not be null");
+        checkArgument(cache.getState() == ConsulCache.State.LATENT, "cache must not be started");
+        checkState(!stopped, "Cannot register a cache after the caches have been stopped");
+        var managedCache = new ManagedCache(cache, priority, caches.size());
+        caches.add(managedCache);
+        if (nonNull(starter)) {
+            starter.execute(() -> start(managedCache));
+        }
+        return cache;
+    }
+
+    public synchronized List<ConsulCache<?, ?>> getCaches() {
+        List<ConsulCache<?, ?>> result = new ArrayList<>(caches.size());
+        for (ManagedCache managedCache : caches) {
+            result.add(managedCache.cache);
+        }
+        return result;
+    }
+
+    /**
+     * Start all the caches, in order of decreasing priority and with bounded concurrency. This method does not
+     * wait for the caches to start; use {@link #awaitAllInitialized(Duration)} for that.
+     */
+    public synchronized void startAll() {
+        checkState(!stopped, "Caches already stopped");
+        checkState(isNull(starter), "Caches already started");
+        starter = Executors.newFixedThreadPool(maxConcurrentStarts, new ThreadFactoryBuilder()
+                .setNameFormat("consul-cache-manager-%d")
+                .setDaemon(true)
+                .build());
+
+        List<ManagedCache> ordered = new ArrayList<>(caches);
+        ordered.sort(Comparator.comparingInt((ManagedCache managedCache) -> managedCache.priority).reversed()
+                .thenComparingInt(managedCache -> managedCache.registrationOrder));
+        for (ManagedCache managedCache : ordered) {
+            starter.execute(() -> start(managedCache));
+        }
+    }
+
+    private void start(ManagedCache managedCache) {
+        try {
+            managedCache.cache.start();
+            managedCache.started.complete(null);
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to start {}", managedCache.describe(), e);
+            managedCache.started.completeExceptionally(e);
+            return;
+        }
+
+        try {
+            // hold the slot until the initial fetch completes, or until it takes too long
+            if (!managedCache.cache.awaitInitialized(startSlotTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                LOG.info("{} is not initialized after {}, starting the next caches", managedCache.describe(),
+                        startSlotTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait until all the caches are initialized, or until the timeout elapses.
+     *
+     * @param timeout the maximum time to wait for all the caches together
+     * @return the caches that are initialized and the reason each of the others is not
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public InitializationReport awaitAllInitialized(Duration timeout) throws InterruptedException {
+        checkArgument(nonNull(timeout), "timeout must not be null");
+        List<ManagedCache> managedCaches;
+        synchronized (this) {
+            checkState(nonNull(starter), "Caches must be started first");
+            managedCaches = new ArrayList<>(caches);
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<ConsulCache<?, ?>> initialized = new ArrayList<>();
+        Map<ConsulCache<?, ?>, Throwable> failures = new LinkedHashMap<>();
+        for (ManagedCache managedCache : managedCaches) {
+            long remainingNanos = Math.max(0, deadline - System.nanoTime());
+            try {
+                managedCache.started.get(remainingNanos, TimeUnit.NANOSECONDS);
+                remainingNanos = Math.max(0, deadline - System.nanoTime());
+                if (managedCache.cache.awaitInitialized(remainingNanos, TimeUnit.NANOSECONDS)) {
+                    initialized.add(managedCache.cache);
+                } else {
+                    failures.put(managedCache.cache, new TimeoutException(
+                            managedCache.describe() + " was not initialized within " + timeout));
+                }
+            } catch (ExecutionException e) {
+                failures.put(managedCache.cache, e.getCause());
+            } catch (TimeoutException e) {
+                failures.put(managedCache.cache, new TimeoutException(
+                        managedCache.describe() + " was not started within " + timeout));
+            }
+        }
+        return new InitializationReport(initialized, failures);
+    }
+
+    /**
+     * Stop all the caches, including those that are still waiting to be started. No cache can be registered or
+     * started afterwards.
+     */
+    public synchronized void stopAll() {
+        stopped = true;
+        if (nonNull(starter)) {
+            starter.shutdownNow();
+        }
+        for (ManagedCache managedCache : caches) {
+            // caches that were still waiting for a slot are never started
+            managedCache.started.completeExceptionally(new IllegalStateException("Stopped before being started"));
+            try {
+                managedCache.cache.stop();
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to stop {}", managedCache.describe(), e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        stopAll();
+    }
+
+    /**
+     * The outcome of {@link #awaitAllInitialized(Duration)}.
+     */
+    public static final class InitializationReport {
+
+        private final List<ConsulCache<?, ?>> initialized;
+        private final Map<ConsulCache<?, ?>, Throwable> failures;
+
+        private InitializationReport(List<ConsulCache<?, ?>> initialized, Map<ConsulCache<?, ?>, Throwable> failures) {
+            this.initialized = Collections.unmodifiableList(initialized);
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+
+        /**
+         * @return true if all the caches are initialized
+         */
+        public boolean isSuccessful() {
+            return failures.isEmpty();
+        }
+
+        public List<ConsulCache<?, ?>> getInitialized() {
+            return initialized;
+        }
+
+        /**
+         * @return the caches that are not initialized, with the exception thrown when starting them, or a
+         * {@link TimeoutException} if they did not start or initialize in time
+         */
+        public Map<ConsulCache<?, ?>, Throwable> getFailures() {
+            return failures;
+        }
+    }
+
+    private static final class ManagedCache {
+
+        private final ConsulCache<?, ?> cache;
+        private final int priority;
+        private final int registrationOrder;
+        private final CompletableFuture<Void> started = new CompletableFuture<>();
+
+        ManagedCache(ConsulCache<?, ?> cache, int priority, int registrationOrder) {
+            this.cache = cache;
+            this.priority = priority;
+            this.registrationOrder = registrationOrder;
+        }
+
+        String describe() {
+            return "cache " + cache.getMetrics().getCacheDescriptor();
+        }
+    }
+
+    public static class Builder {
+
+        private int maxConcurrentStarts = DEFAULT_MAX_CONCURRENT_STARTS;
+        private Duration startSlotTimeout = DEFAULT_START_SLOT_TIMEOUT;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum number of caches that fetch their initial content at the same time.
+         *
+         * @param maxConcurrentStarts the maximum number of concurrent starts
+         * @return the Builder instance
+         */
+        public Builder withMaxConcurrentStarts(int maxConcurrentStarts) {
+            checkArgument(maxConcurrentStarts > 0, "maxConcurrentStarts must be positive");
+            this.maxConcurrentStarts = maxConcurrentStarts;
+            return this;
+        }
+
+        /**
+         * Sets how long a cache that is not initialized yet may prevent the next cache from being started.
+         *
+         * @param startSlotTimeout the slot timeout
+         * @return the Builder instance
+         */
+        public Builder withStartSlotTimeout(Duration startSlotTimeout) {
+            checkArgument(nonNull(startSlotTimeout) && !startSlotTimeout.isNegative(),
+                    "startSlotTimeout must not be null or negative");
+            this.startSlotTimeout = startSlotTimeout;
+            return this;
+        }
+
+        public CacheManager build() {
+            return new CacheManager(this);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package org.kiwiproject.consul.cache;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * A point-in-time view of the operational metrics of a {@link ConsulCache}.
+ * <p>
+ * Instances are immutable. They are returned by {@link ConsulCache#getMetrics()}, and sent to
+ * {@link org.kiwiproject.consul.monitoring.ClientEventCallback#onCacheMetrics} after each poll.
+ */
+public final class CacheMetrics {
+
+    private final CacheDescriptor cacheDescriptor;
+    private final ConsulCache.State state;
+    private final int entryCount;
+    @Nullable
+    private final BigInteger index;
+    private final double indexVelocity;
+    private final long indexResetCount;
+    private final long indexSpinCount;
+    private final int lastResponseSize;
+    private final long pollSuccessCount;
+    private final long pollFailureCount;
+    private final long changeCount;
+    @Nullable
+    private final Duration timeSinceLastChange;
+    private final Duration lastListenerDuration;
+    private final Duration maxListenerDuration;
+    private final Duration totalListenerDuration;
+    private final long lastContactMillis;
+    private final boolean knownLeader;
+    private final LatencyHistogram.Snapshot pollLatency;
+
+    private CacheMetrics(Builder builder) {
+        this.cacheDescriptor = builder.cacheDescriptor;
+        this.state = builder.state;
+        this.entryCount = builder.entryCount;
+        this.index = builder.index;
+        this.indexVelocity = builder.indexVelocity;
+        this.indexResetCount = builder.indexResetCount;
+        this.indexSpinCount = builder.indexSpinCount;
+        this.lastResponseSize = builder.lastResponseSize;
+        this.pollSuccessCount = builder.pollSuccessCount;
+        this.pollFailureCount = builder.pollFailureCount;
+        this.changeCount = builder.changeCount;
+        this.timeSinceLastChange = builder.timeSinceLastChange;
+        this.lastListenerDuration = builder.lastListenerDuration;
+        this.maxListenerDuration = builder.maxListenerDuration;
+        this.totalListenerDuration = builder.totalListenerDuration;
+        this.lastContactMillis = builder.lastContactMillis;
+        this.knownLeader = builder.knownLeader;
+        this.pollLatency = builder.pollLatency;
+    }
+
+    public CacheDescriptor getCacheDescriptor() {
+        return cacheDescriptor;
+    }
+
+    public ConsulCache.State getState() {
+        return state;
+    }
+
+    /**
+     * @return the number of entries in the map of the cache
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return the {@code X-Consul-Index} of the cache, if it has one
+     */
+    public Optional<BigInteger> getIndex() {
+        return Optional.ofNullable(index);
+    }
+
+    /**
+     * @return how fast the index of the cache moves, in index units per second, as an exponentially weighted
+     * moving average over the recent polls
+     */
+    public double getIndexVelocity() {
+        return indexVelocity;
+    }
+
+    public long getIndexResetCount() {
+        return indexResetCount;
+    }
+
+    public long getIndexSpinCount() {
+        return indexSpinCount;
+    }
+
+    /**
+     * @return the number of values in the last successful response (the payload size in entries, before
+     * entries without a key are dropped)
+     */
+    public int getLastResponseSize() {
+        return lastResponseSize;
+    }
+
+    public long getPollSuccessCount() {
+        return pollSuccessCount;
+    }
+
+    public long getPollFailureCount() {
+        return pollFailureCount;
+    }
+
+    /**
+     * @return the number of times the map of the cache changed
+     */
+    public long getChangeCount() {
+        return changeCount;
+    }
+
+    /**
+     * @return the time elapsed since the map of the cache last changed, empty if it never changed
+     */
+    public Optional<Duration> getTimeSinceLastChange() {
+        return Optional.ofNullable(timeSinceLastChange);
+    }
+
+    /**
+     * @return the time taken to notify all the listeners of the last change
+     */
+    public Duration getLastListenerDuration() {
+        return lastListenerDuration;
+    }
+
+    public Duration getMaxListenerDuration() {
+        return maxListenerDuration;
+    }
+
+    public Duration getTotalListenerDuration() {
+        return totalListenerDuration;
+    }
+
+    /**
+     * @return the {@code X-Consul-LastContact} of the last change, in milliseconds
+     */
+    public long getLastContactMillis() {
+        return lastContactMillis;
+    }
+
+    /**
+     * @return the {@code X-Consul-KnownLeader} of the last change
+     */
+    public boolean isKnownLeader() {
+        return knownLeader;
+    }
+
+    /**
+     * @return the latencies of the successful polls; for blocking queries, they include the time spent
+     * waiting for a change
+     */
+    public LatencyHistogram.Snapshot getPollLatency() {
+        return pollLatency;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheMetrics{" +
+                "cacheDescriptor=" + cacheDescriptor +
+                ", state=" + state +
+                ", entryCount=" + entryCount +
+                ", index=" + index +
+                ", indexVelocity=" + indexVelocity +
+                ", pollSuccessCount=" + pollSuccessCount +
+                ", pollFailureCount=" + pollFailureCount +
+                ", changeCount=" + changeCount +
+                ", timeSinceLastChange=" + timeSinceLastChange +
+                ", lastListenerDuration=" + lastListenerDuration +
+                ", lastContactMillis=" + lastContactMillis +
+                ", knownLeader=" + knownLeader +
+                '}';
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    static final class Builder {
+
+        private CacheDescriptor cacheDescriptor;
+        private ConsulCache.State state;
+        private int entryCount;
+        private BigInteger index;
+        private double indexVelocity;
+        private long indexResetCount;
+        private long indexSpinCount;
+        private int lastResponseSize;
+        private long pollSuccessCount;
+        private long pollFailureCount;
+        private long changeCount;
+        private Duration timeSinceLastChange;
+        private Duration lastListenerDuration = Duration.ZERO;
+        private Duration maxListenerDuration = Duration.ZERO;
+        private Duration totalListenerDuration = Duration.ZERO;
+        private long lastContactMillis;
+        private boolean knownLeader;
+        private LatencyHistogram.Snapshot pollLatency;
+
+        private Builder() {
+        }
+
+        Builder withCacheDescriptor(CacheDescriptor cacheDescriptor) {
+            this.cacheDescriptor = cacheDescriptor;
+            return this;
+        }
+
+        Builder withState(ConsulCache.State state) {
+            this.state = state;
+            return this;
+        }
+
+        Builder withEntryCount(int entryCount) {
+            this.entryCount = entryCount;
+            return this;
+        }
+
+        Builder withIndex(@Nullable BigInteger index) {
+            this.index = index;
+            return this;
+        }
+
+        Builder withIndexVelocity(double indexVelocity) {
+            this.indexVelocity = indexVelocity;
+            return this;
+        }
+
+        Builder withIndexResetCount(long indexResetCount) {
+            this.indexResetCount = indexResetCount;
+            return this;
+        }
+
+        Builder withIndexSpinCount(long indexSpinCount) {
+            this.indexSpinCount = indexSpinCount;
+            return this;
+        }
+
+        Builder withLastResponseSize(int lastResponseSize) {
+            this.lastResponseSize = lastResponseSize;
+            return this;
+        }
+
+        Builder withPollSuccessCount(long pollSuccessCount) {
+            this.pollSuccessCount = pollSuccessCount;
+            return this;
+        }
+
+        Builder withPollFailureCount(long pollFailureCount) {
+            this.pollFailureCount = pollFailureCount;
+            return this;
+        }
+
+        Builder withChangeCount(long changeCount) {
+            this.changeCount = changeCount;
+            return this;
+        }
+
+        Builder withTimeSinceLastChange(@Nullable Duration timeSinceLastChange) {
+            this.timeSinceLastChange = timeSinceLastChange;
+            return this;
+        }
+
+        Builder withListenerDurations(Duration last, Duration max, Duration total) {
+            this.lastListenerDuration = last;
+            this.maxListenerDuration = max;
+            this.totalListenerDuration = total;
+            return this;
+        }
+
+        Builder withLastContactMillis(long lastContactMillis) {
+            this.lastContactMillis = lastContactMillis;
+            return this;
+        }
+
+        Builder withKnownLeader(boolean knownLeader) {
+            this.knownLeader = knownLeader;
+            return this;
+        }
+
+        Builder withPollLatency(LatencyHistogram.Snapshot pollLatency) {
+            this.pollLatency = pollLatency;
+            return this;
+        }
+
+        CacheMetrics build() {
+            return new CacheMetrics(this);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package org.kiwiproject.consul.cache;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.Equivalence;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.math.LongMath;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.kiwiproject.consul.model.ConsulResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+
+/**
+ * A {@link Flow.Publisher} of the versions of the map of a {@link ConsulCache}, obtained from
+ * {@link ConsulCache#publisher()} or {@link ConsulCache#diffPublisher()}.
+ * <p>
+ * All the subscribers share the polling of the cache: a new version is handed to each of them when the map
+ * changes, and a new subscriber first receives the current version, if there is one. Subscribers that have no
+ * outstanding demand are not buffered for: each subscription holds only the latest version it has not
+ * received yet, and is sent that one when it requests more. Diff subscribers are then sent the difference
+ * between the last version they received and the latest one, so that no change is lost.
+ * <p>
+ * Items are sent on the polling thread of the cache, or on the thread that calls
+ * {@link Flow.Subscription#request(long)}, without any additional thread. Subscribers are completed when the
+ * cache is stopped, and a cancelled subscription is removed from the publisher.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @param <T> the type of items
+ */
+public final class CachePublisher<K, V, T> implements Flow.Publisher<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachePublisher.class);
+
+    private final ConsulCache<K, V> cache;
+    private final BiFunction<ImmutableMap<K, V>, ConsulResponse<ImmutableMap<K, V>>, T> itemFunction;
+    private final CopyOnWriteArrayList<CacheSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // the latest published version; it is set before the subscriptions are offered it
+    private volatile Version<K, V> current;
+    private volatile boolean completed;
+
+    // only accessed from the polling thread
+    private long nextVersion = 1;
+
+    /**
+     * @param itemFunction converts the last version sent to a subscriber (null if none) and the new one into
+     *                     the item to send, or null if there is nothing to send
+     */
+    private CachePublisher(ConsulCache<K, V> cache,
+                           BiFunction<ImmutableMap<K, V>, ConsulResponse<ImmutableMap<K, V>>, T> itemFunction) {
+        this.cache = cache;
+        this.itemFunction = itemFunction;
+    }
+
+    static <K, V> CachePublisher<K, V, ConsulResponse<ImmutableMap<K, V>>> snapshots(ConsulCache<K, V> cache) {
+        return new CachePublisher<>(cache, (previous, response) ->
+                response.getResponse() == previous ? null : response);
+    }
+
+    static <K, V> CachePublisher<K, V, CacheDiff<K, V>> diffs(ConsulCache<K, V> cache,
+                                                            Equivalence<? super V> equivalence) {
+        return new CachePublisher<>(cache, (previous, response) -> {
+            CacheDiff<K, V> diff = CacheDiff.between(previous, response.getResponse(), equivalence);
+            return nonNull(previous) && diff.isEmpty() ? null : diff;
+        });
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        requireNonNull(subscriber, "subscriber must not be null");
+        var subscription = new CacheSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        if (completed) {
+            subscription.complete();
+            return;
+        }
+
+        subscriptions.add(subscription);
+        subscription.offer(currentVersion());
+
+        // the cache may have been stopped before the subscription was added
+        if (completed) {
+            subscription.complete();
+        }
+    }
+
+    private Version<K, V> currentVersion() {
+        Version<K, V> version = current;
+        if (nonNull(version) || isNull(cache.getMap())) {
+            return version;
+        }
+        // nothing was published since this publisher was created; any later version has a higher number
+        return new Version<>(0, cache.getMapWithMetadata());
+    }
+
+    /**
+     * @return the number of active subscriptions
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Send a new version of the map to the subscribers. Called from the polling thread only.
+     */
+    void publish(ConsulResponse<ImmutableMap<K, V>> response) {
+        var version = new Version<>(nextVersion++, response);
+        current = version;
+        for (CacheSubscription subscription : subscriptions) {
+            subscription.offer(version);
+        }
+    }
+
+    /**
+     * Complete all the subscribers, and those that subscribe later.
+     */
+    void complete() {
+        completed = true;
+        for (CacheSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    private final class CacheSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicReference<Version<K, V>> pending = new AtomicReference<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger workInProgress = new AtomicInteger();
+
+        private volatile boolean cancelled;
+        private volatile boolean done;
+        private volatile Throwable error;
+
+        // only accessed while draining
+        private long lastSentVersion = -1;
+        private ImmutableMap<K, V> lastSentMap;
+
+        CacheSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(@Nullable Version<K, V> version) {
+            if (isNull(version)) {
+                return;
+            }
+            pending.accumulateAndGet(version, (previous, offered) ->
+                    isNull(previous) || offered.number > previous.number ? offered : previous);
+            drain();
+        }
+
+        void complete() {
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("non-positive subscription request: " + n);
+            } else {
+                requested.accumulateAndGet(n, LongMath::saturatedAdd);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            pending.set(null);
+        }
+
+        /**
+         * Send the pending version and the terminal signals. Only one thread drains at a time; a thread that
+         * finds another one draining leaves the work to it.
+         */
+        private void drain() {
+            if (workInProgress.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+            do {
+                if (!emit()) {
+                    return;
+                }
+                missed = workInProgress.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * @return false if the subscription is over
+         */
+        private boolean emit() {
+            while (true) {
+                if (cancelled) {
+                    return false;
+                }
+                Throwable failure = error;
+                if (nonNull(failure)) {
+                    cancel();
+                    subscriber.onError(failure);
+                    return false;
+                }
+
+                Version<K, V> version = pending.get();
+                boolean canSend = nonNull(version) && requested.get() > 0;
+                if (done && !canSend) {
+                    cancel();
+                    subscriber.onComplete();
+                    return false;
+                }
+                if (!canSend) {
+                    return true;
+                }
+                if (pending.compareAndSet(version, null) && version.number > lastSentVersion) {
+                    send(version);
+                }
+            }
+        }
+
+        private void send(Version<K, V> version) {
+            T item = itemFunction.apply(lastSentMap, version.response);
+            lastSentVersion = version.number;
+            lastSentMap = version.response.getResponse();
+            if (isNull(item)) {
+                return;
+            }
+
+            if (requested.get() != Long.MAX_VALUE) {
+                requested.decrementAndGet();
+            }
+            try {
+                subscriber.onNext(item);
+            } catch (RuntimeException e) {
+                LOG.warn("Subscriber {} threw an exception from onNext, cancelling its subscription", subscriber, e);
+                cancel();
+            }
+        }
+    }
+
+    private static final class Version<K, V> {
+
+        private final long number;
+        private final ConsulResponse<ImmutableMap<K, V>> response;
+
+        Version(long number, ConsulResponse<ImmutableMap<K, V>> response) {
+            this.number = number;
+            this.response = response;
+        }
+    }
+}
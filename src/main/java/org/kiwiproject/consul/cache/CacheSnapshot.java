@@ -0,0 +1,67 @@
+package org.kiwiproject.consul.cache;
+
+import static java.util.Objects.isNull;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * The persisted state of a {@link ConsulCache}: its values along with the Consul index and metadata
+ * of the response they came from.
+ *
+ * @param <V> the type of values
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CacheSnapshot<V> {
+
+    private final BigInteger index;
+    private final long lastContact;
+    private final boolean knownLeader;
+    private final long savedAtMillis;
+    private final List<V> values;
+
+    @JsonCreator
+    public CacheSnapshot(@JsonProperty("index") BigInteger index,
+                         @JsonProperty("lastContact") long lastContact,
+                         @JsonProperty("knownLeader") boolean knownLeader,
+                         @JsonProperty("savedAtMillis") long savedAtMillis,
+                         @JsonProperty("values") List<V> values) {
+        this.index = index;
+        this.lastContact = lastContact;
+        this.knownLeader = knownLeader;
+        this.savedAtMillis = savedAtMillis;
+        this.values = isNull(values) ? List.of() : List.copyOf(values);
+    }
+
+    @JsonProperty("index")
+    public BigInteger getIndex() {
+        return index;
+    }
+
+    @JsonProperty("lastContact")
+    public long getLastContact() {
+        return lastContact;
+    }
+
+    @JsonProperty("knownLeader")
+    public boolean isKnownLeader() {
+        return knownLeader;
+    }
+
+    /**
+     * @return the time, in milliseconds since the epoch, at which this snapshot was written
+     */
+    @JsonProperty("savedAtMillis")
+    public long getSavedAtMillis() {
+        return savedAtMillis;
+    }
+
+    @JsonProperty("values")
+    public List<V> getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,148 @@
+package org.kiwiproject.consul.cache;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JavaType;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.kiwiproject.consul.util.Jackson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Persists {@link CacheSnapshot}s of a {@link ConsulCache} to a local file, so that a restarted process can
+ * serve the last known values before Consul answers.
+ * <p>
+ * Snapshots are written as JSON to a temporary file in the same directory, which is flushed to the disk and then
+ * renamed over the snapshot file, so readers never see a partially written snapshot, even after a crash.
+ * <p>
+ * Caches save their snapshots with {@link #saveInBackground(CacheSnapshot)}, from a single writer thread shared
+ * by all stores, so that writing to the disk does not delay the next poll.
+ *
+ * @param <V> the type of values
+ */
+public class CacheSnapshotStore<V> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CacheSnapshotStore.class);
+
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("cache-snapshot-writer-%s").setDaemon(true).build());
+
+    private final Path file;
+    private final JavaType snapshotType;
+    private final AtomicReference<CacheSnapshot<V>> pending = new AtomicReference<>();
+
+    private CacheSnapshotStore(Path file, Class<V> valueType) {
+        this.file = requireNonNull(file, "file must not be null").toAbsolutePath();
+        this.snapshotType = Jackson.MAPPER.getTypeFactory()
+                .constructParametricType(CacheSnapshot.class, requireNonNull(valueType, "valueType must not be null"));
+    }
+
+    /**
+     * Create a store backed by the given file.
+     *
+     * @param file      the snapshot file, resolved against the current directory if it is relative; its parent
+     *                  directory is created if needed
+     * @param valueType the type of the cache values, which must be deserializable by Jackson
+     * @param <V>       the type of values
+     * @return a new store
+     */
+    public static <V> CacheSnapshotStore<V> of(Path file, Class<V> valueType) {
+        return new CacheSnapshotStore<>(file, valueType);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Read the snapshot file.
+     *
+     * @return the snapshot, or an empty Optional if there is no snapshot file or it cannot be read
+     */
+    public Optional<CacheSnapshot<V>> load() {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try {
+            CacheSnapshot<V> snapshot = Jackson.MAPPER.readValue(file.toFile(), snapshotType);
+            return Optional.of(snapshot);
+        } catch (IOException e) {
+            LOG.warn("Unable to read cache snapshot from {}; ignoring it.", file, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Atomically replace the snapshot file with the given snapshot.
+     *
+     * @param snapshot the snapshot to write
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void save(CacheSnapshot<V> snapshot) throws IOException {
+        Path directory = file.getParent();
+        Files.createDirectories(directory);
+
+        Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                Jackson.MAPPER.writerFor(snapshotType)
+                        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                        .writeValue(Channels.newOutputStream(channel), snapshot);
+                channel.force(true);
+            }
+            moveIntoPlace(tempFile);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Replace the snapshot file with the given snapshot from a background thread.
+     * <p>
+     * If a snapshot of this store is still waiting to be written, it is superseded by the given one and never
+     * written. Failures are logged.
+     *
+     * @param snapshot the snapshot to write
+     */
+    public void saveInBackground(CacheSnapshot<V> snapshot) {
+        requireNonNull(snapshot, "snapshot must not be null");
+        if (isNull(pending.getAndSet(snapshot))) {
+            WRITER.execute(this::savePending);
+        }
+    }
+
+    private void savePending() {
+        CacheSnapshot<V> snapshot = pending.getAndSet(null);
+        if (isNull(snapshot)) {
+            return;
+        }
+        try {
+            save(snapshot);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable to save cache snapshot to {}", file, e);
+        }
+    }
+
+    private void moveIntoPlace(Path tempFile) throws IOException {
+        try {
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
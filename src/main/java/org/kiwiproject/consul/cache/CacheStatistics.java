@@ -0,0 +1,116 @@
+package org.kiwiproject.consul.cache;
+
+import static java.util.Objects.isNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the statistics of the polls of a {@link ConsulCache} that are exposed through {@link CacheMetrics}.
+ * <p>
+ * Polls are recorded from the polling thread only; the statistics can be read from any thread.
+ */
+final class CacheStatistics {
+
+    /**
+     * The weight of the latest sample in the moving average of the index velocity.
+     */
+    @VisibleForTesting
+    static final double VELOCITY_ALPHA = 0.3;
+
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final Ticker ticker;
+    private final LatencyHistogram pollLatency = new LatencyHistogram();
+    private final AtomicLong successCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong changeCount = new AtomicLong();
+    private final AtomicLong lastListenerNanos = new AtomicLong();
+    private final AtomicLong maxListenerNanos = new AtomicLong();
+    private final AtomicLong totalListenerNanos = new AtomicLong();
+
+    private volatile int lastResponseSize;
+    private volatile long lastChangeNanos = NEVER;
+    private volatile double indexVelocity;
+
+    // only accessed from the polling thread
+    private BigInteger lastSampledIndex;
+    private long lastSampledNanos;
+    private boolean hasVelocity;
+
+    CacheStatistics() {
+        this(Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    CacheStatistics(Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+    void recordSuccess(long elapsedMillis, int responseSize, @Nullable BigInteger index, boolean changed) {
+        long now = ticker.read();
+        successCount.incrementAndGet();
+        pollLatency.record(elapsedMillis);
+        lastResponseSize = responseSize;
+        if (changed) {
+            changeCount.incrementAndGet();
+            lastChangeNanos = now;
+        }
+        sampleIndex(index, now);
+    }
+
+    private void sampleIndex(@Nullable BigInteger index, long now) {
+        if (isNull(index)) {
+            return;
+        }
+        if (isNull(lastSampledIndex) || index.compareTo(lastSampledIndex) < 0) {
+            // first sample, or the index went backwards: start again from this one
+            lastSampledIndex = index;
+            lastSampledNanos = now;
+            return;
+        }
+
+        long elapsedNanos = now - lastSampledNanos;
+        if (elapsedNanos <= 0) {
+            return;
+        }
+        double rate = index.subtract(lastSampledIndex).doubleValue() * 1_000_000_000 / elapsedNanos;
+        indexVelocity = hasVelocity ? VELOCITY_ALPHA * rate + (1 - VELOCITY_ALPHA) * indexVelocity : rate;
+        hasVelocity = true;
+        lastSampledIndex = index;
+        lastSampledNanos = now;
+    }
+
+    void recordFailure() {
+        failureCount.incrementAndGet();
+    }
+
+    void recordListeners(long nanos) {
+        lastListenerNanos.set(nanos);
+        maxListenerNanos.accumulateAndGet(nanos, Math::max);
+        totalListenerNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Fill in the statistics recorded by this instance.
+     */
+    CacheMetrics.Builder fill(CacheMetrics.Builder builder) {
+        long lastChange = lastChangeNanos;
+        return builder
+                .withIndexVelocity(indexVelocity)
+                .withLastResponseSize(lastResponseSize)
+                .withPollSuccessCount(successCount.get())
+                .withPollFailureCount(failureCount.get())
+                .withChangeCount(changeCount.get())
+                .withTimeSinceLastChange(lastChange == NEVER ? null : Duration.ofNanos(ticker.read() - lastChange))
+                .withListenerDurations(Duration.ofNanos(lastListenerNanos.get()),
+                        Duration.ofNanos(maxListenerNanos.get()),
+                        Duration.ofNanos(totalListenerNanos.get()))
+                .withPollLatency(pollLatency.snapshot());
+    }
+}
@@ -0,0 +1,137 @@
+package org.kiwiproject.consul.cache;
+
+import static java.util.Objects.isNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Ints;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.kiwiproject.consul.CatalogClient;
+import org.kiwiproject.consul.async.ConsulResponseCallback;
+import org.kiwiproject.consul.config.CacheConfig;
+import org.kiwiproject.consul.model.ConsulResponse;
+import org.kiwiproject.consul.model.catalog.ServiceTags;
+import org.kiwiproject.consul.option.QueryOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * A cache of the services of the catalog and their tags, as returned by {@code /v1/catalog/services}, keyed by
+ * service name.
+ * <p>
+ * Besides the map, this cache maintains an inverted index from each tag to the names of the services that carry
+ * it, so that {@link #getServicesWithTag(String)} does not need to scan every service. When the map changes, only
+ * the tags of the services that were added, removed or retagged are updated, and the new version of the index is
+ * published as a whole before listeners are notified of the new map, so readers never see a partially updated
+ * index.
+ */
+public class CatalogServicesCache extends ConsulCache<String, ServiceTags> {
+
+    private final SecondaryIndex<String, ServiceTags> servicesByTag = new SecondaryIndex<>(ServiceTags::getTags);
+
+    private CatalogServicesCache(CatalogClient catalogClient,
+                                 QueryOptions queryOptions,
+                                 int watchSeconds,
+                                 Scheduler callbackScheduler) {
+        super(ServiceTags::getServiceName,
+              (index, callback) -> {
+                  checkWatch(catalogClient.getNetworkTimeoutConfig().getClientReadTimeoutMillis(), watchSeconds);
+                  catalogClient.getServices(watchParams(index, watchSeconds, queryOptions), new ServiceTagsCallback(callback));
+              },
+              catalogClient.getConfig().getCacheConfig(),
+              catalogClient.getEventHandler(),
+              new CacheDescriptor("catalog.services"),
+              callbackScheduler);
+    }
+
+    /**
+     * Get the names of the services that carry a tag.
+     *
+     * @param tag the tag
+     * @return the names of the services, empty if no service carries the tag
+     */
+    public ImmutableSet<String> getServicesWithTag(String tag) {
+        return servicesByTag.getKeys(tag);
+    }
+
+    /**
+     * @return all the tags carried by at least one service
+     */
+    public ImmutableSet<String> getAllTags() {
+        return servicesByTag.indexedValues();
+    }
+
+    @Override
+    protected void onMapChanged(@Nullable ImmutableMap<String, ServiceTags> previous,
+                                ImmutableMap<String, ServiceTags> current) {
+        servicesByTag.update(previous, current, getEntryEquivalence());
+    }
+
+    @VisibleForTesting
+    static List<ServiceTags> toServiceTags(@Nullable Map<String, List<String>> services) {
+        if (isNull(services)) {
+            return List.of();
+        }
+        List<ServiceTags> result = new ArrayList<>(services.size());
+        for (Map.Entry<String, List<String>> entry : services.entrySet()) {
+            List<String> tags = isNull(entry.getValue()) ? List.of() : entry.getValue();
+            result.add(ServiceTags.of(entry.getKey(), tags));
+        }
+        return result;
+    }
+
+    public static CatalogServicesCache newCache(
+            final CatalogClient catalogClient,
+            final QueryOptions queryOptions,
+            final int watchSeconds,
+            final ScheduledExecutorService callbackExecutorService) {
+
+        Scheduler scheduler = createExternal(callbackExecutorService);
+        return new CatalogServicesCache(catalogClient, queryOptions, watchSeconds, scheduler);
+    }
+
+    public static CatalogServicesCache newCache(
+            final CatalogClient catalogClient,
+            final QueryOptions queryOptions,
+            final int watchSeconds) {
+
+        return new CatalogServicesCache(catalogClient, queryOptions, watchSeconds,
+                createDefault(catalogClient.getWatchScheduler()));
+    }
+
+    public static CatalogServicesCache newCache(final CatalogClient catalogClient) {
+        CacheConfig cacheConfig = catalogClient.getConfig().getCacheConfig();
+        int watchSeconds = Ints.checkedCast(cacheConfig.getWatchDuration().getSeconds());
+        return newCache(catalogClient, QueryOptions.BLANK, watchSeconds);
+    }
+
+    /**
+     * Passes the service name to tags map on to the cache as a list of {@link ServiceTags}.
+     */
+    private static class ServiceTagsCallback implements ConsulResponseCallback<Map<String, List<String>>> {
+
+        private final ConsulResponseCallback<List<ServiceTags>> callback;
+
+        ServiceTagsCallback(ConsulResponseCallback<List<ServiceTags>> callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void onComplete(ConsulResponse<Map<String, List<String>>> consulResponse) {
+            callback.onComplete(new ConsulResponse<>(toServiceTags(consulResponse.getResponse()),
+                    consulResponse.getLastContact(),
+                    consulResponse.isKnownLeader(),
+                    consulResponse.getIndex(),
+                    consulResponse.getCacheResponseInfo()));
+        }
+
+        @Override
+        public void onFailure(Throwable throwable) {
+            callback.onFailure(throwable);
+        }
+    }
+}
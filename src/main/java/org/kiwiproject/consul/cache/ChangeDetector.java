@@ -0,0 +1,100 @@
+package org.kiwiproject.consul.cache;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.Equivalence;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+/**
+ * Decides whether a freshly polled response changed the content of a {@link ConsulCache}.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public interface ChangeDetector<K, V> {
+
+    /**
+     * Decide from the {@code X-Consul-Index} values alone that a response cannot contain any change.
+     * When this returns true, the cache does not even convert the response into a map.
+     *
+     * @param previousIndex the index of the previous response, or null
+     * @param currentIndex  the index of the current response, or null
+     * @return true if the response is known to be unchanged
+     */
+    default boolean isUnchangedIndex(@Nullable BigInteger previousIndex, @Nullable BigInteger currentIndex) {
+        return false;
+    }
+
+    /**
+     * Decide whether the content of the cache changed.
+     *
+     * @param previous the previous map, or null if there is none yet
+     * @param current  the current map
+     * @return true if the maps differ
+     */
+    boolean hasChanged(@Nullable Map<K, V> previous, Map<K, V> current);
+
+    /**
+     * A detector that deep-compares the two maps using {@link Object#equals(Object)}.
+     *
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     * @return a new detector
+     */
+    static <K, V> ChangeDetector<K, V> deepEquals() {
+        return (previous, current) -> !current.equals(previous);
+    }
+
+    /**
+     * A detector that first compares the {@code X-Consul-Index} of the responses, then the sizes and keys of
+     * the maps, and finally compares the values of each key with the given equivalence, for example
+     * a {@link ModifyIndexEquivalence}.
+     *
+     * @param entryEquivalence decides whether the value of a key present in both maps is unchanged
+     * @param <K>              the type of keys
+     * @param <V>              the type of values
+     * @return a new detector
+     */
+    static <K, V> ChangeDetector<K, V> indexBased(Equivalence<? super V> entryEquivalence) {
+        return new IndexBased<>(entryEquivalence);
+    }
+
+    /**
+     * @implNote Consul only returns the same non-zero index for a blocking query when nothing changed.
+     * Zero means the endpoint did not return an index, so the content must be compared.
+     */
+    class IndexBased<K, V> implements ChangeDetector<K, V> {
+
+        private final Equivalence<? super V> entryEquivalence;
+
+        IndexBased(Equivalence<? super V> entryEquivalence) {
+            this.entryEquivalence = requireNonNull(entryEquivalence);
+        }
+
+        @Override
+        public boolean isUnchangedIndex(@Nullable BigInteger previousIndex, @Nullable BigInteger currentIndex) {
+            return nonNull(previousIndex) && nonNull(currentIndex)
+                    && currentIndex.signum() > 0
+                    && currentIndex.equals(previousIndex);
+        }
+
+        @Override
+        public boolean hasChanged(@Nullable Map<K, V> previous, Map<K, V> current) {
+            if (isNull(previous) || previous.size() != current.size()) {
+                return true;
+            }
+            for (Map.Entry<K, V> entry : current.entrySet()) {
+                V previousValue = previous.get(entry.getKey());
+                if (isNull(previousValue) || !entryEquivalence.equivalent(previousValue, entry.getValue())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.kiwiproject.consul.cache;
+
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link ConsulCache.Listener} that hands each new version of the cache map to another listener on its own
+ * {@link Executor}, so that a slow listener does not delay the polling of the cache.
+ * <p>
+ * Versions are kept in a mailbox that holds only the latest one: if the delegate is still busy when several
+ * versions arrive, it is then notified only with the most recent one, and the others are counted as dropped.
+ * The delegate is never called concurrently with itself.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @see ConsulCache#addListener(ConsulCache.Listener, Executor)
+ */
+public class CoalescingListener<K, V> implements ConsulCache.Listener<K, V> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CoalescingListener.class);
+
+    private final ConsulCache.Listener<K, V> delegate;
+    private final Executor executor;
+    private final AtomicReference<PendingVersion<K, V>> mailbox = new AtomicReference<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong lastLagNanos = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+
+    public CoalescingListener(ConsulCache.Listener<K, V> delegate, Executor executor) {
+        this.delegate = requireNonNull(delegate, "delegate must not be null");
+        this.executor = requireNonNull(executor, "executor must not be null");
+    }
+
+    public ConsulCache.Listener<K, V> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void notify(Map<K, V> newValues) {
+        PendingVersion<K, V> replaced = mailbox.getAndSet(new PendingVersion<>(newValues, System.nanoTime()));
+        if (nonNull(replaced)) {
+            droppedCount.incrementAndGet();
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * @return the number of versions the delegate has been notified with
+     */
+    public long getDeliveredVersionCount() {
+        return deliveredCount.get();
+    }
+
+    /**
+     * @return the number of versions that were replaced by a newer one before the delegate could be notified
+     */
+    public long getDroppedVersionCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Gets the time between the arrival of the most recently delivered version and the moment the delegate
+     * started processing it.
+     *
+     * @return the last dispatch lag
+     */
+    public Duration getLastDispatchLag() {
+        return Duration.ofNanos(lastLagNanos.get());
+    }
+
+    /**
+     * @return the largest dispatch lag observed so far
+     */
+    public Duration getMaxDispatchLag() {
+        return Duration.ofNanos(maxLagNanos.get());
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                LOG.warn("Executor rejected the notification of ConsulCache listener {}", delegate, e);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            PendingVersion<K, V> pending;
+            while (nonNull(pending = mailbox.getAndSet(null))) {
+                long lag = System.nanoTime() - pending.arrivalNanos;
+                lastLagNanos.set(lag);
+                maxLagNanos.accumulateAndGet(lag, Math::max);
+                try {
+                    delegate.notify(pending.values);
+                } catch (RuntimeException e) {
+                    LOG.warn("ConsulCache Listener's notify method threw an exception.", e);
+                }
+                deliveredCount.incrementAndGet();
+            }
+        } finally {
+            draining.set(false);
+        }
+
+        // a version may have arrived after the mailbox was found empty but before draining was reset
+        if (nonNull(mailbox.get())) {
+            scheduleDrain();
+        }
+    }
+
+    private static final class PendingVersion<K, V> {
+
+        private final Map<K, V> values;
+        private final long arrivalNanos;
+
+        PendingVersion(Map<K, V> values, long arrivalNanos) {
+            this.values = values;
+            this.arrivalNanos = arrivalNanos;
+        }
+    }
+}
@@ -7,11 +7,18 @@ import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Equivalence;
 import com.google.common.base.Stopwatch;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.kiwiproject.consul.async.ConsulResponseCallback;
 import org.kiwiproject.consul.config.CacheConfig;
+import org.kiwiproject.consul.config.CacheRequestBudget;
 import org.kiwiproject.consul.model.ConsulResponse;
 import org.kiwiproject.consul.monitoring.ClientEventHandler;
 import org.kiwiproject.consul.option.ImmutableQueryOptions;
@@ -24,13 +31,17 @@ import java.time.Duration;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -56,15 +67,25 @@ public class ConsulCache<K, V> implements AutoCloseable {
 
     private static final Logger LOG = LoggerFactory.getLogger(ConsulCache.class);
 
+    /**
+     * A blocking query that returns faster than this without its index moving is counted as a spin.
+     */
+    @VisibleForTesting
+    static final Duration SPIN_THRESHOLD = Duration.ofMillis(100);
+
     private final AtomicReference<BigInteger> latestIndex = new AtomicReference<>(null);
     private final AtomicLong lastContact = new AtomicLong();
     private final AtomicBoolean isKnownLeader = new AtomicBoolean();
     private final AtomicReference<ConsulResponse.CacheResponseInfo> lastCacheInfo = new AtomicReference<>(null);
     private final AtomicReference<ImmutableMap<K, V>> lastResponse = new AtomicReference<>(null);
+    private final AtomicBoolean stale = new AtomicBoolean();
+    private final AtomicLong indexResetCount = new AtomicLong();
+    private final AtomicLong indexSpinCount = new AtomicLong();
     private final AtomicReference<State> state = new AtomicReference<>(State.LATENT);
     private final CountDownLatch initLatch = new CountDownLatch(1);
     private final Scheduler scheduler;
     private final CopyOnWriteArrayList<Listener<K, V>> listeners = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<DiffListener<K, V>> diffListeners = new CopyOnWriteArrayList<>();
     private final ReentrantLock listenersStartingLock = new ReentrantLock();
     private final Stopwatch stopWatch = Stopwatch.createUnstarted();
 
@@ -73,6 +94,13 @@ public class ConsulCache<K, V> implements AutoCloseable {
     private final ConsulResponseCallback<List<V>> responseCallback;
     private final ClientEventHandler eventHandler;
     private final CacheDescriptor cacheDescriptor;
+    private final CacheRequestBudget requestBudget;
+    private volatile CacheSnapshotStore<V> snapshotStore;
+    private final Supplier<ChangeDetector<K, V>> changeDetector = Suppliers.memoize(this::getChangeDetector);
+    private final Map<String, SecondaryIndex<K, V>> indexes = new ConcurrentHashMap<>();
+    private final CacheStatistics statistics = new CacheStatistics();
+    private volatile CachePublisher<K, V, ConsulResponse<ImmutableMap<K, V>>> publisher;
+    private volatile CachePublisher<K, V, CacheDiff<K, V>> diffPublisher;
 
     protected ConsulCache(
             Function<V, K> keyConversion,
@@ -115,6 +143,7 @@ public class ConsulCache<K, V> implements AutoCloseable {
         this.eventHandler = eventHandler;
         this.cacheDescriptor = cacheDescriptor;
         this.scheduler = callbackScheduler;
+        this.requestBudget = cacheConfig.getRequestBudget().orElse(null);
 
         this.responseCallback = new DefaultConsulResponseCallback(cacheConfig);
     }
@@ -130,9 +159,13 @@ public class ConsulCache<K, V> implements AutoCloseable {
     class DefaultConsulResponseCallback implements ConsulResponseCallback<List<V>> {
 
         private final CacheConfig cacheConfig;
+        private final AdaptivePollingDelay adaptivePollingDelay;
 
         public DefaultConsulResponseCallback(CacheConfig cacheConfig) {
             this.cacheConfig = requireNonNull(cacheConfig);
+            this.adaptivePollingDelay = cacheConfig.isAdaptivePollingEnabled()
+                    ? new AdaptivePollingDelay(cacheConfig.getMinimumDurationBetweenRequests(), cacheConfig.getAdaptivePollingMaxDelay())
+                    : null;
         }
 
         @Override
@@ -142,55 +175,119 @@ public class ConsulCache<K, V> implements AutoCloseable {
             }
 
             long elapsedTime = stopWatch.elapsed(TimeUnit.MILLISECONDS);
-            updateIndex(consulResponse);
+            BigInteger previousIndex = latestIndex.get();
+            updateIndex(consulResponse, previousIndex, elapsedTime);
+            updateCacheInfo(consulResponse);
             LOG.debug("Consul cache updated for {} (index={}), request duration: {} ms",
                     cacheDescriptor, latestIndex, elapsedTime);
 
-            ImmutableMap<K, V> full = convertToMap(consulResponse);
-
-            boolean changed = !full.equals(lastResponse.get());
+            ChangeDetector<K, V> detector = changeDetector.get();
+            ImmutableMap<K, V> current = lastResponse.get();
+            boolean changed;
+            ImmutableMap<K, V> full;
+            if (nonNull(current) && detector.isUnchangedIndex(previousIndex, consulResponse.getIndex())) {
+                changed = false;
+                full = current;
+            } else {
+                full = convertToMap(consulResponse, current);
+                changed = full != current && detector.hasChanged(current, full);
+            }
             eventHandler.cachePollingSuccess(cacheDescriptor, changed, elapsedTime);
+            statistics.recordSuccess(elapsedTime, responseSize(consulResponse), latestIndex.get(), changed);
+            stale.set(false);
 
             if (changed) {
                 // changes
-                lastResponse.set(full);
+                ImmutableMap<K, V> previous = lastResponse.getAndSet(full);
                 // metadata changes
                 lastContact.set(consulResponse.getLastContact());
                 isKnownLeader.set(consulResponse.isKnownLeader());
 
-                performListenerActionOptionallyLocking(() -> notifyListeners(full));
+                performListenerActionOptionallyLocking(() -> {
+                    updateIndexes(previous, full);
+                    onMapChanged(previous, full);
+                    long listenersStartNanos = System.nanoTime();
+                    notifyListeners(full);
+                    notifyDiffListeners(previous, full);
+                    notifyPublishers();
+                    recordListenerTime(System.nanoTime() - listenersStartNanos);
+                });
+                saveSnapshot(full);
             }
 
             if (state.compareAndSet(State.STARTING, State.STARTED)) {
                 initLatch.countDown();
             }
+            eventHandler.cacheMetrics(cacheDescriptor, getMetrics());
 
             Duration timeToWait = cacheConfig.getMinimumDurationBetweenRequests();
+            if (nonNull(adaptivePollingDelay) && sendsRequests()) {
+                boolean indexMoved = !Objects.equals(previousIndex, consulResponse.getIndex());
+                timeToWait = adaptivePollingDelay.next(indexMoved);
+            }
+            Duration minimumPollingInterval = getMinimumPollingInterval();
+            if (isLongerThan(minimumPollingInterval, timeToWait)) {
+                timeToWait = minimumPollingInterval;
+            }
             Duration minimumDelayOnEmptyResult = cacheConfig.getMinimumDurationDelayOnEmptyResult();
             if (hasNullOrEmptyResponse(consulResponse) && isLongerThan(minimumDelayOnEmptyResult, timeToWait)) {
                 timeToWait = minimumDelayOnEmptyResult;
             }
             timeToWait = timeToWait.minusMillis(elapsedTime);
 
-            scheduler.schedule(ConsulCache.this::runCallback, timeToWait.toMillis(), TimeUnit.MILLISECONDS);
+            scheduleNextPoll(Math.max(0, timeToWait.toMillis()) + randomJitterMillis());
         }
 
-        private void updateIndex(ConsulResponse<List<V>> consulResponse) {
-            if (nonNull(consulResponse) && nonNull(consulResponse.getIndex())) {
-                latestIndex.set(consulResponse.getIndex());
+        /**
+         * Apply the blocking query rules of Consul to the index of a response: an index that goes backwards
+         * (for example after a snapshot restore) resets the cache, so that the next request does not block and
+         * fetches a fresh index; an index lower than 1 is clamped to 1.
+         */
+        private void updateIndex(ConsulResponse<List<V>> consulResponse, @Nullable BigInteger previousIndex, long elapsedTime) {
+            if (isNull(consulResponse) || isNull(consulResponse.getIndex())) {
+                return;
+            }
+
+            BigInteger index = consulResponse.getIndex().signum() > 0 ? consulResponse.getIndex() : BigInteger.ONE;
+            if (nonNull(previousIndex) && index.compareTo(previousIndex) < 0) {
+                indexResetCount.incrementAndGet();
+                LOG.info("Index of {} went backwards from {} to {}, resetting it", cacheDescriptor, previousIndex, index);
+                latestIndex.set(null);
+                return;
             }
+
+            if (index.equals(previousIndex) && index.compareTo(BigInteger.ONE) > 0 && elapsedTime < SPIN_THRESHOLD.toMillis()) {
+                indexSpinCount.incrementAndGet();
+                LOG.debug("Blocking query of {} returned after {} ms without the index moving from {}",
+                        cacheDescriptor, elapsedTime, index);
+            }
+            latestIndex.set(index);
         }
 
-        private void notifyListeners(ImmutableMap<K, V> newValues) {
-            for (Listener<K, V> l : listeners) {
-                try {
-                    l.notify(newValues);
-                } catch (RuntimeException e) {
-                    LOG.warn("ConsulCache Listener's notify method threw an exception.", e);
-                }
+        private long randomJitterMillis() {
+            if (!sendsRequests()) {
+                return 0;
+            }
+            long jitterMillis = cacheConfig.getPollingJitter().toMillis();
+            return jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0;
+        }
+
+        private void updateCacheInfo(ConsulResponse<List<V>> consulResponse) {
+            if (nonNull(consulResponse) && nonNull(consulResponse.getCacheResponseInfo())) {
+                lastCacheInfo.set(consulResponse.getCacheResponseInfo().orElse(null));
             }
         }
 
+        private int responseSize(ConsulResponse<List<V>> consulResponse) {
+            return hasNullOrEmptyResponse(consulResponse) ? 0 : consulResponse.getResponse().size();
+        }
+
+        private void recordListenerTime(long nanos) {
+            statistics.recordListeners(nanos);
+            eventHandler.cacheListenersNotified(cacheDescriptor, listeners.size() + diffListeners.size(),
+                    Duration.ofNanos(nanos));
+        }
+
         private boolean hasNullOrEmptyResponse(ConsulResponse<List<V>> consulResponse) {
             return isNull(consulResponse.getResponse()) || consulResponse.getResponse().isEmpty();
         }
@@ -206,13 +303,15 @@ public class ConsulCache<K, V> implements AutoCloseable {
             }
 
             eventHandler.cachePollingError(cacheDescriptor, throwable);
+            statistics.recordFailure();
+            eventHandler.cacheMetrics(cacheDescriptor, getMetrics());
             long delayMs = computeBackOffDelayMs(cacheConfig);
             String message = String.format("Error getting response from consul for %s, will retry in %d %s",
                     cacheDescriptor, delayMs, TimeUnit.MILLISECONDS);
 
             cacheConfig.getRefreshErrorLoggingConsumer().accept(LOG, message, throwable);
 
-            scheduler.schedule(ConsulCache.this::runCallback, delayMs, TimeUnit.MILLISECONDS);
+            scheduleNextPoll(delayMs);
         }
 
         private boolean isNotRunning() {
@@ -220,6 +319,126 @@ public class ConsulCache<K, V> implements AutoCloseable {
         }
     }
 
+    /**
+     * Declare a secondary index on the values of this cache, which can then be read with
+     * {@link #index(String)} or {@link #lookup(String, Object)} without scanning the map.
+     * <p>
+     * The index function returns the values under which an entry is indexed (for example the tags of a service);
+     * an entry can be indexed under any number of values, including none. The index is updated incrementally
+     * each time the map changes, for the entries that changed only, before listeners are notified.
+     *
+     * @param name          the name of the index
+     * @param indexFunction computes the indexed values of a value of the cache
+     * @throws IllegalStateException    if the cache has already been started
+     * @throws IllegalArgumentException if an index with the same name already exists
+     */
+    public void addIndex(String name, Function<? super V, ? extends Iterable<?>> indexFunction) {
+        checkArgument(nonNull(name), "name must not be null");
+        checkArgument(nonNull(indexFunction), "indexFunction must not be null");
+        checkState(state.get() == State.LATENT, "Indexes must be added before the cache is started");
+        checkArgument(isNull(indexes.putIfAbsent(name, new SecondaryIndex<>(indexFunction))),
+                "An index named %s already exists", name);
+    }
+
+    /**
+     * Get a secondary index of this cache as a multimap from each indexed value to the values of the cache.
+     * <p>
+     * The multimap is an immutable view of the index when this method is called; it is only rebuilt on the
+     * first call after the cache changed.
+     *
+     * @param name the name of the index
+     * @param <I>  the type of the indexed values
+     * @return the index
+     * @throws IllegalArgumentException if there is no index with that name
+     * @see #addIndex(String, Function)
+     */
+    public <I> ImmutableListMultimap<I, V> index(String name) {
+        return getIndex(name).asMultimap();
+    }
+
+    /**
+     * Get the values of this cache indexed under a value in a secondary index.
+     *
+     * @param name         the name of the index
+     * @param indexedValue the indexed value to look up
+     * @return the values indexed under the value, empty if there are none
+     * @throws IllegalArgumentException if there is no index with that name
+     * @see #addIndex(String, Function)
+     */
+    public ImmutableCollection<V> lookup(String name, Object indexedValue) {
+        return getIndex(name).get(indexedValue);
+    }
+
+    private SecondaryIndex<K, V> getIndex(String name) {
+        SecondaryIndex<K, V> index = indexes.get(name);
+        checkArgument(nonNull(index), "There is no index named %s", name);
+        return index;
+    }
+
+    private void updateIndexes(@Nullable ImmutableMap<K, V> previous, ImmutableMap<K, V> current) {
+        for (SecondaryIndex<K, V> index : indexes.values()) {
+            index.update(previous, current, getEntryEquivalence());
+        }
+    }
+
+    /**
+     * Called each time the map of this cache changes, before listeners are notified, so that subclasses can
+     * maintain data derived from the map. It is called from the polling thread only, never concurrently
+     * with itself.
+     * <p>
+     * The default implementation does nothing.
+     *
+     * @param previous the previous map, or null if there is none yet
+     * @param current  the new map
+     */
+    protected void onMapChanged(@Nullable ImmutableMap<K, V> previous, ImmutableMap<K, V> current) {
+        // no-op by default
+    }
+
+    private void notifyListeners(ImmutableMap<K, V> newValues) {
+        for (Listener<K, V> l : listeners) {
+            try {
+                l.notify(newValues);
+            } catch (RuntimeException e) {
+                LOG.warn("ConsulCache Listener's notify method threw an exception.", e);
+            }
+        }
+    }
+
+    private void notifyDiffListeners(ImmutableMap<K, V> previous, ImmutableMap<K, V> newValues) {
+        if (diffListeners.isEmpty()) {
+            return;
+        }
+
+        CacheDiff<K, V> diff = CacheDiff.between(previous, newValues, getEntryEquivalence());
+        if (diff.isEmpty()) {
+            return;
+        }
+        for (DiffListener<K, V> l : diffListeners) {
+            try {
+                l.notify(diff);
+            } catch (RuntimeException e) {
+                LOG.warn("ConsulCache DiffListener's notify method threw an exception.", e);
+            }
+        }
+    }
+
+    private void notifyPublishers() {
+        CachePublisher<K, V, ConsulResponse<ImmutableMap<K, V>>> snapshots = publisher;
+        CachePublisher<K, V, CacheDiff<K, V>> diffs = diffPublisher;
+        if (isNull(snapshots) && isNull(diffs)) {
+            return;
+        }
+
+        ConsulResponse<ImmutableMap<K, V>> response = getMapWithMetadata();
+        if (nonNull(snapshots)) {
+            snapshots.publish(response);
+        }
+        if (nonNull(diffs)) {
+            diffs.publish(response);
+        }
+    }
+
     static long computeBackOffDelayMs(CacheConfig cacheConfig) {
         return cacheConfig.getMinimumBackOffDelay().toMillis() +
                 Math.round(Math.random() * (cacheConfig.getMaximumBackOffDelay().minus(cacheConfig.getMinimumBackOffDelay()).toMillis()));
@@ -228,23 +447,119 @@ public class ConsulCache<K, V> implements AutoCloseable {
     public void start() {
         checkState(state.compareAndSet(State.LATENT, State.STARTING),"Cannot transition from state %s to %s", state.get(), State.STARTING);
         eventHandler.cacheStart(cacheDescriptor);
-        runCallback();
+        preloadSnapshot();
+        runCallbackWithinBudget();
+    }
+
+    private void scheduleNextPoll(long delayMs) {
+        scheduler.schedule(this::runCallbackWithinBudget, Math.max(0, delayMs), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reserve a request from the budget when the poll is due, so that the delay between polls counts towards
+     * the budget: the poll is only delayed further if the budget is still exhausted at that time.
+     */
+    private void runCallbackWithinBudget() {
+        if (!isRunning()) {
+            return;
+        }
+        long budgetDelayMs = reserveRequest();
+        if (budgetDelayMs > 0) {
+            scheduler.schedule(this::runCallback, budgetDelayMs, TimeUnit.MILLISECONDS);
+        } else {
+            runCallback();
+        }
+    }
+
+    /**
+     * @return the number of milliseconds the request budget requires the poll to wait
+     */
+    private long reserveRequest() {
+        return isNull(requestBudget) || !sendsRequests() ? 0 : requestBudget.reserve();
+    }
+
+    /**
+     * Persist the map of this cache, along with its index and metadata, every time it changes, and preload
+     * the last persisted map when the cache is started.
+     * <p>
+     * A preloaded map is served immediately: {@link #awaitInitialized(long, TimeUnit)} returns, listeners are
+     * notified, and {@link #getMapWithMetadata()} reports it as {@link ConsulResponse#isStale() stale} until
+     * the first successful poll. Polling resumes blocking from the persisted index.
+     * <p>
+     * Changes are written in the background, so a snapshot that is superseded before it is written is dropped.
+     *
+     * @param snapshotStore the store to use, or null to disable persistence
+     * @throws IllegalStateException if the cache has already been started
+     */
+    public void setSnapshotStore(@Nullable CacheSnapshotStore<V> snapshotStore) {
+        checkState(state.get() == State.LATENT, "Snapshot store must be set before the cache is started");
+        this.snapshotStore = snapshotStore;
+    }
+
+    private void preloadSnapshot() {
+        CacheSnapshotStore<V> store = snapshotStore;
+        if (isNull(store)) {
+            return;
+        }
+
+        store.load().ifPresent(snapshot -> {
+            ImmutableMap<K, V> map = convertToMap(new ConsulResponse<>(snapshot.getValues(),
+                    snapshot.getLastContact(), snapshot.isKnownLeader(), snapshot.getIndex(), Optional.empty()));
+            LOG.info("Preloaded {} entries at index {} for {} from {}",
+                    map.size(), snapshot.getIndex(), cacheDescriptor, store.getFile());
+
+            latestIndex.set(snapshot.getIndex());
+            lastContact.set(snapshot.getLastContact());
+            isKnownLeader.set(snapshot.isKnownLeader());
+            stale.set(true);
+            lastResponse.set(map);
+
+            performListenerActionOptionallyLocking(() -> {
+                updateIndexes(null, map);
+                onMapChanged(null, map);
+                notifyListeners(map);
+                notifyDiffListeners(null, map);
+                notifyPublishers();
+            });
+            initLatch.countDown();
+        });
+    }
+
+    private void saveSnapshot(ImmutableMap<K, V> map) {
+        CacheSnapshotStore<V> store = snapshotStore;
+        if (isNull(store)) {
+            return;
+        }
+
+        store.saveInBackground(new CacheSnapshot<>(latestIndex.get(), lastContact.get(), isKnownLeader.get(),
+                System.currentTimeMillis(), map.values().asList()));
     }
 
     public void stop() {
+        // set the state first, so that the metrics of a poll completing from now on report the cache as stopped
+        State previous = state.getAndSet(State.STOPPED);
         try {
             eventHandler.cacheStop(cacheDescriptor);
         } catch (RejectedExecutionException ree) {
             LOG.error("Unable to propagate cache stop event. ", ree);
         }
 
-        State previous = state.getAndSet(State.STOPPED);
         if (stopWatch.isRunning()) {
             stopWatch.stop();
         }
         if (previous != State.STOPPED) {
             scheduler.shutdownNow();
         }
+        completePublishers();
+    }
+
+    private synchronized void completePublishers() {
+        if (nonNull(publisher)) {
+            publisher.complete();
+        }
+        if (nonNull(diffPublisher)) {
+            diffPublisher.complete();
+        }
     }
 
     @Override
@@ -271,25 +586,157 @@ public class ConsulCache<K, V> implements AutoCloseable {
         return lastResponse.get();
     }
 
+    /**
+     * Gets the number of times the index returned by Consul went backwards, which made the cache reset its
+     * index and fetch the data again without blocking.
+     *
+     * @return the number of index resets
+     */
+    public long getIndexResetCount() {
+        return indexResetCount.get();
+    }
+
+    /**
+     * Gets the number of blocking queries that returned almost immediately without the index moving, which
+     * usually means that the cache would be polling in a tight loop without its minimum delay between requests.
+     *
+     * @return the number of spins
+     */
+    public long getIndexSpinCount() {
+        return indexSpinCount.get();
+    }
+
+    /**
+     * Get the current map along with the metadata of the response it was built from.
+     * <p>
+     * When the cache was created with {@link org.kiwiproject.consul.option.QueryOptions#cached()} (or any
+     * {@link org.kiwiproject.consul.option.ConsistencyMode} created by
+     * {@link org.kiwiproject.consul.option.ConsistencyMode#createCachedConsistencyWithMaxAgeAndStale(Optional, Optional)}),
+     * the returned response also tells whether the last poll was served from the agent cache, and how old the
+     * cached data was. The cache information is refreshed on every poll, even when the map does not change.
+     *
+     * @return the current map and its metadata
+     */
     public ConsulResponse<ImmutableMap<K,V>> getMapWithMetadata() {
-        return new ConsulResponse<>(lastResponse.get(), lastContact.get(), isKnownLeader.get(), latestIndex.get(), Optional.ofNullable(lastCacheInfo.get()));
+        return new ConsulResponse<>(lastResponse.get(), lastContact.get(), isKnownLeader.get(), latestIndex.get(), Optional.ofNullable(lastCacheInfo.get()), stale.get());
+    }
+
+    /**
+     * Get the operational metrics of this cache: size, index and its velocity, poll counts and latencies,
+     * listener time, time since the last change, and the Consul metadata of the last change.
+     * <p>
+     * The same metrics are sent to {@link org.kiwiproject.consul.monitoring.ClientEventCallback#onCacheMetrics}
+     * after each poll.
+     *
+     * @return the current metrics
+     */
+    public CacheMetrics getMetrics() {
+        ImmutableMap<K, V> map = lastResponse.get();
+        return statistics.fill(CacheMetrics.builder())
+                .withCacheDescriptor(cacheDescriptor)
+                .withState(state.get())
+                .withEntryCount(isNull(map) ? 0 : map.size())
+                .withIndex(latestIndex.get())
+                .withIndexResetCount(indexResetCount.get())
+                .withIndexSpinCount(indexSpinCount.get())
+                .withLastContactMillis(lastContact.get())
+                .withKnownLeader(isKnownLeader.get())
+                .build();
     }
 
     @VisibleForTesting
     ImmutableMap<K, V> convertToMap(final ConsulResponse<List<V>> response) {
+        return convertToMap(response, null);
+    }
+
+    /**
+     * Convert a response into a map, carrying forward the instances of the previous map for the entries that
+     * are {@link #getEntryEquivalence() equivalent} to their previous version, so that only changed entries are
+     * new objects and the freshly deserialized duplicates can be collected young. When every entry is carried
+     * forward, the previous map itself is returned.
+     */
+    @VisibleForTesting
+    ImmutableMap<K, V> convertToMap(final ConsulResponse<List<V>> response, @Nullable ImmutableMap<K, V> previous) {
         if (isNull(response) || isNull(response.getResponse()) || response.getResponse().isEmpty()) {
             return ImmutableMap.of();
         }
 
+        List<V> values = response.getResponse();
+        Equivalence<? super V> equivalence = getEntryEquivalence();
+        ImmutableMap.Builder<K, V> builder = ImmutableMap.builderWithExpectedSize(values.size());
+        int reusedCount = 0;
+        for (V v : values) {
+            K key = keyConversion.apply(v);
+            if (nonNull(key)) {
+                V previousValue = equivalentPreviousValue(previous, key, v, equivalence);
+                if (nonNull(previousValue)) {
+                    reusedCount++;
+                    builder.put(key, previousValue);
+                } else {
+                    builder.put(key, compactValue(v));
+                }
+            }
+        }
+
+        ImmutableMap<K, V> map;
+        try {
+            map = builder.buildOrThrow();
+        } catch (IllegalArgumentException e) {
+            return convertToMapSkippingDuplicates(values, previous, equivalence);
+        }
+        return nonNull(previous) && reusedCount == previous.size() && reusedCount == map.size() ? previous : map;
+    }
+
+    @Nullable
+    private static <K, V> V equivalentPreviousValue(@Nullable ImmutableMap<K, V> previous,
+                                                    K key,
+                                                    V value,
+                                                    Equivalence<? super V> equivalence) {
+        if (isNull(previous)) {
+            return null;
+        }
+        V previousValue = previous.get(key);
+        return nonNull(previousValue) && equivalence.equivalent(previousValue, value) ? previousValue : null;
+    }
+
+    private V reuseOrCompact(@Nullable ImmutableMap<K, V> previous,
+                             K key,
+                             V value,
+                             Equivalence<? super V> equivalence) {
+        V previousValue = equivalentPreviousValue(previous, key, value, equivalence);
+        return nonNull(previousValue) ? previousValue : compactValue(value);
+    }
+
+    /**
+     * Called for each value of a response that is not carried forward from the previous map, before it is put
+     * in the map, so that subclasses can replace it with an equal value that takes less memory, for instance by
+     * sharing the parts it has in common with other values.
+     * <p>
+     * The default implementation returns the value itself.
+     *
+     * @param value a new or modified value
+     * @return a value equal to the given one
+     */
+    protected V compactValue(V value) {
+        return value;
+    }
+
+    /**
+     * Slow path of {@link #convertToMap(ConsulResponse, ImmutableMap)}, only taken when the response contains
+     * duplicate keys, so that the common case does not need to track the keys seen so far.
+     */
+    private ImmutableMap<K, V> convertToMapSkippingDuplicates(List<V> values,
+                                                              @Nullable ImmutableMap<K, V> previous,
+                                                              Equivalence<? super V> equivalence) {
         ImmutableMap.Builder<K, V> builder = ImmutableMap.builder();
         Set<K> keySet = new HashSet<>();
-        for (V v : response.getResponse()) {
+        for (V v : values) {
             K key = keyConversion.apply(v);
             if (nonNull(key)) {
                 if (keySet.contains(key)) {
                     LOG.warn("Duplicate service encountered. May differ by tags. Try using more specific tags? {}", key);
                 } else {
-                    builder.put(key, v);
+                    builder.put(key, reuseOrCompact(previous, key, v, equivalence));
                     keySet.add(key);
                 }
             }
@@ -298,20 +745,96 @@ public class ConsulCache<K, V> implements AutoCloseable {
         return builder.build();
     }
 
+    /**
+     * Gets the equivalence used to decide whether the value of a key was modified between two versions
+     * of the map, when computing the {@link CacheDiff} given to {@link DiffListener}s.
+     * <p>
+     * This default uses {@link Object#equals(Object)}. Caches whose values carry a Consul modify index
+     * override it to compare only that index.
+     *
+     * @return the equivalence for values of the same key
+     */
+    protected Equivalence<? super V> getEntryEquivalence() {
+        return Equivalence.equals();
+    }
+
+    /**
+     * Gets the {@link ChangeDetector} that decides whether a polled response changed this cache, and
+     * therefore whether listeners are notified.
+     * <p>
+     * This default skips responses whose {@code X-Consul-Index} did not move, and otherwise compares
+     * the values of each key using {@link #getEntryEquivalence()}.
+     *
+     * @return the change detector for this cache
+     */
+    protected ChangeDetector<K, V> getChangeDetector() {
+        return ChangeDetector.indexBased(getEntryEquivalence());
+    }
+
+    /**
+     * Gets the minimum time between the start of two consecutive polls, whatever the cache configuration says.
+     * <p>
+     * The default is zero, which is appropriate for endpoints that support blocking queries, since Consul then
+     * holds each request until something changes. Caches on endpoints that answer immediately override this so
+     * that they are not polled in a tight loop.
+     *
+     * @return the minimum polling interval
+     */
+    protected Duration getMinimumPollingInterval() {
+        return Duration.ZERO;
+    }
+
+    /**
+     * Tell whether each poll of this cache sends a request to Consul. Caches fed by a watch shared with other
+     * caches return false: they neither reserve from the {@link CacheConfig#getRequestBudget() request budget}
+     * nor apply adaptive polling delays and jitter, which are paid once by the shared watch.
+     * <p>
+     * The default implementation returns true.
+     *
+     * @return true if polls send requests, false otherwise
+     */
+    protected boolean sendsRequests() {
+        return true;
+    }
+
     protected static QueryOptions watchParams(BigInteger index, int blockSeconds, QueryOptions queryOptions) {
-        checkArgument(queryOptions.getIndex().isEmpty() && queryOptions.getWait().isEmpty(),
-                "Index and wait cannot be overridden");
+        checkArgument(queryOptions.getIndex().isEmpty() && queryOptions.getHash().isEmpty()
+                        && queryOptions.getWait().isEmpty(),
+                "Index, hash and wait cannot be overridden");
 
         ImmutableQueryOptions.Builder builder =  ImmutableQueryOptions.builder()
-                .from(watchDefaultParams(index, blockSeconds))
-                .token(queryOptions.getToken())
-                .consistencyMode(queryOptions.getConsistencyMode())
-                .near(queryOptions.getNear())
-                .datacenter(queryOptions.getDatacenter());
-        for (String tag : queryOptions.getTag()) {
-            builder.addTag(tag);
-        }
-        return builder.build();
+                .from(watchDefaultParams(index, blockSeconds));
+        return copyWatchOptions(builder, queryOptions);
+    }
+
+    /**
+     * Build the options of a blocking query on an endpoint that blocks on a content hash (as returned in the
+     * {@code X-Consul-ContentHash} header or in the response body) rather than on an index.
+     *
+     * @param hash         the hash of the last response, or null for the first request
+     * @param blockSeconds the maximum time to block
+     * @param queryOptions the other options to send
+     * @return the options of the query
+     */
+    protected static QueryOptions hashWatchParams(@Nullable String hash, int blockSeconds, QueryOptions queryOptions) {
+        checkArgument(queryOptions.getHash().isEmpty() && queryOptions.getIndex().isEmpty()
+                        && queryOptions.getWait().isEmpty(),
+                "Hash, index and wait cannot be overridden");
+
+        ImmutableQueryOptions.Builder builder = isNull(hash) ?
+                ImmutableQueryOptions.builder() :
+                QueryOptions.blockSeconds(blockSeconds, hash);
+        return copyWatchOptions(builder, queryOptions);
+    }
+
+    /**
+     * Copy all the options of the cache into the options of a blocking query, so that filtering options such
+     * as the {@code filter} expression, the namespace, the node metadata and the tags are applied by the
+     * servers instead of downloading every entry. The index, hash and wait of the blocking query are already
+     * set in the builder, and are absent from the options of the cache.
+     */
+    private static QueryOptions copyWatchOptions(ImmutableQueryOptions.Builder builder, QueryOptions queryOptions) {
+        return builder.from(queryOptions).build();
     }
 
     private static QueryOptions watchDefaultParams(final BigInteger index, final int blockSeconds) {
@@ -326,6 +849,16 @@ public class ConsulCache<K, V> implements AutoCloseable {
         return new DefaultScheduler();
     }
 
+    /**
+     * Create the scheduler for a cache built by one of the factory methods that do not take an executor.
+     *
+     * @param sharedScheduler the watch scheduler of the client, or null to give the cache its own thread
+     * @return a view on {@code sharedScheduler} if not null, otherwise a new single-threaded scheduler
+     */
+    protected static Scheduler createDefault(@Nullable SharedWatchScheduler sharedScheduler) {
+        return isNull(sharedScheduler) ? createDefault() : sharedScheduler.newCacheScheduler();
+    }
+
     protected static Scheduler createExternal(ScheduledExecutorService executor) {
         return new ExternalScheduler(executor);
     }
@@ -350,6 +883,17 @@ public class ConsulCache<K, V> implements AutoCloseable {
         void notify(Map<K, V> newValues);
     }
 
+    /**
+     * Implementers can register a diff listener to receive only the
+     * entries that were added, removed or modified when the map changes
+     *
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     */
+    public interface DiffListener<K, V> {
+        void notify(CacheDiff<K, V> diff);
+    }
+
     /**
      * Add a new listener.
      *
@@ -361,7 +905,7 @@ public class ConsulCache<K, V> implements AutoCloseable {
     public boolean addListener(Listener<K, V> listener) {
         performListenerActionOptionallyLocking(() -> {
             listeners.add(listener);
-            if (state.get() == State.STARTED) {
+            if (state.get() == State.STARTED || stale.get()) {
                 try {
                     listener.notify(lastResponse.get());
                 } catch (RuntimeException e) {
@@ -373,6 +917,23 @@ public class ConsulCache<K, V> implements AutoCloseable {
         return true;
     }
 
+    /**
+     * Add a new listener that is notified on the given executor instead of the polling thread.
+     * <p>
+     * A listener that is still busy when new versions of the map arrive is only notified with the latest
+     * one. The returned {@link CoalescingListener} exposes dispatch lag and dropped-version counters, and is
+     * the instance to pass to {@link #removeListener(Listener)}.
+     *
+     * @param listener the listener to add
+     * @param executor the executor on which the listener is notified
+     * @return the listener that was registered with this cache
+     */
+    public CoalescingListener<K, V> addListener(Listener<K, V> listener, Executor executor) {
+        var coalescingListener = new CoalescingListener<>(listener, executor);
+        addListener(coalescingListener);
+        return coalescingListener;
+    }
+
     private void performListenerActionOptionallyLocking(Runnable action) {
         var locked = false;
         if (state.get() == State.STARTING) {
@@ -396,27 +957,128 @@ public class ConsulCache<K, V> implements AutoCloseable {
         return listeners.remove(listener);
     }
 
+    /**
+     * Add a new diff listener.
+     * <p>
+     * If the cache is already started, or serving a preloaded snapshot, the listener is immediately notified
+     * with a diff in which every current entry is added.
+     *
+     * @param listener the diff listener to add
+     * @return true to indicate the listener was added
+     */
+    public boolean addDiffListener(DiffListener<K, V> listener) {
+        performListenerActionOptionallyLocking(() -> {
+            diffListeners.add(listener);
+            if (state.get() == State.STARTED || stale.get()) {
+                try {
+                    listener.notify(CacheDiff.between(null, lastResponse.get(), getEntryEquivalence()));
+                } catch (RuntimeException e) {
+                    LOG.warn("ConsulCache DiffListener's notify method threw an exception.", e);
+                }
+            }
+        });
+
+        return true;
+    }
+
+    public List<DiffListener<K, V>> getDiffListeners() {
+        return List.copyOf(diffListeners);
+    }
+
+    public boolean removeDiffListener(DiffListener<K, V> listener) {
+        return diffListeners.remove(listener);
+    }
+
+    /**
+     * Get a {@link java.util.concurrent.Flow.Publisher} of the versions of the map of this cache, along with
+     * their metadata.
+     * <p>
+     * All the subscribers share the polling of this cache, and each of them is only sent the latest version
+     * when it requests more, so a slow subscriber never causes versions to be buffered. Subscribers are
+     * completed when this cache is stopped. The same publisher is returned on every call.
+     *
+     * @return the publisher of the versions of the map
+     * @see CachePublisher
+     */
+    public synchronized CachePublisher<K, V, ConsulResponse<ImmutableMap<K, V>>> publisher() {
+        if (isNull(publisher)) {
+            publisher = CachePublisher.snapshots(this);
+            completeIfStopped(publisher);
+        }
+        return publisher;
+    }
+
+    /**
+     * Get a {@link java.util.concurrent.Flow.Publisher} of the changes of the map of this cache.
+     * <p>
+     * A new subscriber is first sent a diff in which every current entry is added. A subscriber that requests
+     * more after several versions is sent a single diff between the last version it received and the latest
+     * one. Otherwise, this publisher behaves like {@link #publisher()}.
+     *
+     * @return the publisher of the changes of the map
+     * @see CachePublisher
+     */
+    public synchronized CachePublisher<K, V, CacheDiff<K, V>> diffPublisher() {
+        if (isNull(diffPublisher)) {
+            diffPublisher = CachePublisher.diffs(this, getEntryEquivalence());
+            completeIfStopped(diffPublisher);
+        }
+        return diffPublisher;
+    }
+
+    private void completeIfStopped(CachePublisher<K, V, ?> cachePublisher) {
+        if (state.get() == State.STOPPED) {
+            cachePublisher.complete();
+        }
+    }
+
     public State getState() {
         return state.get();
     }
 
-    protected static class Scheduler {
-        public Scheduler(ScheduledExecutorService executor) {
+    /**
+     * Schedules the polling callbacks of a {@link ConsulCache}.
+     * <p>
+     * Each cache owns one instance. Implementations may be backed by a dedicated executor, by an
+     * externally managed executor, or by a {@link SharedWatchScheduler} that is shared among many caches.
+     */
+    public interface Scheduler {
+
+        /**
+         * Schedule a task to run once after the given delay.
+         *
+         * @param r     the task to run
+         * @param delay the delay, zero or negative to run as soon as possible
+         * @param unit  the unit of the delay
+         */
+        void schedule(Runnable r, long delay, TimeUnit unit);
+
+        /**
+         * Cancel all pending tasks of this scheduler, and release any resources it exclusively owns.
+         */
+        void shutdownNow();
+    }
+
+    private static class ExecutorScheduler implements Scheduler {
+
+        private final ScheduledExecutorService executor;
+
+        ExecutorScheduler(ScheduledExecutorService executor) {
             this.executor = executor;
         }
 
-        void schedule(Runnable r, long delay, TimeUnit unit) {
+        @Override
+        public void schedule(Runnable r, long delay, TimeUnit unit) {
             executor.schedule(r, delay, unit);
         }
 
-        void shutdownNow() {
+        @Override
+        public void shutdownNow() {
             executor.shutdownNow();
         }
-
-        private final ScheduledExecutorService executor;
     }
 
-    private static class DefaultScheduler extends Scheduler {
+    private static class DefaultScheduler extends ExecutorScheduler {
         public DefaultScheduler() {
             super(Executors.newSingleThreadScheduledExecutor(
                 new ThreadFactoryBuilder()
@@ -426,7 +1088,7 @@ public class ConsulCache<K, V> implements AutoCloseable {
         }
     }
 
-    private static class ExternalScheduler extends Scheduler {
+    private static class ExternalScheduler extends ExecutorScheduler {
 
         public ExternalScheduler(ScheduledExecutorService executor) {
             super(executor);
@@ -0,0 +1,245 @@
+package org.kiwiproject.consul.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Ordering;
+import com.google.common.primitives.Ints;
+import org.kiwiproject.consul.CoordinateClient;
+import org.kiwiproject.consul.config.CacheConfig;
+import org.kiwiproject.consul.model.coordinate.Coord;
+import org.kiwiproject.consul.model.coordinate.Coordinate;
+import org.kiwiproject.consul.model.health.ServiceHealth;
+import org.kiwiproject.consul.option.QueryOptions;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+/**
+ * A cache of the network coordinates of the nodes of a datacenter, keyed by node name, which estimates the
+ * round trip times between nodes locally.
+ * <p>
+ * Consul maintains a <a href="https://developer.hashicorp.com/consul/docs/architecture/coordinates">Vivaldi
+ * network coordinate</a> for every node, from which the round trip time between any two nodes of the same
+ * datacenter can be estimated without any request. This cache keeps the coordinates current with a blocking
+ * query on {@code /v1/coordinate/nodes}, so that instances can be ordered nearest-first, as with
+ * {@code near=_agent}, without a round trip to the servers for each lookup.
+ * <p>
+ * Nodes without a known coordinate are considered farther than all the others.
+ */
+public class CoordinateCache extends ConsulCache<String, Coordinate> {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private CoordinateCache(CoordinateClient coordinateClient,
+                            QueryOptions queryOptions,
+                            int watchSeconds,
+                            Scheduler callbackScheduler) {
+        super(Coordinate::getNode,
+              (index, callback) -> {
+                  checkWatch(coordinateClient.getNetworkTimeoutConfig().getClientReadTimeoutMillis(), watchSeconds);
+                  coordinateClient.getNodes(watchParams(index, watchSeconds, queryOptions), callback);
+              },
+              coordinateClient.getConfig().getCacheConfig(),
+              coordinateClient.getEventHandler(),
+              new CacheDescriptor("coordinate.nodes"),
+              callbackScheduler);
+    }
+
+    public static CoordinateCache newCache(
+            final CoordinateClient coordinateClient,
+            final QueryOptions queryOptions,
+            final int watchSeconds,
+            final ScheduledExecutorService callbackExecutorService) {
+
+        Scheduler scheduler = createExternal(callbackExecutorService);
+        return new CoordinateCache(coordinateClient, queryOptions, watchSeconds, scheduler);
+    }
+
+    public static CoordinateCache newCache(
+            final CoordinateClient coordinateClient,
+            final QueryOptions queryOptions,
+            final int watchSeconds) {
+        return new CoordinateCache(coordinateClient, queryOptions, watchSeconds,
+                createDefault(coordinateClient.getWatchScheduler()));
+    }
+
+    public static CoordinateCache newCache(final CoordinateClient coordinateClient) {
+        CacheConfig cacheConfig = coordinateClient.getConfig().getCacheConfig();
+        int watchSeconds = Ints.checkedCast(cacheConfig.getWatchDuration().getSeconds());
+        return newCache(coordinateClient, QueryOptions.BLANK, watchSeconds);
+    }
+
+    /**
+     * Estimate the round trip time between two network coordinates, the same way Consul does: the distance
+     * between the two vectors plus both heights, plus both adjustments unless that makes the estimate negative.
+     *
+     * @param from the coordinate of one node
+     * @param to   the coordinate of the other node
+     * @return the estimated round trip time
+     * @throws IllegalArgumentException if the coordinates do not have the same dimensions
+     */
+    public static Duration estimateRtt(Coord from, Coord to) {
+        return Duration.ofNanos(Math.round(estimateRttSeconds(from, to) * NANOS_PER_SECOND));
+    }
+
+    private static double estimateRttSeconds(Coord from, Coord to) {
+        double[] fromVec = from.getVec();
+        double[] toVec = to.getVec();
+        checkArgument(fromVec.length == toVec.length,
+                "Coordinates have different dimensions: %s and %s", fromVec.length, toVec.length);
+
+        double sumOfSquares = 0;
+        for (int i = 0; i < fromVec.length; i++) {
+            double difference = fromVec[i] - toVec[i];
+            sumOfSquares += difference * difference;
+        }
+        double distance = Math.sqrt(sumOfSquares) + from.getHeight() + to.getHeight();
+        double adjustedDistance = distance + from.getAdjustment() + to.getAdjustment();
+        return adjustedDistance > 0 ? adjustedDistance : distance;
+    }
+
+    /**
+     * Estimate the round trip time between two nodes from their current coordinates.
+     *
+     * @param fromNode the name of one node
+     * @param toNode   the name of the other node
+     * @return the estimated round trip time, or empty if the coordinate of either node is unknown
+     */
+    public Optional<Duration> estimateRtt(String fromNode, String toNode) {
+        Map<String, Coordinate> coordinates = coordinates();
+        Coordinate from = coordinates.get(fromNode);
+        Coordinate to = coordinates.get(toNode);
+        if (isNull(from) || isNull(to)) {
+            return Optional.empty();
+        }
+        return Optional.of(estimateRtt(from.getCoord(), to.getCoord()));
+    }
+
+    /**
+     * Order items by increasing estimated round trip time from a node. Items on nodes without a known
+     * coordinate come last, and items at the same distance keep their relative order.
+     *
+     * @param fromNode     the name of the node to measure from, typically the node of the local agent
+     * @param items        the items to order
+     * @param nodeFunction gives the name of the node of an item
+     * @param <T>          the type of items
+     * @return a new list with the items, nearest first
+     */
+    public <T> List<T> sortByRtt(String fromNode, Collection<T> items, Function<? super T, String> nodeFunction) {
+        List<RankedItem<T>> ranked = rank(fromNode, items, nodeFunction);
+        ranked.sort(RankedItem.byRtt());
+        return unwrap(ranked);
+    }
+
+    /**
+     * Get the items on the nodes nearest to a node, without ordering all of them.
+     *
+     * @param fromNode     the name of the node to measure from, typically the node of the local agent
+     * @param items        the items to choose from
+     * @param nodeFunction gives the name of the node of an item
+     * @param k            the maximum number of items to return
+     * @param <T>          the type of items
+     * @return the {@code k} nearest items (or all the items if there are fewer), nearest first
+     * @see #sortByRtt(String, Collection, Function)
+     */
+    public <T> List<T> nearest(String fromNode, Collection<T> items, Function<? super T, String> nodeFunction, int k) {
+        checkArgument(k >= 0, "k must not be negative");
+        List<RankedItem<T>> ranked = rank(fromNode, items, nodeFunction);
+        return unwrap(Ordering.from(RankedItem.<T>byRtt()).leastOf(ranked, k));
+    }
+
+    /**
+     * Order the current instances of a {@link ServiceHealthCache} by increasing estimated round trip time from
+     * a node.
+     *
+     * @param fromNode the name of the node to measure from, typically the node of the local agent
+     * @param cache    the cache of the instances
+     * @return the instances, nearest first
+     */
+    public List<ServiceHealth> sortByRtt(String fromNode, ServiceHealthCache cache) {
+        return sortByRtt(fromNode, instances(cache), CoordinateCache::nodeOf);
+    }
+
+    /**
+     * Get the current instances of a {@link ServiceHealthCache} on the nodes nearest to a node.
+     *
+     * @param fromNode the name of the node to measure from, typically the node of the local agent
+     * @param cache    the cache of the instances
+     * @param k        the maximum number of instances to return
+     * @return the {@code k} nearest instances, nearest first
+     */
+    public List<ServiceHealth> nearest(String fromNode, ServiceHealthCache cache, int k) {
+        return nearest(fromNode, instances(cache), CoordinateCache::nodeOf, k);
+    }
+
+    private static Collection<ServiceHealth> instances(ServiceHealthCache cache) {
+        ImmutableMap<ServiceHealthKey, ServiceHealth> map = cache.getMap();
+        return isNull(map) ? List.of() : map.values();
+    }
+
+    private static String nodeOf(ServiceHealth serviceHealth) {
+        return serviceHealth.getNode().getNode();
+    }
+
+    private Map<String, Coordinate> coordinates() {
+        ImmutableMap<String, Coordinate> map = getMap();
+        return isNull(map) ? Map.of() : map;
+    }
+
+    /**
+     * Pair each item with its estimated round trip time, computing it once per node.
+     */
+    private <T> List<RankedItem<T>> rank(String fromNode, Collection<T> items, Function<? super T, String> nodeFunction) {
+        checkArgument(nonNull(fromNode), "fromNode must not be null");
+        Map<String, Coordinate> coordinates = coordinates();
+        Coordinate from = coordinates.get(fromNode);
+
+        Map<String, Double> rttByNode = new HashMap<>();
+        List<RankedItem<T>> ranked = new ArrayList<>(items.size());
+        for (T item : items) {
+            String node = nodeFunction.apply(item);
+            double rtt = rttByNode.computeIfAbsent(node, name -> {
+                Coordinate to = coordinates.get(name);
+                return isNull(from) || isNull(to) ?
+                        Double.POSITIVE_INFINITY :
+                        estimateRttSeconds(from.getCoord(), to.getCoord());
+            });
+            ranked.add(new RankedItem<>(item, rtt));
+        }
+        return ranked;
+    }
+
+    private static <T> List<T> unwrap(List<RankedItem<T>> ranked) {
+        List<T> result = new ArrayList<>(ranked.size());
+        for (RankedItem<T> rankedItem : ranked) {
+            result.add(rankedItem.item);
+        }
+        return result;
+    }
+
+    private static final class RankedItem<T> {
+
+        private final T item;
+        private final double rtt;
+
+        RankedItem(T item, double rtt) {
+            this.item = item;
+            this.rtt = rtt;
+        }
+
+        static <T> Comparator<RankedItem<T>> byRtt() {
+            return Comparator.comparingDouble(ranked -> ranked.rtt);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.kiwiproject.consul.cache;
 
+import com.google.common.base.Equivalence;
 import com.google.common.primitives.Ints;
 import org.kiwiproject.consul.HealthClient;
 import org.kiwiproject.consul.config.CacheConfig;
@@ -11,6 +12,9 @@ import java.util.function.Function;
 
 public class HealthCheckCache extends ConsulCache<String, HealthCheck> {
 
+    private static final Equivalence<HealthCheck> MODIFY_INDEX_EQUIVALENCE =
+            ModifyIndexEquivalence.of(HealthCheck::getModifyIndex);
+
     private HealthCheckCache(HealthClient healthClient,
                              org.kiwiproject.consul.model.State checkState,
                              int watchSeconds,
@@ -29,6 +33,11 @@ public class HealthCheckCache extends ConsulCache<String, HealthCheck> {
             callbackScheduler);
     }
 
+    @Override
+    protected Equivalence<? super HealthCheck> getEntryEquivalence() {
+        return MODIFY_INDEX_EQUIVALENCE;
+    }
+
     /**
      * Factory method to construct a string/{@link HealthCheck} map for a particular {@link org.kiwiproject.consul.model.State}.
      * <p>
@@ -61,7 +70,8 @@ public class HealthCheckCache extends ConsulCache<String, HealthCheck> {
             final QueryOptions queryOptions,
             final Function<HealthCheck, String> keyExtractor) {
 
-        return new HealthCheckCache(healthClient, checkState, watchSeconds, queryOptions, keyExtractor, createDefault());
+        return new HealthCheckCache(healthClient, checkState, watchSeconds, queryOptions, keyExtractor,
+                createDefault(healthClient.getWatchScheduler()));
     }
     public static HealthCheckCache newCache(
             final HealthClient healthClient,
@@ -1,19 +1,51 @@
 package org.kiwiproject.consul.cache;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Equivalence;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.primitives.Ints;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.kiwiproject.consul.KeyValueClient;
 import org.kiwiproject.consul.config.CacheConfig;
 import org.kiwiproject.consul.model.kv.Value;
 import org.kiwiproject.consul.option.QueryOptions;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
+/**
+ * A cache of the keys under a root path of the KV store, keyed by path relative to the root.
+ * <p>
+ * The entries can also be read as a {@link KVTrie}, which provides point lookups proportional to the depth of a
+ * key, subtree views, and {@link #addSubtreeListener(String, Listener) listeners} that are only notified when the
+ * keys under a prefix change. The trie is only built the first time it is requested, so caches that do not use
+ * it do not keep their entries twice; it is then updated incrementally (sharing the subtrees that did not change)
+ * each time the map changes.
+ */
 public class KVCache extends ConsulCache<String, Value> {
 
+    private static final Equivalence<Value> MODIFY_INDEX_EQUIVALENCE =
+            ModifyIndexEquivalence.of(value -> Optional.of(value.getModifyIndex()));
+
+    private final String keyPath;
+    @Nullable
+    private final KVWatchMultiplexer multiplexer;
+    private final AtomicBoolean registered = new AtomicBoolean();
+    private final Object trieLock = new Object();
+    @Nullable
+    private volatile KVTrie trie;
+
     private KVCache(KeyValueClient kvClient,
                     String rootPath,
                     String keyPath,
@@ -30,6 +62,145 @@ public class KVCache extends ConsulCache<String, Value> {
             kvClient.getEventHandler(),
             new CacheDescriptor("keyvalue", rootPath),
             callbackScheduler);
+        this.keyPath = keyPath;
+        this.multiplexer = null;
+    }
+
+    private KVCache(KVWatchMultiplexer multiplexer,
+                    KeyValueClient kvClient,
+                    String rootPath,
+                    String keyPath,
+                    Scheduler callbackScheduler) {
+        super(getKeyExtractorFunction(keyPath),
+            (index, callback) -> multiplexer.consume(keyPath, index, callback),
+            kvClient.getConfig().getCacheConfig(),
+            kvClient.getEventHandler(),
+            new CacheDescriptor("keyvalue", rootPath),
+            callbackScheduler);
+        this.keyPath = keyPath;
+        this.multiplexer = multiplexer;
+    }
+
+    /**
+     * Create a view that is fed by a shared watch of the given multiplexer instead of its own blocking query.
+     */
+    static KVCache newMultiplexedCache(KVWatchMultiplexer multiplexer, KeyValueClient kvClient, String rootPath) {
+        return new KVCache(multiplexer, kvClient, rootPath, prepareRootPath(rootPath),
+                createDefault(kvClient.getWatchScheduler()));
+    }
+
+    @Override
+    public void start() {
+        boolean registeredNow = nonNull(multiplexer) && registered.compareAndSet(false, true);
+        try {
+            if (registeredNow) {
+                multiplexer.register(keyPath);
+            }
+            super.start();
+        } catch (RuntimeException e) {
+            if (registeredNow) {
+                releaseFromMultiplexer();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        releaseFromMultiplexer();
+    }
+
+    private void releaseFromMultiplexer() {
+        if (nonNull(multiplexer) && registered.compareAndSet(true, false)) {
+            multiplexer.release(keyPath);
+        }
+    }
+
+    @Override
+    protected boolean sendsRequests() {
+        return isNull(multiplexer);
+    }
+
+    @Override
+    protected Equivalence<? super Value> getEntryEquivalence() {
+        return MODIFY_INDEX_EQUIVALENCE;
+    }
+
+    @Override
+    protected void onMapChanged(@Nullable ImmutableMap<String, Value> previous, ImmutableMap<String, Value> current) {
+        synchronized (trieLock) {
+            if (nonNull(trie)) {
+                trie = updateTrie(trie, previous, current, MODIFY_INDEX_EQUIVALENCE);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    static KVTrie updateTrie(KVTrie trie,
+                             @Nullable Map<String, Value> previous,
+                             Map<String, Value> current,
+                             Equivalence<? super Value> equivalence) {
+        if (isNull(previous) || trie.isEmpty()) {
+            return KVTrie.of(current);
+        }
+
+        Map<String, Value> upserts = new HashMap<>();
+        for (Map.Entry<String, Value> entry : current.entrySet()) {
+            Value previousValue = previous.get(entry.getKey());
+            if (isNull(previousValue) || !equivalence.equivalent(previousValue, entry.getValue())) {
+                upserts.put(entry.getKey(), entry.getValue());
+            }
+        }
+        List<String> removedKeys = new ArrayList<>();
+        for (String key : previous.keySet()) {
+            if (!current.containsKey(key)) {
+                removedKeys.add(key);
+            }
+        }
+        return trie.withChanges(upserts, removedKeys);
+    }
+
+    /**
+     * Get the current content of this cache as a trie.
+     * <p>
+     * The trie is immutable, so it can be kept and read without synchronization; a new one is published each
+     * time the content of the cache changes. It is built from the current map on the first call.
+     *
+     * @return the current trie, empty until the cache has received its first response
+     */
+    public KVTrie getTrie() {
+        KVTrie current = trie;
+        if (nonNull(current)) {
+            return current;
+        }
+        synchronized (trieLock) {
+            if (isNull(trie)) {
+                ImmutableMap<String, Value> map = getMap();
+                trie = isNull(map) ? KVTrie.empty() : KVTrie.of(map);
+            }
+            return trie;
+        }
+    }
+
+    /**
+     * Add a listener that is only notified when the keys under a prefix change, with the map of these keys
+     * relative to the prefix.
+     * <p>
+     * Like {@link #addListener(Listener)}, the listener is immediately notified if the cache is already started.
+     * Deciding whether the subtree changed does not depend on the number of keys in the cache, since the
+     * subtrees that did not change are shared between successive versions of the {@link #getTrie() trie}.
+     *
+     * @param prefix   the prefix, relative to the root path of this cache (see {@link KVTrie#subtree(String)})
+     * @param listener the listener to add
+     * @return the listener that was registered with this cache, to pass to {@link #removeListener(Listener)}
+     */
+    public Listener<String, Value> addSubtreeListener(String prefix, Listener<String, Value> listener) {
+        checkArgument(nonNull(prefix), "prefix must not be null");
+        checkArgument(nonNull(listener), "listener must not be null");
+        var subtreeListener = new SubtreeListener(this, prefix, listener);
+        addListener(subtreeListener);
+        return subtreeListener;
     }
 
     @VisibleForTesting
@@ -65,7 +236,8 @@ public class KVCache extends ConsulCache<String, Value> {
             final String rootPath,
             final int watchSeconds,
             final QueryOptions queryOptions) {
-        return new KVCache(kvClient, rootPath, prepareRootPath(rootPath), watchSeconds, queryOptions, createDefault());
+        return new KVCache(kvClient, rootPath, prepareRootPath(rootPath), watchSeconds, queryOptions,
+                createDefault(kvClient.getWatchScheduler()));
     }
 
     @VisibleForTesting
@@ -103,4 +275,42 @@ public class KVCache extends ConsulCache<String, Value> {
         int watchSeconds = Ints.checkedCast(cacheConfig.getWatchDuration().getSeconds());
         return newCache(kvClient, rootPath, watchSeconds);
     }
+
+    /**
+     * Forwards the notifications of the cache whose subtree under the prefix differs from the last one delivered.
+     * <p>
+     * Subtrees shared with the last trie seen are skipped without being read; the others (for instance when a key
+     * was written again with the same value) are only delivered if their content changed.
+     */
+    private static class SubtreeListener implements Listener<String, Value> {
+
+        private final KVCache cache;
+        private final String prefix;
+        private final Listener<String, Value> delegate;
+        @Nullable
+        private KVTrie lastSeen;
+        @Nullable
+        private ImmutableMap<String, Value> lastDelivered;
+
+        SubtreeListener(KVCache cache, String prefix, Listener<String, Value> delegate) {
+            this.cache = cache;
+            this.prefix = prefix;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized void notify(Map<String, Value> newValues) {
+            KVTrie current = cache.getTrie();
+            if (!current.hasSubtreeChanged(lastSeen, prefix)) {
+                return;
+            }
+            lastSeen = current;
+            ImmutableMap<String, Value> subtree = current.subtree(prefix).toMap();
+            if (subtree.equals(lastDelivered)) {
+                return;
+            }
+            lastDelivered = subtree;
+            delegate.notify(subtree);
+        }
+    }
 }
@@ -0,0 +1,448 @@
+package org.kiwiproject.consul.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.collect.ImmutableMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.kiwiproject.consul.model.kv.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable prefix trie of KV entries, keyed by path segments (the parts of a key separated by {@code /}).
+ * <p>
+ * Updates return a new trie that shares every subtree they did not touch with the original one, so a new
+ * version can be published on each change of a {@link KVCache}, and whether a subtree changed between two
+ * versions can be decided by comparing references. The children of a node are kept in a sorted array: point
+ * lookups take a binary search per segment of the key, and subtree views are created in the same time without
+ * copying. An update copies the children arrays of the nodes on the path to each changed key, so it takes time
+ * proportional to the depth of the key times the number of children of these nodes; use
+ * {@link #withChanges(Map, Collection)} to apply many changes at once, which copies each of these arrays once
+ * whatever the number of changes under it.
+ * <p>
+ * Keys are relative to the root of the trie: the root of the {@link KVCache}, or the prefix of a
+ * {@link #subtree(String) subtree view}. Entries are ordered by key segments.
+ */
+public final class KVTrie {
+
+    private static final KVTrie EMPTY = new KVTrie(Node.EMPTY);
+
+    private final Node root;
+
+    private KVTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @return an empty trie
+     */
+    public static KVTrie empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build a trie from a map of values.
+     *
+     * @param values the values, by key
+     * @return a new trie
+     */
+    public static KVTrie of(Map<String, Value> values) {
+        if (values.isEmpty()) {
+            return EMPTY;
+        }
+        var root = new MutableNode();
+        for (Map.Entry<String, Value> entry : values.entrySet()) {
+            MutableNode node = root;
+            for (String segment : segments(entry.getKey())) {
+                node = node.children.computeIfAbsent(segment, s -> new MutableNode());
+            }
+            node.value = entry.getValue();
+        }
+        return new KVTrie(root.freeze());
+    }
+
+    /**
+     * Get the value of a key.
+     *
+     * @param key the key, relative to the root of this trie
+     * @return an Optional containing the value, or an empty Optional if there is no such key
+     */
+    public Optional<Value> get(String key) {
+        Node node = find(root, segments(key));
+        return isNull(node) ? Optional.empty() : Optional.ofNullable(node.value);
+    }
+
+    /**
+     * Get a view of the entries under a prefix, with keys relative to that prefix.
+     * <p>
+     * The prefix is a sequence of whole path segments; a trailing slash is optional, so {@code "features/payments"}
+     * and {@code "features/payments/"} both return the keys that start with {@code "features/payments/"}.
+     *
+     * @param prefix the prefix, relative to the root of this trie
+     * @return the subtree, empty if there is no key under the prefix
+     */
+    public KVTrie subtree(String prefix) {
+        String[] segments = prefixSegments(prefix);
+        if (segments.length == 0) {
+            return this;
+        }
+        Node node = find(root, segments);
+        return isNull(node) ? EMPTY : new KVTrie(node.withoutValue());
+    }
+
+    /**
+     * @return the number of keys in this trie
+     */
+    public int size() {
+        return root.size;
+    }
+
+    public boolean isEmpty() {
+        return root.size == 0;
+    }
+
+    /**
+     * Call an action for every entry of this trie, in key order.
+     *
+     * @param action the action to call with each key, relative to the root of this trie, and its value
+     */
+    public void forEach(BiConsumer<String, Value> action) {
+        root.forEach(new StringBuilder(), action, true);
+    }
+
+    /**
+     * @return the entries of this trie as a map, in key order
+     */
+    public ImmutableMap<String, Value> toMap() {
+        ImmutableMap.Builder<String, Value> builder = ImmutableMap.builderWithExpectedSize(root.size);
+        forEach(builder::put);
+        return builder.buildOrThrow();
+    }
+
+    /**
+     * Return a trie with one more or one updated entry.
+     *
+     * @param key   the key, relative to the root of this trie
+     * @param value the value
+     * @return the new trie, sharing all untouched subtrees with this one
+     */
+    public KVTrie with(String key, Value value) {
+        checkArgument(nonNull(value), "value must not be null");
+        return new KVTrie(root.put(segments(key), 0, value));
+    }
+
+    /**
+     * Return a trie without an entry.
+     *
+     * @param key the key, relative to the root of this trie
+     * @return the new trie, sharing all untouched subtrees with this one, or this trie if the key is absent
+     */
+    public KVTrie without(String key) {
+        Node newRoot = root.remove(segments(key), 0);
+        if (newRoot == root) {
+            return this;
+        }
+        return isNull(newRoot) ? EMPTY : new KVTrie(newRoot);
+    }
+
+    /**
+     * Return a trie with many entries added, updated or removed, in a single pass over the touched nodes.
+     *
+     * @param upserts  the entries to add or update, by key relative to the root of this trie
+     * @param removals the keys to remove, relative to the root of this trie
+     * @return the new trie, sharing all untouched subtrees with this one, or this trie if nothing changed
+     */
+    public KVTrie withChanges(Map<String, Value> upserts, Collection<String> removals) {
+        if (upserts.isEmpty() && removals.isEmpty()) {
+            return this;
+        }
+        var changes = new Change();
+        for (Map.Entry<String, Value> entry : upserts.entrySet()) {
+            checkArgument(nonNull(entry.getValue()), "value must not be null");
+            changes.at(entry.getKey()).value = entry.getValue();
+        }
+        for (String key : removals) {
+            changes.at(key).removed = true;
+        }
+
+        Node newRoot = root.apply(changes);
+        if (newRoot == root) {
+            return this;
+        }
+        return isNull(newRoot) ? EMPTY : new KVTrie(newRoot);
+    }
+
+    /**
+     * Tell whether the subtree under a prefix may differ between this trie and another version of it.
+     * <p>
+     * This compares references only, so it is exact for versions derived from one another with
+     * {@link #with(String, Value)}, {@link #without(String)} and {@link #withChanges(Map, Collection)}, and
+     * otherwise only reports subtrees that are not shared as changed.
+     *
+     * @param other  another version of this trie, or null
+     * @param prefix the prefix, relative to the root of the tries
+     * @return false if the subtrees are the same, true otherwise
+     */
+    public boolean hasSubtreeChanged(@Nullable KVTrie other, String prefix) {
+        if (isNull(other)) {
+            return true;
+        }
+        String[] segments = prefixSegments(prefix);
+        Node mine = find(root, segments);
+        Node theirs = find(other.root, segments);
+        if (isNull(mine) || isNull(theirs)) {
+            return mine != theirs;
+        }
+        // the value of the prefix node itself is not part of the subtree
+        return mine.children != theirs.children;
+    }
+
+    @Nullable
+    private static Node find(Node root, String[] segments) {
+        Node node = root;
+        for (String segment : segments) {
+            node = node.child(segment);
+            if (isNull(node)) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    static String[] segments(String key) {
+        return key.split("/", -1);
+    }
+
+    private static String[] prefixSegments(String prefix) {
+        String trimmed = prefix.endsWith("/") ? prefix.substring(0, prefix.length() - 1) : prefix;
+        return trimmed.isEmpty() ? new String[0] : segments(trimmed);
+    }
+
+    private static final class Node {
+
+        static final String[] NO_KEYS = new String[0];
+        static final Node[] NO_CHILDREN = new Node[0];
+        static final Node EMPTY = new Node(null, NO_KEYS, NO_CHILDREN, 0);
+
+        @Nullable
+        final Value value;
+        // sorted, and never modified once the node is created
+        final String[] keys;
+        final Node[] children;
+        final int size;
+
+        private Node(@Nullable Value value, String[] keys, Node[] children, int size) {
+            this.value = value;
+            this.keys = keys;
+            this.children = children;
+            this.size = size;
+        }
+
+        static Node of(@Nullable Value value, String[] keys, Node[] children) {
+            int count = isNull(value) ? 0 : 1;
+            for (Node child : children) {
+                count += child.size;
+            }
+            return new Node(value, keys, children, count);
+        }
+
+        @Nullable
+        Node child(String segment) {
+            int position = Arrays.binarySearch(keys, segment);
+            return position >= 0 ? children[position] : null;
+        }
+
+        Node withoutValue() {
+            return isNull(value) ? this : new Node(null, keys, children, size - 1);
+        }
+
+        Node put(String[] segments, int depth, Value newValue) {
+            if (depth == segments.length) {
+                return new Node(newValue, keys, children, isNull(value) ? size + 1 : size);
+            }
+            String segment = segments[depth];
+            int position = Arrays.binarySearch(keys, segment);
+            if (position >= 0) {
+                Node child = children[position];
+                Node newChild = child.put(segments, depth + 1, newValue);
+                Node[] newChildren = children.clone();
+                newChildren[position] = newChild;
+                return new Node(value, keys, newChildren, size - child.size + newChild.size);
+            }
+            int insertion = -position - 1;
+            Node newChild = EMPTY.put(segments, depth + 1, newValue);
+            return new Node(value, inserted(keys, insertion, segment, NO_KEYS),
+                    inserted(children, insertion, newChild, NO_CHILDREN), size + newChild.size);
+        }
+
+        /**
+         * @return this node if the key is absent, null if the node becomes empty, otherwise the new node
+         */
+        @Nullable
+        Node remove(String[] segments, int depth) {
+            if (depth == segments.length) {
+                if (isNull(value)) {
+                    return this;
+                }
+                return keys.length == 0 ? null : new Node(null, keys, children, size - 1);
+            }
+            int position = Arrays.binarySearch(keys, segments[depth]);
+            if (position < 0) {
+                return this;
+            }
+            Node child = children[position];
+            Node newChild = child.remove(segments, depth + 1);
+            if (newChild == child) {
+                return this;
+            }
+            if (nonNull(newChild)) {
+                Node[] newChildren = children.clone();
+                newChildren[position] = newChild;
+                return new Node(value, keys, newChildren, size - 1);
+            }
+            if (isNull(value) && keys.length == 1) {
+                return null;
+            }
+            return new Node(value, removed(keys, position, NO_KEYS), removed(children, position, NO_CHILDREN), size - 1);
+        }
+
+        /**
+         * Apply the changes under this node, merging its children with the changed ones in a single pass.
+         *
+         * @return this node if nothing changed, null if the node becomes empty, otherwise the new node
+         */
+        @Nullable
+        Node apply(Change change) {
+            Value newValue = value;
+            if (change.removed) {
+                newValue = null;
+            } else if (nonNull(change.value)) {
+                newValue = change.value;
+            }
+
+            String[] newKeys = keys;
+            Node[] newChildren = children;
+            if (!change.children.isEmpty()) {
+                List<String> mergedKeys = new ArrayList<>(keys.length + change.children.size());
+                List<Node> mergedChildren = new ArrayList<>(keys.length + change.children.size());
+                boolean childrenChanged = false;
+                int position = 0;
+                for (Map.Entry<String, Change> childChange : change.children.entrySet()) {
+                    String segment = childChange.getKey();
+                    while (position < keys.length && keys[position].compareTo(segment) < 0) {
+                        mergedKeys.add(keys[position]);
+                        mergedChildren.add(children[position]);
+                        position++;
+                    }
+                    Node child = null;
+                    if (position < keys.length && keys[position].equals(segment)) {
+                        child = children[position];
+                        position++;
+                    }
+                    Node newChild = (isNull(child) ? EMPTY : child).apply(childChange.getValue());
+                    if (isNull(child) && newChild == EMPTY) {
+                        newChild = null;
+                    }
+                    childrenChanged |= newChild != child;
+                    if (nonNull(newChild)) {
+                        mergedKeys.add(segment);
+                        mergedChildren.add(newChild);
+                    }
+                }
+                if (childrenChanged) {
+                    for (; position < keys.length; position++) {
+                        mergedKeys.add(keys[position]);
+                        mergedChildren.add(children[position]);
+                    }
+                    newKeys = mergedKeys.toArray(NO_KEYS);
+                    newChildren = mergedChildren.toArray(NO_CHILDREN);
+                }
+            }
+
+            if (newValue == value && newChildren == children) {
+                return this;
+            }
+            if (isNull(newValue) && newKeys.length == 0) {
+                return null;
+            }
+            if (newChildren == children) {
+                int newSize = size - (isNull(value) ? 0 : 1) + (isNull(newValue) ? 0 : 1);
+                return new Node(newValue, keys, children, newSize);
+            }
+            return of(newValue, newKeys, newChildren);
+        }
+
+        void forEach(StringBuilder path, BiConsumer<String, Value> action, boolean isRoot) {
+            if (nonNull(value) && !isRoot) {
+                action.accept(path.toString(), value);
+            }
+            for (int i = 0; i < keys.length; i++) {
+                int length = path.length();
+                if (!isRoot) {
+                    path.append('/');
+                }
+                path.append(keys[i]);
+                children[i].forEach(path, action, false);
+                path.setLength(length);
+            }
+        }
+
+        private static <T> T[] inserted(T[] array, int position, T element, T[] empty) {
+            T[] result = Arrays.copyOf(empty, array.length + 1);
+            System.arraycopy(array, 0, result, 0, position);
+            result[position] = element;
+            System.arraycopy(array, position, result, position + 1, array.length - position);
+            return result;
+        }
+
+        private static <T> T[] removed(T[] array, int position, T[] empty) {
+            T[] result = Arrays.copyOf(empty, array.length - 1);
+            System.arraycopy(array, 0, result, 0, position);
+            System.arraycopy(array, position + 1, result, position, array.length - position - 1);
+            return result;
+        }
+    }
+
+    /**
+     * The changes to apply under one node, by path segment.
+     */
+    private static final class Change {
+
+        private Value value;
+        private boolean removed;
+        private final TreeMap<String, Change> children = new TreeMap<>();
+
+        Change at(String key) {
+            Change change = this;
+            for (String segment : segments(key)) {
+                change = change.children.computeIfAbsent(segment, s -> new Change());
+            }
+            return change;
+        }
+    }
+
+    private static final class MutableNode {
+
+        private Value value;
+        private final TreeMap<String, MutableNode> children = new TreeMap<>();
+
+        Node freeze() {
+            String[] keys = children.keySet().toArray(Node.NO_KEYS);
+            Node[] nodes = keys.length == 0 ? Node.NO_CHILDREN : new Node[keys.length];
+            int i = 0;
+            for (MutableNode child : children.values()) {
+                nodes[i++] = child.freeze();
+            }
+            return Node.of(value, keys, nodes);
+        }
+    }
+}
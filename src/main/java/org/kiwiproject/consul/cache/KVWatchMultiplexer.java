@@ -0,0 +1,328 @@
+package org.kiwiproject.consul.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multiset;
+import com.google.common.primitives.Ints;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.kiwiproject.consul.KeyValueClient;
+import org.kiwiproject.consul.async.ConsulResponseCallback;
+import org.kiwiproject.consul.model.ConsulResponse;
+import org.kiwiproject.consul.model.kv.Value;
+import org.kiwiproject.consul.option.QueryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Serves many {@link KVCache}s on overlapping root paths from as few recursive blocking queries as possible.
+ * <p>
+ * Caches are created with {@link #newCache(String)} and are used exactly like the ones returned by
+ * {@link KVCache#newCache(KeyValueClient, String)}, including the keys produced by
+ * {@link KVCache#getKeyExtractorFunction(String)}. Instead of issuing their own query, they are fed the
+ * entries of a shared watch on the shortest started root path that their own root path starts with.
+ * <p>
+ * Shared watches are reference-counted by started caches: starting a cache on a root path that contains
+ * the one being watched moves the watch up to it, and stopping the caches on a watched root path moves the
+ * watch back down to the remaining root paths, or stops it when no cache uses it anymore.
+ * <p>
+ * Different root paths have different indexes, so when a cache moves to another shared watch, the indexes it
+ * receives do not go below the last one it received from the previous watch, unless the index of the new watch
+ * itself goes backwards. Moving a watch is thus not seen as an index reset by the caches.
+ * <p>
+ * While a shared watch is failing, the caches it feeds keep their current values; polling errors are
+ * reported for the shared watch only.
+ */
+public class KVWatchMultiplexer implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KVWatchMultiplexer.class);
+
+    private final KeyValueClient kvClient;
+    private final int watchSeconds;
+    private final QueryOptions queryOptions;
+
+    // all guarded by this
+    private final Multiset<String> startedPaths = HashMultiset.create();
+    private final Map<String, SharedWatch> watches = new HashMap<>();
+    private boolean closed;
+
+    /**
+     * Create a multiplexer that uses the watch duration of the client's cache configuration.
+     *
+     * @param kvClient the {@link KeyValueClient} to use
+     */
+    public KVWatchMultiplexer(KeyValueClient kvClient) {
+        this(kvClient,
+                Ints.checkedCast(kvClient.getConfig().getCacheConfig().getWatchDuration().getSeconds()),
+                QueryOptions.BLANK);
+    }
+
+    /**
+     * Create a multiplexer.
+     *
+     * @param kvClient     the {@link KeyValueClient} to use
+     * @param watchSeconds how long to tell the Consul server to wait for new values
+     * @param queryOptions the query options used by the shared watches
+     */
+    public KVWatchMultiplexer(KeyValueClient kvClient, int watchSeconds, QueryOptions queryOptions) {
+        this.kvClient = requireNonNull(kvClient, "kvClient must not be null");
+        this.watchSeconds = watchSeconds;
+        this.queryOptions = requireNonNull(queryOptions, "queryOptions must not be null");
+    }
+
+    /**
+     * Create a cache for the given root path that is fed by this multiplexer.
+     *
+     * @param rootPath the root path (will be stripped from keys in the cache)
+     * @return the cache object, which must be started and stopped like any other cache
+     */
+    public KVCache newCache(String rootPath) {
+        checkNotNull(rootPath, "rootPath must not be null");
+        return KVCache.newMultiplexedCache(this, kvClient, rootPath);
+    }
+
+    /**
+     * @return the root paths of the blocking queries currently issued by this multiplexer
+     */
+    public synchronized Set<String> getWatchedPaths() {
+        return Set.copyOf(watches.keySet());
+    }
+
+    /**
+     * Stop all shared watches. Caches created by this multiplexer stop receiving updates.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        startedPaths.clear();
+        watches.values().forEach(watch -> watch.cache.stop());
+        watches.clear();
+    }
+
+    void register(String keyPath) {
+        List<Runnable> deliveries;
+        synchronized (this) {
+            checkState(!closed, "KVWatchMultiplexer has been closed");
+            startedPaths.add(keyPath);
+            deliveries = regroup();
+        }
+        deliveries.forEach(Runnable::run);
+    }
+
+    void release(String keyPath) {
+        List<Runnable> deliveries;
+        synchronized (this) {
+            if (closed || !startedPaths.remove(keyPath)) {
+                return;
+            }
+            deliveries = regroup();
+        }
+        deliveries.forEach(Runnable::run);
+    }
+
+    void consume(String keyPath, @Nullable BigInteger index, ConsulResponseCallback<List<Value>> callback) {
+        Runnable delivery;
+        synchronized (this) {
+            SharedWatch watch = findWatch(keyPath);
+            if (isNull(watch)) {
+                delivery = failure(keyPath, callback);
+            } else if (nonNull(watch.published) && !Objects.equals(watch.published.index, index)) {
+                delivery = delivery(watch.published, keyPath, callback);
+            } else {
+                watch.waiters.add(new Waiter(keyPath, callback));
+                return;
+            }
+        }
+        delivery.run();
+    }
+
+    /**
+     * Make the set of shared watches match the set of started root paths that do not start with another
+     * started root path, and move the waiters of stopped watches to the watches that now cover them.
+     */
+    private List<Runnable> regroup() {
+        Set<String> paths = startedPaths.elementSet();
+        Set<String> roots = new HashSet<>();
+        for (String path : paths) {
+            boolean covered = paths.stream().anyMatch(other -> !other.equals(path) && path.startsWith(other));
+            if (!covered) {
+                roots.add(path);
+            }
+        }
+
+        List<SharedWatch> newWatches = new ArrayList<>();
+        for (String root : roots) {
+            if (!watches.containsKey(root)) {
+                LOG.debug("Starting shared KV watch on '{}'", root);
+                var watch = new SharedWatch(root);
+                watch.indexFloor = highestOverlappingIndex(root);
+                newWatches.add(watch);
+            }
+        }
+        for (SharedWatch watch : newWatches) {
+            watches.put(watch.root, watch);
+            watch.cache.start();
+        }
+
+        List<Waiter> orphans = new ArrayList<>();
+        var iterator = watches.values().iterator();
+        while (iterator.hasNext()) {
+            SharedWatch watch = iterator.next();
+            if (!roots.contains(watch.root)) {
+                LOG.debug("Stopping shared KV watch on '{}'", watch.root);
+                iterator.remove();
+                watch.cache.stop();
+                orphans.addAll(watch.waiters);
+            }
+        }
+
+        List<Runnable> deliveries = new ArrayList<>();
+        for (Waiter waiter : orphans) {
+            SharedWatch watch = findWatch(waiter.keyPath);
+            if (isNull(watch)) {
+                deliveries.add(failure(waiter.keyPath, waiter.callback));
+            } else if (nonNull(watch.published)) {
+                deliveries.add(delivery(watch.published, waiter.keyPath, waiter.callback));
+            } else {
+                watch.waiters.add(waiter);
+            }
+        }
+        return deliveries;
+    }
+
+    /**
+     * Get the highest index published by the current watches that the caches of a new watch on the given root
+     * path may have received, i.e. the watches on a root path that contains it or that it contains.
+     */
+    @Nullable
+    private BigInteger highestOverlappingIndex(String root) {
+        BigInteger highest = null;
+        for (SharedWatch watch : watches.values()) {
+            boolean overlapping = root.startsWith(watch.root) || watch.root.startsWith(root);
+            if (overlapping && nonNull(watch.published)) {
+                highest = max(highest, watch.published.index);
+            }
+        }
+        return highest;
+    }
+
+    @Nullable
+    private static BigInteger max(@Nullable BigInteger first, @Nullable BigInteger second) {
+        if (isNull(first)) {
+            return second;
+        }
+        return isNull(second) || first.compareTo(second) >= 0 ? first : second;
+    }
+
+    @Nullable
+    private SharedWatch findWatch(String keyPath) {
+        return watches.values().stream()
+                .filter(watch -> keyPath.startsWith(watch.root))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private void publish(SharedWatch watch, Map<String, Value> newValues) {
+        List<Runnable> deliveries = new ArrayList<>();
+        synchronized (this) {
+            if (watches.get(watch.root) != watch) {
+                return;
+            }
+            ConsulResponse<?> metadata = watch.cache.getMapWithMetadata();
+            BigInteger index = metadata.getIndex();
+            if (nonNull(watch.lastIndex) && (isNull(index) || index.compareTo(watch.lastIndex) < 0)) {
+                // the index of the watch itself went backwards (or was reset), which the caches must see
+                watch.indexFloor = null;
+            }
+            if (nonNull(index)) {
+                watch.lastIndex = index;
+            }
+            watch.published = new Published(ImmutableList.copyOf(newValues.values()),
+                    max(index, watch.indexFloor), metadata.getLastContact(), metadata.isKnownLeader());
+            for (Waiter waiter : watch.waiters) {
+                deliveries.add(delivery(watch.published, waiter.keyPath, waiter.callback));
+            }
+            watch.waiters.clear();
+        }
+        deliveries.forEach(Runnable::run);
+    }
+
+    private static Runnable delivery(Published published, String keyPath, ConsulResponseCallback<List<Value>> callback) {
+        return () -> {
+            List<Value> values = new ArrayList<>();
+            for (Value value : published.values) {
+                if (value.getKey().startsWith(keyPath)) {
+                    values.add(value);
+                }
+            }
+            try {
+                callback.onComplete(new ConsulResponse<>(values, published.lastContact, published.knownLeader,
+                        published.index, Optional.empty()));
+            } catch (RuntimeException e) {
+                LOG.warn("Delivering shared KV watch response for '{}' threw an exception.", keyPath, e);
+            }
+        };
+    }
+
+    private static Runnable failure(String keyPath, ConsulResponseCallback<List<Value>> callback) {
+        return () -> callback.onFailure(new IllegalStateException("No shared KV watch covers '" + keyPath + "'"));
+    }
+
+    private final class SharedWatch {
+
+        private final String root;
+        private final KVCache cache;
+        private final List<Waiter> waiters = new ArrayList<>();
+        private Published published;
+        private BigInteger lastIndex;
+        // the highest index published by the watches this one replaced
+        private BigInteger indexFloor;
+
+        SharedWatch(String root) {
+            this.root = root;
+            this.cache = KVCache.newCache(kvClient, root, watchSeconds, queryOptions);
+            this.cache.addListener(newValues -> publish(this, newValues));
+        }
+    }
+
+    private static final class Waiter {
+
+        private final String keyPath;
+        private final ConsulResponseCallback<List<Value>> callback;
+
+        Waiter(String keyPath, ConsulResponseCallback<List<Value>> callback) {
+            this.keyPath = keyPath;
+            this.callback = callback;
+        }
+    }
+
+    private static final class Published {
+
+        private final ImmutableList<Value> values;
+        private final BigInteger index;
+        private final long lastContact;
+        private final boolean knownLeader;
+
+        Published(ImmutableList<Value> values, BigInteger index, long lastContact, boolean knownLeader) {
+            this.values = values;
+            this.index = index;
+            this.lastContact = lastContact;
+            this.knownLeader = knownLeader;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.kiwiproject.consul.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies with fixed buckets, from 1 millisecond to 5 minutes, which is cheap enough to be
+ * updated on every poll of a cache. Exporters can map the {@link Snapshot#getBucketUpperBoundsMillis() bucket
+ * bounds} and {@link Snapshot#getBucketCounts() counts} directly to the histogram type of their metrics library.
+ * <p>
+ * Recording is thread-safe and lock-free; a snapshot taken while latencies are recorded may be off by the
+ * latencies being recorded.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * The inclusive upper bounds of the buckets, in milliseconds. A last bucket holds the longer latencies.
+     */
+    @VisibleForTesting
+    static final long[] BUCKET_UPPER_BOUNDS_MILLIS = {
+            1, 2, 5, 10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 30_000, 60_000, 120_000, 300_000
+    };
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_UPPER_BOUNDS_MILLIS.length + 1);
+    private final AtomicLong sumMillis = new AtomicLong();
+    private final AtomicLong maxMillis = new AtomicLong();
+
+    /**
+     * Record a latency.
+     *
+     * @param millis the latency in milliseconds, negative values being counted as zero
+     */
+    public void record(long millis) {
+        long latency = Math.max(0, millis);
+        counts.incrementAndGet(bucketOf(latency));
+        sumMillis.addAndGet(latency);
+        maxMillis.accumulateAndGet(latency, Math::max);
+    }
+
+    private static int bucketOf(long millis) {
+        int index = Arrays.binarySearch(BUCKET_UPPER_BOUNDS_MILLIS, millis);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @return the current counts of this histogram
+     */
+    public Snapshot snapshot() {
+        var bucketCounts = new long[counts.length()];
+        long count = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            bucketCounts[i] = counts.get(i);
+            count += bucketCounts[i];
+        }
+        return new Snapshot(bucketCounts, count, sumMillis.get(), maxMillis.get());
+    }
+
+    /**
+     * An immutable copy of the counts of a {@link LatencyHistogram}.
+     */
+    public static final class Snapshot {
+
+        private final long[] bucketCounts;
+        private final long count;
+        private final long sumMillis;
+        private final long maxMillis;
+
+        private Snapshot(long[] bucketCounts, long count, long sumMillis, long maxMillis) {
+            this.bucketCounts = bucketCounts;
+            this.count = count;
+            this.sumMillis = sumMillis;
+            this.maxMillis = maxMillis;
+        }
+
+        /**
+         * @return the inclusive upper bounds of the buckets in milliseconds; the last bucket, which has no bound,
+         * holds the latencies above the last bound
+         */
+        public long[] getBucketUpperBoundsMillis() {
+            return BUCKET_UPPER_BOUNDS_MILLIS.clone();
+        }
+
+        /**
+         * @return the number of latencies in each bucket, with one more element than the bucket bounds
+         */
+        public long[] getBucketCounts() {
+            return bucketCounts.clone();
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public Duration getSum() {
+            return Duration.ofMillis(sumMillis);
+        }
+
+        public Duration getMax() {
+            return Duration.ofMillis(maxMillis);
+        }
+
+        public Duration getMean() {
+            return count == 0 ? Duration.ZERO : Duration.ofMillis(sumMillis / count);
+        }
+
+        /**
+         * Estimate a percentile as the upper bound of the bucket containing it (or the maximum, if lower).
+         *
+         * @param percentile the percentile, between 0 and 100
+         * @return the estimated latency, zero if no latency was recorded
+         */
+        public Duration getPercentile(double percentile) {
+            checkArgument(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100");
+            if (count == 0) {
+                return Duration.ZERO;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                seen += bucketCounts[i];
+                if (seen >= rank) {
+                    long bound = i < BUCKET_UPPER_BOUNDS_MILLIS.length ? BUCKET_UPPER_BOUNDS_MILLIS[i] : maxMillis;
+                    return Duration.ofMillis(Math.min(bound, maxMillis));
+                }
+            }
+            return Duration.ofMillis(maxMillis);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.kiwiproject.consul.cache;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.Equivalence;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * An {@link Equivalence} for two versions of the same Consul entry, which compares their modify
+ * indexes instead of deep-comparing the values.
+ * <p>
+ * Consul increments the modify index of an entry on every write, so two versions with the same
+ * index are the same. When either value has no index, this falls back to {@link Object#equals(Object)}.
+ *
+ * @param <V> the type of values
+ */
+public final class ModifyIndexEquivalence<V> extends Equivalence<V> {
+
+    private final Function<V, Optional<Long>> modifyIndexExtractor;
+
+    private ModifyIndexEquivalence(Function<V, Optional<Long>> modifyIndexExtractor) {
+        this.modifyIndexExtractor = requireNonNull(modifyIndexExtractor);
+    }
+
+    public static <V> ModifyIndexEquivalence<V> of(Function<V, Optional<Long>> modifyIndexExtractor) {
+        return new ModifyIndexEquivalence<>(modifyIndexExtractor);
+    }
+
+    @Override
+    protected boolean doEquivalent(V a, V b) {
+        Optional<Long> indexA = modifyIndexExtractor.apply(a);
+        Optional<Long> indexB = modifyIndexExtractor.apply(b);
+        if (indexA.isPresent() && indexB.isPresent()) {
+            return indexA.get().equals(indexB.get());
+        }
+        return a.equals(b);
+    }
+
+    /**
+     * @implNote Values of one type either all carry an index or none do, so hashing the index when
+     * present is consistent with {@link #doEquivalent(Object, Object)} in practice.
+     */
+    @Override
+    protected int doHash(V v) {
+        Optional<Long> index = modifyIndexExtractor.apply(v);
+        return index.isPresent() ? index.get().hashCode() : v.hashCode();
+    }
+}
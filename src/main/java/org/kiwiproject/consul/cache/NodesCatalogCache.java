@@ -1,5 +1,6 @@
 package org.kiwiproject.consul.cache;
 
+import com.google.common.base.Equivalence;
 import com.google.common.primitives.Ints;
 import org.kiwiproject.consul.CatalogClient;
 import org.kiwiproject.consul.config.CacheConfig;
@@ -10,6 +11,8 @@ import java.util.concurrent.ScheduledExecutorService;
 
 public class NodesCatalogCache extends ConsulCache<String, Node> {
 
+    private static final Equivalence<Node> MODIFY_INDEX_EQUIVALENCE = ModifyIndexEquivalence.of(Node::getModifyIndex);
+
     private NodesCatalogCache(CatalogClient catalogClient,
                               QueryOptions queryOptions,
                               int watchSeconds,
@@ -25,6 +28,11 @@ public class NodesCatalogCache extends ConsulCache<String, Node> {
               callbackScheduler);
     }
 
+    @Override
+    protected Equivalence<? super Node> getEntryEquivalence() {
+        return MODIFY_INDEX_EQUIVALENCE;
+    }
+
     public static NodesCatalogCache newCache(
             final CatalogClient catalogClient,
             final QueryOptions queryOptions,
@@ -39,7 +47,7 @@ public class NodesCatalogCache extends ConsulCache<String, Node> {
             final CatalogClient catalogClient,
             final QueryOptions queryOptions,
             final int watchSeconds) {
-        return new NodesCatalogCache(catalogClient, queryOptions, watchSeconds, createDefault());
+        return new NodesCatalogCache(catalogClient, queryOptions, watchSeconds, createDefault(catalogClient.getWatchScheduler()));
     }
 
     public static NodesCatalogCache newCache(final CatalogClient catalogClient) {
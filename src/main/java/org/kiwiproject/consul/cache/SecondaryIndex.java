@@ -0,0 +1,192 @@
+package org.kiwiproject.consul.cache;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.base.Equivalence;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A secondary index of the entries of a {@link ConsulCache}, from the values computed by an index function to
+ * the entries that produced them.
+ * <p>
+ * The index is kept as one immutable bucket per indexed value, and only the buckets of the entries that changed
+ * are rebuilt on each update, each of them once whatever the number of its entries that changed, so a lookup is a
+ * single map access. Each update publishes a new immutable map of the buckets with a single volatile write, so
+ * lookups never see a partially applied update. The {@link #asMultimap() multimap view} is materialized on the
+ * first call after each update, from the buckets it belongs to.
+ * <p>
+ * Updates must come from a single thread; lookups are safe from any thread.
+ *
+ * @param <K> the type of keys of the cache
+ * @param <V> the type of values of the cache
+ * @see ConsulCache#addIndex(String, Function)
+ */
+final class SecondaryIndex<K, V> {
+
+    private final Function<? super V, ? extends Iterable<?>> indexFunction;
+    private volatile Buckets<K, V> buckets = new Buckets<>(ImmutableMap.of());
+
+    SecondaryIndex(Function<? super V, ? extends Iterable<?>> indexFunction) {
+        this.indexFunction = indexFunction;
+    }
+
+    /**
+     * Update the index with the entries that differ between two versions of the map of the cache.
+     */
+    void update(@Nullable Map<K, V> previous, Map<K, V> current, Equivalence<? super V> equivalence) {
+        if (isNull(previous)) {
+            previous = Map.of();
+        }
+
+        Map<Object, BucketChanges<K, V>> changes = new HashMap<>();
+        for (Map.Entry<K, V> entry : current.entrySet()) {
+            V previousValue = previous.get(entry.getKey());
+            if (isNull(previousValue)) {
+                collectChanges(changes, entry.getKey(), null, entry.getValue());
+            } else if (!equivalence.equivalent(previousValue, entry.getValue())) {
+                collectChanges(changes, entry.getKey(), previousValue, entry.getValue());
+            }
+        }
+        for (Map.Entry<K, V> entry : previous.entrySet()) {
+            if (!current.containsKey(entry.getKey())) {
+                collectChanges(changes, entry.getKey(), entry.getValue(), null);
+            }
+        }
+
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        ImmutableMap<Object, ImmutableMap<K, V>> published = buckets.byIndexedValue;
+        ImmutableMap.Builder<Object, ImmutableMap<K, V>> builder =
+                ImmutableMap.builderWithExpectedSize(published.size() + changes.size());
+        for (Map.Entry<Object, ImmutableMap<K, V>> bucket : published.entrySet()) {
+            if (!changes.containsKey(bucket.getKey())) {
+                builder.put(bucket);
+            }
+        }
+        for (Map.Entry<Object, BucketChanges<K, V>> change : changes.entrySet()) {
+            ImmutableMap<K, V> bucket = rebuild(published.get(change.getKey()), change.getValue());
+            if (!bucket.isEmpty()) {
+                builder.put(change.getKey(), bucket);
+            }
+        }
+        buckets = new Buckets<>(builder.buildOrThrow());
+    }
+
+    ImmutableCollection<V> get(Object indexedValue) {
+        ImmutableMap<K, V> bucket = buckets.byIndexedValue.get(indexedValue);
+        return isNull(bucket) ? ImmutableList.of() : bucket.values();
+    }
+
+    ImmutableSet<K> getKeys(Object indexedValue) {
+        ImmutableMap<K, V> bucket = buckets.byIndexedValue.get(indexedValue);
+        return isNull(bucket) ? ImmutableSet.of() : bucket.keySet();
+    }
+
+    @SuppressWarnings("unchecked")
+    <I> ImmutableSet<I> indexedValues() {
+        return (ImmutableSet<I>) buckets.byIndexedValue.keySet();
+    }
+
+    @SuppressWarnings("unchecked")
+    <I> ImmutableListMultimap<I, V> asMultimap() {
+        return (ImmutableListMultimap<I, V>) buckets.asMultimap();
+    }
+
+    private void collectChanges(Map<Object, BucketChanges<K, V>> changes,
+                                K key,
+                                @Nullable V previousValue,
+                                @Nullable V currentValue) {
+        Set<Object> previousIndexed = indexedValues(previousValue);
+        Set<Object> currentIndexed = indexedValues(currentValue);
+
+        for (Object indexed : previousIndexed) {
+            if (!currentIndexed.contains(indexed)) {
+                changes.computeIfAbsent(indexed, i -> new BucketChanges<>()).removed.add(key);
+            }
+        }
+        for (Object indexed : currentIndexed) {
+            // also replaces the value of entries that stay in the same bucket
+            changes.computeIfAbsent(indexed, i -> new BucketChanges<>()).put.put(key, currentValue);
+        }
+    }
+
+    private Set<Object> indexedValues(@Nullable V value) {
+        if (isNull(value)) {
+            return Set.of();
+        }
+        Iterable<?> indexed = indexFunction.apply(value);
+        if (isNull(indexed)) {
+            return Set.of();
+        }
+        Set<Object> result = new LinkedHashSet<>();
+        for (Object indexedValue : indexed) {
+            if (nonNull(indexedValue)) {
+                result.add(indexedValue);
+            }
+        }
+        return result;
+    }
+
+    private static <K, V> ImmutableMap<K, V> rebuild(@Nullable ImmutableMap<K, V> bucket, BucketChanges<K, V> changes) {
+        ImmutableMap.Builder<K, V> builder = ImmutableMap.builder();
+        if (nonNull(bucket)) {
+            for (Map.Entry<K, V> entry : bucket.entrySet()) {
+                if (!changes.removed.contains(entry.getKey()) && !changes.put.containsKey(entry.getKey())) {
+                    builder.put(entry);
+                }
+            }
+        }
+        return builder.putAll(changes.put).buildOrThrow();
+    }
+
+    /**
+     * The entries to put in and remove from one bucket.
+     */
+    private static final class BucketChanges<K, V> {
+
+        private final Map<K, V> put = new LinkedHashMap<>();
+        private final Set<K> removed = new HashSet<>();
+    }
+
+    /**
+     * One version of the buckets, along with its multimap view once materialized.
+     */
+    private static final class Buckets<K, V> {
+
+        private final ImmutableMap<Object, ImmutableMap<K, V>> byIndexedValue;
+        private volatile ImmutableListMultimap<Object, V> multimap;
+
+        Buckets(ImmutableMap<Object, ImmutableMap<K, V>> byIndexedValue) {
+            this.byIndexedValue = byIndexedValue;
+        }
+
+        ImmutableListMultimap<Object, V> asMultimap() {
+            ImmutableListMultimap<Object, V> view = multimap;
+            if (isNull(view)) {
+                ImmutableListMultimap.Builder<Object, V> builder = ImmutableListMultimap.builder();
+                for (Map.Entry<Object, ImmutableMap<K, V>> bucket : byIndexedValue.entrySet()) {
+                    builder.putAll(bucket.getKey(), bucket.getValue().values());
+                }
+                view = builder.build();
+                multimap = view;
+            }
+            return view;
+        }
+    }
+}
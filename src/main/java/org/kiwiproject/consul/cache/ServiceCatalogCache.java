@@ -6,6 +6,7 @@ import org.kiwiproject.consul.config.CacheConfig;
 import org.kiwiproject.consul.model.catalog.CatalogService;
 import org.kiwiproject.consul.option.QueryOptions;
 
+import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
 
 public class ServiceCatalogCache extends ConsulCache<String, CatalogService> {
@@ -27,6 +28,56 @@ public class ServiceCatalogCache extends ConsulCache<String, CatalogService> {
             callbackScheduler);
     }
 
+    /**
+     * Index the instances of this cache by tag, under {@link ServiceIndexes#TAG}.
+     *
+     * @return this cache
+     * @see #addIndex(String, java.util.function.Function)
+     */
+    public ServiceCatalogCache indexByTag() {
+        addIndex(ServiceIndexes.TAG, CatalogService::getServiceTags);
+        return this;
+    }
+
+    /**
+     * Index the instances of this cache by node name, under {@link ServiceIndexes#NODE}.
+     *
+     * @return this cache
+     * @see #addIndex(String, java.util.function.Function)
+     */
+    public ServiceCatalogCache indexByNode() {
+        addIndex(ServiceIndexes.NODE, catalogService -> List.of(catalogService.getNode()));
+        return this;
+    }
+
+    /**
+     * Index the instances of this cache by the value of a node metadata key, under
+     * {@link ServiceIndexes#nodeMeta(String)}.
+     *
+     * @param key the node metadata key
+     * @return this cache
+     * @see #addIndex(String, java.util.function.Function)
+     */
+    public ServiceCatalogCache indexByNodeMeta(String key) {
+        addIndex(ServiceIndexes.nodeMeta(key),
+                catalogService -> ServiceIndexes.metaValue(catalogService.getNodeMeta(), key));
+        return this;
+    }
+
+    /**
+     * Index the instances of this cache by the value of a service metadata key, under
+     * {@link ServiceIndexes#serviceMeta(String)}.
+     *
+     * @param key the service metadata key
+     * @return this cache
+     * @see #addIndex(String, java.util.function.Function)
+     */
+    public ServiceCatalogCache indexByServiceMeta(String key) {
+        addIndex(ServiceIndexes.serviceMeta(key),
+                catalogService -> ServiceIndexes.metaValue(catalogService.getServiceMeta(), key));
+        return this;
+    }
+
     public static ServiceCatalogCache newCache(
             final CatalogClient catalogClient,
             final String serviceName,
@@ -44,7 +95,8 @@ public class ServiceCatalogCache extends ConsulCache<String, CatalogService> {
             final QueryOptions queryOptions,
             final int watchSeconds) {
 
-        return new ServiceCatalogCache(catalogClient, serviceName, queryOptions, watchSeconds, createDefault());
+        return new ServiceCatalogCache(catalogClient, serviceName, queryOptions, watchSeconds,
+                createDefault(catalogClient.getWatchScheduler()));
     }
 
     public static ServiceCatalogCache newCache(final CatalogClient catalogClient, final String serviceName) {
@@ -1,17 +1,34 @@
 package org.kiwiproject.consul.cache;
 
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Equivalence;
 import com.google.common.net.HostAndPort;
 import com.google.common.primitives.Ints;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.kiwiproject.consul.HealthClient;
 import org.kiwiproject.consul.config.CacheConfig;
+import org.kiwiproject.consul.model.health.HealthCheck;
 import org.kiwiproject.consul.model.health.ServiceHealth;
 import org.kiwiproject.consul.option.QueryOptions;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Function;
 
 public class ServiceHealthCache extends ConsulCache<ServiceHealthKey, ServiceHealth> {
 
+    @VisibleForTesting
+    static final Equivalence<ServiceHealth> MODIFY_INDEX_EQUIVALENCE = new ModifyIndexesEquivalence();
+
+    @Nullable
+    private volatile ServiceHealthInterner interner;
+
     private ServiceHealthCache(HealthClient healthClient,
                                String serviceName,
                                boolean passing,
@@ -35,6 +52,37 @@ public class ServiceHealthCache extends ConsulCache<ServiceHealthKey, ServiceHea
               callbackScheduler);
     }
 
+    @Override
+    protected Equivalence<? super ServiceHealth> getEntryEquivalence() {
+        return MODIFY_INDEX_EQUIVALENCE;
+    }
+
+    @Override
+    protected ServiceHealth compactValue(ServiceHealth value) {
+        ServiceHealthInterner currentInterner = interner;
+        return isNull(currentInterner) ? value : currentInterner.intern(value);
+    }
+
+    /**
+     * Store the instances of this cache in a compact form, in which equal nodes, tag lists, metadata maps and
+     * repeated strings (datacenters, addresses, check names and statuses...) are shared by all instances instead
+     * of being stored once per instance. This reduces the retained heap of caches of large services, at the cost
+     * of interning each new or modified instance; instances are equal to the ones Consul returned.
+     * <p>
+     * This must be called before the cache is started.
+     *
+     * @return this cache
+     */
+    public ServiceHealthCache withCompactMode() {
+        checkState(getState() == State.LATENT, "Compact mode must be enabled before the cache is started");
+        interner = new ServiceHealthInterner();
+        return this;
+    }
+
+    public boolean isCompactMode() {
+        return nonNull(interner);
+    }
+
     /**
      * Factory method to construct a string/{@link ServiceHealth} map for a particular service.
      * <p>
@@ -70,7 +118,8 @@ public class ServiceHealthCache extends ConsulCache<ServiceHealthKey, ServiceHea
             final QueryOptions queryOptions,
             final Function<ServiceHealth, ServiceHealthKey> keyExtractor) {
 
-        return new ServiceHealthCache(healthClient, serviceName, passing, watchSeconds, queryOptions, keyExtractor, createDefault());
+        return new ServiceHealthCache(healthClient, serviceName, passing, watchSeconds, queryOptions, keyExtractor,
+                createDefault(healthClient.getWatchScheduler()));
     }
 
     public static ServiceHealthCache newCache(
@@ -98,4 +147,98 @@ public class ServiceHealthCache extends ConsulCache<ServiceHealthKey, ServiceHea
         int watchSeconds = Ints.checkedCast(cacheConfig.getWatchDuration().getSeconds());
         return newCache(healthClient, serviceName, true, QueryOptions.BLANK, watchSeconds);
     }
+
+    /**
+     * Index the instances of this cache by tag, under {@link ServiceIndexes#TAG}.
+     *
+     * @return this cache
+     * @see #addIndex(String, Function)
+     */
+    public ServiceHealthCache indexByTag() {
+        addIndex(ServiceIndexes.TAG, serviceHealth -> serviceHealth.getService().getTags());
+        return this;
+    }
+
+    /**
+     * Index the instances of this cache by node name, under {@link ServiceIndexes#NODE}.
+     *
+     * @return this cache
+     * @see #addIndex(String, Function)
+     */
+    public ServiceHealthCache indexByNode() {
+        addIndex(ServiceIndexes.NODE, serviceHealth -> List.of(serviceHealth.getNode().getNode()));
+        return this;
+    }
+
+    /**
+     * Index the instances of this cache by the value of a node metadata key, under
+     * {@link ServiceIndexes#nodeMeta(String)}.
+     *
+     * @param key the node metadata key
+     * @return this cache
+     * @see #addIndex(String, Function)
+     */
+    public ServiceHealthCache indexByNodeMeta(String key) {
+        addIndex(ServiceIndexes.nodeMeta(key),
+                serviceHealth -> ServiceIndexes.metaValue(serviceHealth.getNode().getNodeMeta().orElse(Map.of()), key));
+        return this;
+    }
+
+    /**
+     * Index the instances of this cache by the value of a service metadata key, under
+     * {@link ServiceIndexes#serviceMeta(String)}.
+     *
+     * @param key the service metadata key
+     * @return this cache
+     * @see #addIndex(String, Function)
+     */
+    public ServiceHealthCache indexByServiceMeta(String key) {
+        addIndex(ServiceIndexes.serviceMeta(key),
+                serviceHealth -> ServiceIndexes.metaValue(serviceHealth.getService().getMeta(), key));
+        return this;
+    }
+
+    /**
+     * Compares the modify indexes of the node, the service and each of the checks of two {@link ServiceHealth}
+     * entries, since each of those is written separately in Consul. Falls back to {@link Object#equals(Object)}
+     * when any of the indexes is missing.
+     */
+    private static final class ModifyIndexesEquivalence extends Equivalence<ServiceHealth> {
+
+        @Override
+        protected boolean doEquivalent(ServiceHealth a, ServiceHealth b) {
+            if (!hasAllIndexes(a) || !hasAllIndexes(b)) {
+                return a.equals(b);
+            }
+
+            List<HealthCheck> checksA = a.getChecks();
+            List<HealthCheck> checksB = b.getChecks();
+            if (!a.getNode().getModifyIndex().equals(b.getNode().getModifyIndex())
+                    || !a.getService().getModifyIndex().equals(b.getService().getModifyIndex())
+                    || checksA.size() != checksB.size()) {
+                return false;
+            }
+            for (int i = 0; i < checksA.size(); i++) {
+                HealthCheck checkA = checksA.get(i);
+                HealthCheck checkB = checksB.get(i);
+                if (!checkA.getCheckId().equals(checkB.getCheckId())
+                        || !checkA.getModifyIndex().equals(checkB.getModifyIndex())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        protected int doHash(ServiceHealth serviceHealth) {
+            Optional<Long> modifyIndex = serviceHealth.getService().getModifyIndex();
+            return modifyIndex.isPresent() ? modifyIndex.get().hashCode() : serviceHealth.hashCode();
+        }
+
+        private static boolean hasAllIndexes(ServiceHealth serviceHealth) {
+            return serviceHealth.getNode().getModifyIndex().isPresent()
+                    && serviceHealth.getService().getModifyIndex().isPresent()
+                    && serviceHealth.getChecks().stream().allMatch(check -> check.getModifyIndex().isPresent());
+        }
+    }
 }
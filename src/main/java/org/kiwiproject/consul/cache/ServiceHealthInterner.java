@@ -0,0 +1,100 @@
+package org.kiwiproject.consul.cache;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.kiwiproject.consul.model.health.HealthCheck;
+import org.kiwiproject.consul.model.health.ImmutableHealthCheck;
+import org.kiwiproject.consul.model.health.ImmutableNode;
+import org.kiwiproject.consul.model.health.ImmutableService;
+import org.kiwiproject.consul.model.health.ImmutableServiceHealth;
+import org.kiwiproject.consul.model.health.Node;
+import org.kiwiproject.consul.model.health.Service;
+import org.kiwiproject.consul.model.health.ServiceHealth;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Replaces the parts that {@link ServiceHealth} entries have in common (nodes, tag lists, metadata maps and
+ * repeated strings such as datacenters, statuses and check names) with a single shared instance of each.
+ * <p>
+ * The interners hold their instances weakly, so parts that are no longer used by any entry of the cache can be
+ * garbage collected. The free-form output of health checks is not interned. Instances are safe for use by
+ * multiple threads.
+ *
+ * @see ServiceHealthCache#withCompactMode()
+ */
+final class ServiceHealthInterner {
+
+    private final Interner<Node> nodes = Interners.newWeakInterner();
+    private final Interner<ImmutableList<String>> tagLists = Interners.newWeakInterner();
+    private final Interner<ImmutableMap<String, String>> metaMaps = Interners.newWeakInterner();
+    private final Interner<String> strings = Interners.newWeakInterner();
+
+    /**
+     * @return a {@link ServiceHealth} equal to the given one, made of shared parts
+     */
+    ServiceHealth intern(ServiceHealth serviceHealth) {
+        return ImmutableServiceHealth.builder()
+                .node(internNode(serviceHealth.getNode()))
+                .service(internService(serviceHealth.getService()))
+                .checks(internChecks(serviceHealth.getChecks()))
+                .build();
+    }
+
+    // Interned strings are set with builders: withers return the same instance when given an equal value, so
+    // they would keep the strings of the source. Interned lists and maps are set with withers, which keep the
+    // given immutable collection, whereas builders copy it.
+
+    private Node internNode(Node node) {
+        Node compactNode = ImmutableNode.builder()
+                .from(node)
+                .node(strings.intern(node.getNode()))
+                .address(strings.intern(node.getAddress()))
+                .datacenter(internString(node.getDatacenter()))
+                .nodeMeta(node.getNodeMeta().map(this::internMeta))
+                .build();
+        return nodes.intern(compactNode);
+    }
+
+    private Service internService(Service service) {
+        return ImmutableService.builder()
+                .from(service)
+                .service(strings.intern(service.getService()))
+                .address(strings.intern(service.getAddress()))
+                .build()
+                .withTags(internTags(service.getTags()))
+                .withMeta(internMeta(service.getMeta()));
+    }
+
+    private ImmutableList<HealthCheck> internChecks(List<HealthCheck> checks) {
+        ImmutableList.Builder<HealthCheck> builder = ImmutableList.builderWithExpectedSize(checks.size());
+        for (HealthCheck check : checks) {
+            builder.add(ImmutableHealthCheck.builder()
+                    .from(check)
+                    .node(strings.intern(check.getNode()))
+                    .checkId(strings.intern(check.getCheckId()))
+                    .name(strings.intern(check.getName()))
+                    .status(strings.intern(check.getStatus()))
+                    .serviceName(internString(check.getServiceName()))
+                    .build()
+                    .withServiceTags(internTags(check.getServiceTags())));
+        }
+        return builder.build();
+    }
+
+    private ImmutableList<String> internTags(List<String> tags) {
+        return tagLists.intern(ImmutableList.copyOf(tags));
+    }
+
+    private ImmutableMap<String, String> internMeta(Map<String, String> meta) {
+        return metaMaps.intern(ImmutableMap.copyOf(meta));
+    }
+
+    private Optional<String> internString(Optional<String> value) {
+        return value.map(strings::intern);
+    }
+}
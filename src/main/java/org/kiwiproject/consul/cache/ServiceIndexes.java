@@ -0,0 +1,54 @@
+package org.kiwiproject.consul.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.isNull;
+
+import com.google.common.base.Strings;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Names of the standard secondary indexes of {@link ServiceHealthCache} and {@link ServiceCatalogCache}.
+ *
+ * @see ConsulCache#addIndex(String, java.util.function.Function)
+ */
+public final class ServiceIndexes {
+
+    /**
+     * The name of the index of service instances by tag.
+     */
+    public static final String TAG = "tag";
+
+    /**
+     * The name of the index of service instances by node name.
+     */
+    public static final String NODE = "node";
+
+    private ServiceIndexes() {
+        // utility class
+    }
+
+    /**
+     * @param key the node metadata key
+     * @return the name of the index of service instances by the value of a node metadata key
+     */
+    public static String nodeMeta(String key) {
+        checkArgument(!Strings.isNullOrEmpty(key), "key must not be null or empty");
+        return "node-meta:" + key;
+    }
+
+    /**
+     * @param key the service metadata key
+     * @return the name of the index of service instances by the value of a service metadata key
+     */
+    public static String serviceMeta(String key) {
+        checkArgument(!Strings.isNullOrEmpty(key), "key must not be null or empty");
+        return "service-meta:" + key;
+    }
+
+    static List<String> metaValue(Map<String, String> meta, String key) {
+        String value = meta.get(key);
+        return isNull(value) ? List.of() : List.of(value);
+    }
+}
@@ -0,0 +1,244 @@
+package org.kiwiproject.consul.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.kiwiproject.consul.model.catalog.ServiceWeights;
+import org.kiwiproject.consul.model.health.HealthCheck;
+import org.kiwiproject.consul.model.health.ServiceHealth;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+/**
+ * Selects instances of a service from the content of a {@link ServiceHealthCache}.
+ * <p>
+ * Each time the cache changes, its instances are compiled into an immutable snapshot (arrays of instances and of
+ * cumulative weights) that replaces the previous one atomically, so that selecting an instance takes no lock and
+ * allocates nothing. Selections made while the cache changes use either the previous or the new snapshot.
+ * <p>
+ * Instances with a critical check are never selected. The others are weighted with the {@link ServiceWeights}
+ * of their registration: the passing weight when all their checks pass, the warning weight when at least one
+ * check is in the warning state (and an instance whose applicable weight is zero is never selected). Instances
+ * registered without weights get a weight of 1, like in Consul.
+ * <p>
+ * The selection methods return null when there is no instance to select.
+ */
+public class ServiceInstanceSelector implements ConsulCache.Listener<ServiceHealthKey, ServiceHealth> {
+
+    @VisibleForTesting
+    static final int DEFAULT_WEIGHT = 1;
+
+    private static final String PASSING = "passing";
+    private static final String WARNING = "warning";
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private final AtomicInteger roundRobinCounter = new AtomicInteger();
+
+    /**
+     * Create a selector fed by the given cache.
+     * <p>
+     * The selector is added as a listener of the cache, so it is up-to-date immediately if the cache is already
+     * started; remove it with {@link ConsulCache#removeListener(ConsulCache.Listener)} to stop updating it.
+     *
+     * @param cache the cache of the service instances
+     * @return a new selector
+     */
+    public static ServiceInstanceSelector forCache(ServiceHealthCache cache) {
+        checkArgument(nonNull(cache), "cache must not be null");
+        var selector = new ServiceInstanceSelector();
+        cache.addListener(selector);
+        return selector;
+    }
+
+    @Override
+    public void notify(Map<ServiceHealthKey, ServiceHealth> newValues) {
+        snapshot = Snapshot.compile(newValues.values());
+    }
+
+    /**
+     * @return the number of instances that can currently be selected
+     */
+    public int size() {
+        return snapshot.instances.length;
+    }
+
+    /**
+     * @return the instances that can currently be selected, in the order used by round-robin selection
+     */
+    public List<ServiceHealth> getInstances() {
+        return Collections.unmodifiableList(Arrays.asList(snapshot.instances));
+    }
+
+    /**
+     * Select an instance at random, ignoring weights.
+     *
+     * @return the selected instance, or null if there is none
+     */
+    @Nullable
+    public ServiceHealth random() {
+        ServiceHealth[] instances = snapshot.instances;
+        if (instances.length == 0) {
+            return null;
+        }
+        return instances[ThreadLocalRandom.current().nextInt(instances.length)];
+    }
+
+    /**
+     * Select the instances one after the other, ignoring weights.
+     *
+     * @return the selected instance, or null if there is none
+     */
+    @Nullable
+    public ServiceHealth roundRobin() {
+        ServiceHealth[] instances = snapshot.instances;
+        if (instances.length == 0) {
+            return null;
+        }
+        return instances[Math.floorMod(roundRobinCounter.getAndIncrement(), instances.length)];
+    }
+
+    /**
+     * Select an instance at random, with a probability proportional to its weight.
+     *
+     * @return the selected instance, or null if there is none
+     */
+    @Nullable
+    public ServiceHealth weighted() {
+        Snapshot current = snapshot;
+        if (current.instances.length == 0) {
+            return null;
+        }
+        long target = ThreadLocalRandom.current().nextLong(current.totalWeight);
+        return current.instances[current.indexOfCumulativeWeight(target)];
+    }
+
+    /**
+     * Select the least loaded of two instances picked at random ("power of two choices"), the load of each
+     * instance being divided by its weight.
+     * <p>
+     * The load function is called twice per selection; to keep selections free of allocations, it should be
+     * created once and reused, and should not allocate either (for example by reading a counter of in-flight
+     * requests kept per instance).
+     *
+     * @param load the current load of an instance, such as its number of in-flight requests
+     * @return the selected instance, or null if there is none
+     */
+    @Nullable
+    public ServiceHealth powerOfTwoChoices(ToLongFunction<ServiceHealth> load) {
+        Snapshot current = snapshot;
+        int count = current.instances.length;
+        if (count == 0) {
+            return null;
+        }
+        if (count == 1) {
+            return current.instances[0];
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(count);
+        int second = random.nextInt(count - 1);
+        if (second >= first) {
+            second++;
+        }
+
+        ServiceHealth firstInstance = current.instances[first];
+        ServiceHealth secondInstance = current.instances[second];
+        // compare load / weight without dividing
+        double firstCost = (double) load.applyAsLong(firstInstance) * current.weights[second];
+        double secondCost = (double) load.applyAsLong(secondInstance) * current.weights[first];
+        return secondCost < firstCost ? secondInstance : firstInstance;
+    }
+
+    @VisibleForTesting
+    static int weightOf(ServiceHealth serviceHealth) {
+        boolean warning = false;
+        for (HealthCheck check : serviceHealth.getChecks()) {
+            String status = check.getStatus();
+            if (WARNING.equals(status)) {
+                warning = true;
+            } else if (!PASSING.equals(status)) {
+                return 0;
+            }
+        }
+
+        ServiceWeights weights = serviceHealth.getService().getWeights().orElse(null);
+        if (isNull(weights)) {
+            return DEFAULT_WEIGHT;
+        }
+        return Math.max(0, warning ? weights.getWarning() : weights.getPassing());
+    }
+
+    /**
+     * The immutable state used by selections.
+     */
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(new ServiceHealth[0], new int[0], new long[0], 0);
+
+        final ServiceHealth[] instances;
+        final int[] weights;
+        final long[] cumulativeWeights;
+        final long totalWeight;
+
+        Snapshot(ServiceHealth[] instances, int[] weights, long[] cumulativeWeights, long totalWeight) {
+            this.instances = instances;
+            this.weights = weights;
+            this.cumulativeWeights = cumulativeWeights;
+            this.totalWeight = totalWeight;
+        }
+
+        static Snapshot compile(Iterable<ServiceHealth> serviceHealths) {
+            List<ServiceHealth> selectable = new ArrayList<>();
+            List<Integer> selectableWeights = new ArrayList<>();
+            for (ServiceHealth serviceHealth : serviceHealths) {
+                int weight = weightOf(serviceHealth);
+                if (weight > 0) {
+                    selectable.add(serviceHealth);
+                    selectableWeights.add(weight);
+                }
+            }
+            if (selectable.isEmpty()) {
+                return EMPTY;
+            }
+
+            int count = selectable.size();
+            var instances = selectable.toArray(new ServiceHealth[0]);
+            var weights = new int[count];
+            var cumulativeWeights = new long[count];
+            long total = 0;
+            for (int i = 0; i < count; i++) {
+                weights[i] = selectableWeights.get(i);
+                total += weights[i];
+                cumulativeWeights[i] = total;
+            }
+            return new Snapshot(instances, weights, cumulativeWeights, total);
+        }
+
+        /**
+         * @return the index of the first instance whose cumulative weight is greater than the target
+         */
+        int indexOfCumulativeWeight(long target) {
+            int low = 0;
+            int high = cumulativeWeights.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulativeWeights[middle] > target) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package org.kiwiproject.consul.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A watch scheduler that is shared by all the {@link ConsulCache} instances created from one
+ * {@link org.kiwiproject.consul.Consul} client.
+ * <p>
+ * Delayed tasks are kept in a hashed timing wheel that is advanced by a single ticker thread, so
+ * scheduling and cancelling are O(1) regardless of the number of caches. Expired tasks are handed,
+ * in deadline order, to a fixed-size pool of worker threads. Since a cache only ever has its next
+ * poll pending, this FIFO hand-off is fair across caches.
+ * <p>
+ * Each cache obtains its own {@link ConsulCache.Scheduler} view via {@link #newCacheScheduler()}.
+ * Shutting down a view only cancels the tasks of that cache; the shared threads are only stopped
+ * by {@link #close()}, which {@link org.kiwiproject.consul.Consul#destroy()} calls. Tasks scheduled after
+ * {@link #close()} are ignored, since caches may still be finishing a poll when their client is destroyed.
+ * <p>
+ * Threads are started lazily when the first task is scheduled.
+ */
+public class SharedWatchScheduler implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedWatchScheduler.class);
+
+    private static final int STATE_LATENT = 0;
+    private static final int STATE_STARTED = 1;
+    private static final int STATE_SHUTDOWN = 2;
+
+    @VisibleForTesting
+    static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final long tickNanos;
+    private final int mask;
+    private final Queue<WatchTask>[] wheel;
+    private final Queue<WatchTask> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger state = new AtomicInteger(STATE_LATENT);
+    private final ExecutorService workers;
+    private final Thread tickerThread;
+    private final Set<CacheScheduler> cacheSchedulers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong scheduledCount = new AtomicLong();
+    private final AtomicLong executedCount = new AtomicLong();
+    private final AtomicLong totalLagNanos = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+
+    private volatile long startTime;
+
+    /**
+     * Create a new scheduler with the given number of worker threads and a tick duration.
+     *
+     * @param workerThreads the number of threads that run expired tasks
+     * @param tickDuration  the resolution of the timing wheel
+     */
+    public SharedWatchScheduler(int workerThreads, Duration tickDuration) {
+        this(workerThreads, tickDuration, DEFAULT_WHEEL_SIZE);
+    }
+
+    @SuppressWarnings("unchecked")
+    @VisibleForTesting
+    SharedWatchScheduler(int workerThreads, Duration tickDuration, int wheelSize) {
+        checkArgument(workerThreads > 0, "workerThreads must be positive");
+        requireNonNull(tickDuration, "tickDuration must not be null");
+        checkArgument(!tickDuration.isNegative() && !tickDuration.isZero(), "tickDuration must be positive");
+        checkArgument(Integer.bitCount(wheelSize) == 1, "wheelSize must be a power of two");
+
+        this.tickNanos = tickDuration.toNanos();
+        this.mask = wheelSize - 1;
+        this.wheel = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("consulCacheWatchScheduler-%d")
+                        .setDaemon(true)
+                        .build());
+        this.tickerThread = new ThreadFactoryBuilder()
+                .setNameFormat("consulCacheWatchTicker-%d")
+                .setDaemon(true)
+                .build()
+                .newThread(this::runTicker);
+    }
+
+    /**
+     * Create a {@link ConsulCache.Scheduler} for a single cache, backed by this shared scheduler.
+     *
+     * @return a new scheduler view
+     */
+    public ConsulCache.Scheduler newCacheScheduler() {
+        var cacheScheduler = new CacheScheduler();
+        cacheSchedulers.add(cacheScheduler);
+        if (isShutdown()) {
+            cacheScheduler.shutdownNow();
+        }
+        return cacheScheduler;
+    }
+
+    /**
+     * @return the number of tasks that are scheduled but have not yet started running
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * @return the total number of tasks ever scheduled
+     */
+    public long getScheduledTaskCount() {
+        return scheduledCount.get();
+    }
+
+    /**
+     * @return the total number of tasks that have been run
+     */
+    public long getExecutedTaskCount() {
+        return executedCount.get();
+    }
+
+    /**
+     * Gets the largest delay observed between a task's deadline and the moment it started running.
+     *
+     * @return the maximum lag
+     */
+    public Duration getMaxLag() {
+        return Duration.ofNanos(maxLagNanos.get());
+    }
+
+    /**
+     * Gets the average delay between a task's deadline and the moment it started running.
+     *
+     * @return the average lag, or zero if no task has run yet
+     */
+    public Duration getAverageLag() {
+        long executed = executedCount.get();
+        return executed == 0 ? Duration.ZERO : Duration.ofNanos(totalLagNanos.get() / executed);
+    }
+
+    public boolean isShutdown() {
+        return state.get() == STATE_SHUTDOWN;
+    }
+
+    /**
+     * Stops the ticker and worker threads. Pending tasks are cancelled.
+     */
+    @Override
+    public void close() {
+        if (state.getAndSet(STATE_SHUTDOWN) != STATE_SHUTDOWN) {
+            tickerThread.interrupt();
+            workers.shutdownNow();
+            for (CacheScheduler cacheScheduler : cacheSchedulers) {
+                cacheScheduler.shutdownNow();
+            }
+        }
+    }
+
+    private void start() {
+        if (state.get() == STATE_LATENT && state.compareAndSet(STATE_LATENT, STATE_STARTED)) {
+            startTime = System.nanoTime();
+            tickerThread.start();
+        }
+    }
+
+    private void submit(WatchTask task, long delayNanos) {
+        start();
+        scheduledCount.incrementAndGet();
+
+        if (delayNanos <= 0) {
+            dispatch(task);
+        } else {
+            pendingTimeouts.add(task);
+        }
+    }
+
+    private void dispatch(WatchTask task) {
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException e) {
+            if (!isShutdown()) {
+                throw e;
+            }
+            task.cancel();
+        }
+    }
+
+    private void runTicker() {
+        long tick = 0;
+        while (state.get() == STATE_STARTED) {
+            long deadline = tickNanos * (tick + 1);
+            if (!waitUntil(deadline)) {
+                return;
+            }
+
+            transferPendingTimeouts(tick);
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private boolean waitUntil(long deadline) {
+        while (true) {
+            long sleepNanos = startTime + deadline - System.nanoTime();
+            if (sleepNanos <= 0) {
+                return true;
+            }
+            LockSupport.parkNanos(this, sleepNanos);
+            if (Thread.interrupted() || state.get() != STATE_STARTED) {
+                return false;
+            }
+        }
+    }
+
+    private void transferPendingTimeouts(long currentTick) {
+        WatchTask task;
+        while (!isNull(task = pendingTimeouts.poll())) {
+            if (task.isCancelled()) {
+                continue;
+            }
+            long calculated = (task.deadline - startTime) / tickNanos;
+            task.remainingRounds = (calculated - currentTick) / wheel.length;
+            long ticks = Math.max(calculated, currentTick);
+            wheel[(int) (ticks & mask)].add(task);
+        }
+    }
+
+    private void expire(Queue<WatchTask> bucket) {
+        Iterator<WatchTask> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            WatchTask task = iterator.next();
+            if (task.isCancelled()) {
+                iterator.remove();
+            } else if (task.remainingRounds <= 0) {
+                iterator.remove();
+                dispatch(task);
+            } else {
+                task.remainingRounds--;
+            }
+        }
+    }
+
+    private void recordLag(long lagNanos) {
+        long lag = Math.max(0, lagNanos);
+        totalLagNanos.addAndGet(lag);
+        maxLagNanos.accumulateAndGet(lag, Math::max);
+    }
+
+    private final class WatchTask implements Runnable {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int RUNNING = 2;
+
+        private final CacheScheduler owner;
+        private final Runnable runnable;
+        private final long deadline;
+        private final AtomicInteger taskState = new AtomicInteger(PENDING);
+
+        // only accessed by the ticker thread
+        private long remainingRounds;
+
+        WatchTask(CacheScheduler owner, Runnable runnable, long deadline) {
+            this.owner = owner;
+            this.runnable = runnable;
+            this.deadline = deadline;
+            queueDepth.incrementAndGet();
+        }
+
+        boolean isCancelled() {
+            return taskState.get() == CANCELLED;
+        }
+
+        void cancel() {
+            if (taskState.compareAndSet(PENDING, CANCELLED)) {
+                queueDepth.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!taskState.compareAndSet(PENDING, RUNNING)) {
+                return;
+            }
+            queueDepth.decrementAndGet();
+            owner.tasks.remove(this);
+            recordLag(System.nanoTime() - deadline);
+            executedCount.incrementAndGet();
+            try {
+                runnable.run();
+            } catch (RuntimeException e) {
+                LOG.warn("Shared watch scheduler task threw an exception.", e);
+            }
+        }
+    }
+
+    private final class CacheScheduler implements ConsulCache.Scheduler {
+
+        private final Set<WatchTask> tasks = ConcurrentHashMap.newKeySet();
+        private volatile boolean shutdown;
+
+        @Override
+        public void schedule(Runnable r, long delay, TimeUnit unit) {
+            if (shutdown) {
+                if (isShutdown()) {
+                    LOG.debug("Ignoring a task scheduled after the shared watch scheduler was closed");
+                }
+                return;
+            }
+            long delayNanos = Math.max(0, unit.toNanos(delay));
+            var task = new WatchTask(this, r, System.nanoTime() + delayNanos);
+            tasks.add(task);
+            submit(task, delayNanos);
+            // the task may have been missed by a concurrent shutdownNow
+            if (shutdown) {
+                task.cancel();
+            }
+        }
+
+        @Override
+        public void shutdownNow() {
+            shutdown = true;
+            cacheSchedulers.remove(this);
+            tasks.forEach(WatchTask::cancel);
+            tasks.clear();
+        }
+    }
+}
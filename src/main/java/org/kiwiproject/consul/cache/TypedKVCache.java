@@ -0,0 +1,203 @@
+package org.kiwiproject.consul.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.nonNull;
+
+import com.google.common.collect.ImmutableMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.kiwiproject.consul.model.kv.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A view of a {@link KVCache} whose values are decoded once, for instance parsed from JSON or YAML documents.
+ * <p>
+ * Decoded values are kept per key along with the {@code ModifyIndex} of the KV entry they were decoded from, and
+ * each time the KV cache changes only the entries whose {@code ModifyIndex} changed are decoded again; the others
+ * keep the same decoded instance.
+ * <p>
+ * Entries for which the decoder returns null or throws an exception are left out of the map (the exception is
+ * logged), and are not decoded again until they are modified.
+ *
+ * @param <T> the type of decoded values
+ */
+public class TypedKVCache<T> implements ConsulCache.Listener<String, Value>, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TypedKVCache.class);
+
+    private final KVCache kvCache;
+    private final Function<? super Value, ? extends T> decoder;
+    private final CopyOnWriteArrayList<ConsulCache.Listener<String, T>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong decodeCount = new AtomicLong();
+    private final AtomicLong decodeFailureCount = new AtomicLong();
+
+    private ImmutableMap<String, Decoded<T>> decoded = ImmutableMap.of();
+    private boolean populated;
+    private volatile ImmutableMap<String, T> map = ImmutableMap.of();
+
+    private TypedKVCache(KVCache kvCache, Function<? super Value, ? extends T> decoder) {
+        this.kvCache = kvCache;
+        this.decoder = decoder;
+    }
+
+    /**
+     * Create a typed view fed by the given cache.
+     * <p>
+     * The view is added as a listener of the cache, so it is up-to-date immediately if the cache is already
+     * started. The lifecycle of the cache is not managed by the view: {@link #close() closing} the view only
+     * stops updating it.
+     *
+     * @param kvCache the KV cache
+     * @param decoder the function decoding each KV entry, which may return null to leave an entry out
+     * @param <T>     the type of decoded values
+     * @return a new typed view
+     */
+    public static <T> TypedKVCache<T> forCache(KVCache kvCache, Function<? super Value, ? extends T> decoder) {
+        checkArgument(nonNull(kvCache), "kvCache must not be null");
+        checkArgument(nonNull(decoder), "decoder must not be null");
+        var typedCache = new TypedKVCache<T>(kvCache, decoder);
+        kvCache.addListener(typedCache);
+        return typedCache;
+    }
+
+    @Override
+    public synchronized void notify(Map<String, Value> newValues) {
+        ImmutableMap<String, T> newMap = update(newValues);
+        for (ConsulCache.Listener<String, T> listener : listeners) {
+            try {
+                listener.notify(newMap);
+            } catch (RuntimeException e) {
+                LOG.warn("TypedKVCache Listener's notify method threw an exception.", e);
+            }
+        }
+    }
+
+    private ImmutableMap<String, T> update(Map<String, Value> newValues) {
+        ImmutableMap<String, Decoded<T>> previous = decoded;
+        ImmutableMap.Builder<String, Decoded<T>> decodedBuilder =
+                ImmutableMap.builderWithExpectedSize(newValues.size());
+        ImmutableMap.Builder<String, T> mapBuilder = ImmutableMap.builderWithExpectedSize(newValues.size());
+
+        for (Map.Entry<String, Value> entry : newValues.entrySet()) {
+            Decoded<T> previousDecoded = previous.get(entry.getKey());
+            long modifyIndex = entry.getValue().getModifyIndex();
+            Decoded<T> current = nonNull(previousDecoded) && previousDecoded.modifyIndex == modifyIndex
+                    ? previousDecoded
+                    : new Decoded<>(modifyIndex, decode(entry.getKey(), entry.getValue()));
+
+            decodedBuilder.put(entry.getKey(), current);
+            if (nonNull(current.value)) {
+                mapBuilder.put(entry.getKey(), current.value);
+            }
+        }
+
+        decoded = decodedBuilder.buildOrThrow();
+        map = mapBuilder.buildOrThrow();
+        populated = true;
+        return map;
+    }
+
+    @Nullable
+    private T decode(String key, Value value) {
+        decodeCount.incrementAndGet();
+        try {
+            return decoder.apply(value);
+        } catch (RuntimeException e) {
+            decodeFailureCount.incrementAndGet();
+            LOG.warn("Unable to decode the value of key {} (ModifyIndex {}); leaving it out", key,
+                    value.getModifyIndex(), e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the decoded values, keyed like the map of the KV cache
+     */
+    public ImmutableMap<String, T> getMap() {
+        return map;
+    }
+
+    /**
+     * @param key the key, relative to the root path of the KV cache
+     * @return an Optional containing the decoded value, or an empty Optional if there is none
+     */
+    public Optional<T> get(String key) {
+        return Optional.ofNullable(map.get(key));
+    }
+
+    /**
+     * @return the number of times the decoder was called
+     */
+    public long getDecodeCount() {
+        return decodeCount.get();
+    }
+
+    /**
+     * @return the number of times the decoder threw an exception
+     */
+    public long getDecodeFailureCount() {
+        return decodeFailureCount.get();
+    }
+
+    /**
+     * Add a listener notified with the decoded values each time the KV cache changes.
+     * <p>
+     * Like {@link ConsulCache#addListener(ConsulCache.Listener)}, the listener is immediately notified with the
+     * current decoded values if this view has already received the content of the KV cache. Listeners are
+     * notified from the thread notifying this view, usually the polling thread of the KV cache.
+     *
+     * @param listener the listener to add
+     * @return true to indicate the listener was added
+     */
+    public synchronized boolean addListener(ConsulCache.Listener<String, T> listener) {
+        checkArgument(nonNull(listener), "listener must not be null");
+        boolean added = listeners.add(listener);
+        if (populated) {
+            try {
+                listener.notify(map);
+            } catch (RuntimeException e) {
+                LOG.warn("TypedKVCache Listener's notify method threw an exception.", e);
+            }
+        }
+        return added;
+    }
+
+    public List<ConsulCache.Listener<String, T>> getListeners() {
+        return List.copyOf(listeners);
+    }
+
+    public boolean removeListener(ConsulCache.Listener<String, T> listener) {
+        return listeners.remove(listener);
+    }
+
+    public KVCache getKVCache() {
+        return kvCache;
+    }
+
+    /**
+     * Stop updating this view. The KV cache itself is not stopped.
+     */
+    @Override
+    public void close() {
+        kvCache.removeListener(this);
+    }
+
+    private static final class Decoded<T> {
+
+        private final long modifyIndex;
+        @Nullable
+        private final T value;
+
+        Decoded(long modifyIndex, @Nullable T value) {
+            this.modifyIndex = modifyIndex;
+            this.value = value;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import com.google.common.annotations.VisibleForTesting;
 import org.slf4j.Logger;
 
 import java.time.Duration;
+import java.util.Optional;
 
 public class CacheConfig {
 
@@ -25,6 +26,18 @@ public class CacheConfig {
     static final Duration DEFAULT_TIMEOUT_AUTO_ADJUSTMENT_MARGIN = Duration.ofSeconds(2);
     @VisibleForTesting
     static final RefreshErrorLogConsumer DEFAULT_REFRESH_ERROR_LOG_CONSUMER = Logger::error;
+    @VisibleForTesting
+    static final boolean DEFAULT_SHARED_WATCH_SCHEDULER_ENABLED = true;
+    @VisibleForTesting
+    static final int DEFAULT_WATCH_SCHEDULER_THREADS = 2;
+    @VisibleForTesting
+    static final Duration DEFAULT_WATCH_SCHEDULER_TICK_DURATION = Duration.ofMillis(10);
+    @VisibleForTesting
+    static final boolean DEFAULT_ADAPTIVE_POLLING_ENABLED = false;
+    @VisibleForTesting
+    static final Duration DEFAULT_ADAPTIVE_POLLING_MAX_DELAY = Duration.ofSeconds(5);
+    @VisibleForTesting
+    static final Duration DEFAULT_POLLING_JITTER = Duration.ZERO;
 
     private final Duration watchDuration;
     private final Duration minBackOffDelay;
@@ -34,6 +47,13 @@ public class CacheConfig {
     private final Duration timeoutAutoAdjustmentMargin;
     private final boolean timeoutAutoAdjustmentEnabled;
     private final RefreshErrorLogConsumer refreshErrorLogConsumer;
+    private final boolean sharedWatchSchedulerEnabled;
+    private final int watchSchedulerThreads;
+    private final Duration watchSchedulerTickDuration;
+    private final boolean adaptivePollingEnabled;
+    private final Duration adaptivePollingMaxDelay;
+    private final CacheRequestBudget requestBudget;
+    private final Duration pollingJitter;
 
     private CacheConfig(Duration watchDuration,
                         Duration minBackOffDelay,
@@ -42,7 +62,14 @@ public class CacheConfig {
                         Duration minDelayOnEmptyResult,
                         boolean timeoutAutoAdjustmentEnabled,
                         Duration timeoutAutoAdjustmentMargin,
-                        RefreshErrorLogConsumer refreshErrorLogConsumer) {
+                        RefreshErrorLogConsumer refreshErrorLogConsumer,
+                        boolean sharedWatchSchedulerEnabled,
+                        int watchSchedulerThreads,
+                        Duration watchSchedulerTickDuration,
+                        boolean adaptivePollingEnabled,
+                        Duration adaptivePollingMaxDelay,
+                        CacheRequestBudget requestBudget,
+                        Duration pollingJitter) {
         this.watchDuration = watchDuration;
         this.minBackOffDelay = minBackOffDelay;
         this.maxBackOffDelay = maxBackOffDelay;
@@ -51,6 +78,13 @@ public class CacheConfig {
         this.timeoutAutoAdjustmentEnabled = timeoutAutoAdjustmentEnabled;
         this.timeoutAutoAdjustmentMargin = timeoutAutoAdjustmentMargin;
         this.refreshErrorLogConsumer = refreshErrorLogConsumer;
+        this.sharedWatchSchedulerEnabled = sharedWatchSchedulerEnabled;
+        this.watchSchedulerThreads = watchSchedulerThreads;
+        this.watchSchedulerTickDuration = watchSchedulerTickDuration;
+        this.adaptivePollingEnabled = adaptivePollingEnabled;
+        this.adaptivePollingMaxDelay = adaptivePollingMaxDelay;
+        this.requestBudget = requestBudget;
+        this.pollingJitter = pollingJitter;
     }
 
     /**
@@ -127,6 +161,69 @@ public class CacheConfig {
         return refreshErrorLogConsumer;
     }
 
+    /**
+     * Should caches created from a client share the watch scheduler of that client?
+     *
+     * @return true if caches share one scheduler per client, false if each cache gets its own thread
+     */
+    public boolean isSharedWatchSchedulerEnabled() {
+        return sharedWatchSchedulerEnabled;
+    }
+
+    /**
+     * Gets the number of worker threads of the shared watch scheduler.
+     *
+     * @return the number of worker threads
+     */
+    public int getWatchSchedulerThreads() {
+        return watchSchedulerThreads;
+    }
+
+    /**
+     * Gets the tick duration (i.e. the timer resolution) of the shared watch scheduler.
+     *
+     * @return the tick duration
+     */
+    public Duration getWatchSchedulerTickDuration() {
+        return watchSchedulerTickDuration;
+    }
+
+    /**
+     * Is the delay between two requests of a cache adapted to how often its data changes?
+     *
+     * @return true if adaptive polling is enabled, otherwise false
+     */
+    public boolean isAdaptivePollingEnabled() {
+        return adaptivePollingEnabled;
+    }
+
+    /**
+     * Gets the maximum delay between two requests of a cache when adaptive polling is enabled.
+     *
+     * @return the maximum adaptive delay
+     */
+    public Duration getAdaptivePollingMaxDelay() {
+        return adaptivePollingMaxDelay;
+    }
+
+    /**
+     * Gets the budget that limits the rate of requests sent by caches, if any.
+     *
+     * @return an Optional containing the request budget, or an empty Optional if requests are not limited
+     */
+    public Optional<CacheRequestBudget> getRequestBudget() {
+        return Optional.ofNullable(requestBudget);
+    }
+
+    /**
+     * Gets the maximum random delay added before each request of a cache.
+     *
+     * @return the polling jitter, zero if polls are not jittered
+     */
+    public Duration getPollingJitter() {
+        return pollingJitter;
+    }
+
     /**
      * Creates a new {@link CacheConfig.Builder} object.
      *
@@ -148,6 +245,13 @@ public class CacheConfig {
         private Duration timeoutAutoAdjustmentMargin = DEFAULT_TIMEOUT_AUTO_ADJUSTMENT_MARGIN;
         private boolean timeoutAutoAdjustmentEnabled = DEFAULT_TIMEOUT_AUTO_ADJUSTMENT_ENABLED;
         private RefreshErrorLogConsumer refreshErrorLogConsumer = DEFAULT_REFRESH_ERROR_LOG_CONSUMER;
+        private boolean sharedWatchSchedulerEnabled = DEFAULT_SHARED_WATCH_SCHEDULER_ENABLED;
+        private int watchSchedulerThreads = DEFAULT_WATCH_SCHEDULER_THREADS;
+        private Duration watchSchedulerTickDuration = DEFAULT_WATCH_SCHEDULER_TICK_DURATION;
+        private boolean adaptivePollingEnabled = DEFAULT_ADAPTIVE_POLLING_ENABLED;
+        private Duration adaptivePollingMaxDelay = DEFAULT_ADAPTIVE_POLLING_MAX_DELAY;
+        private Duration pollingJitter = DEFAULT_POLLING_JITTER;
+        private CacheRequestBudget requestBudget;
 
         private Builder() {
 
@@ -274,6 +378,103 @@ public class CacheConfig {
             return this;
         }
 
+        /**
+         * Enable/Disable the watch scheduler shared by all caches created from the same client.
+         * <p>
+         * When disabled, each cache created without an explicit executor gets its own scheduler thread.
+         *
+         * @param enabled use true to share one scheduler per client, false to use one thread per cache
+         * @return the Builder instance
+         */
+        public Builder withSharedWatchSchedulerEnabled(boolean enabled) {
+            this.sharedWatchSchedulerEnabled = enabled;
+            return this;
+        }
+
+        /**
+         * Sets the number of worker threads of the shared watch scheduler.
+         *
+         * @param threads the number of worker threads
+         * @return the Builder instance
+         * @throws IllegalArgumentException if {@code threads} is not positive
+         */
+        public Builder withWatchSchedulerThreads(int threads) {
+            checkArgument(threads > 0, "Threads must be positive");
+            this.watchSchedulerThreads = threads;
+            return this;
+        }
+
+        /**
+         * Sets the tick duration (i.e. the timer resolution) of the shared watch scheduler.
+         *
+         * @param tickDuration the tick duration to use
+         * @return the Builder instance
+         * @throws IllegalArgumentException if {@code tickDuration} is zero or negative
+         */
+        public Builder withWatchSchedulerTickDuration(Duration tickDuration) {
+            this.watchSchedulerTickDuration = checkNotNull(tickDuration, "Tick duration cannot be null");
+            checkArgument(!tickDuration.isNegative() && !tickDuration.isZero(), "Tick duration must be positive");
+            return this;
+        }
+
+        /**
+         * Enable/Disable adaptive polling.
+         * <p>
+         * When enabled, the delay between two requests of a cache grows while its {@code X-Consul-Index} keeps
+         * moving, up to the {@link #withAdaptivePollingMaxDelay(Duration) maximum}, and shrinks back to the
+         * {@link #withMinDelayBetweenRequests(Duration) minimum} when it stops moving.
+         *
+         * @param enabled use true to enable adaptive polling, false to always use the minimum delay
+         * @return the Builder instance
+         */
+        public Builder withAdaptivePollingEnabled(boolean enabled) {
+            this.adaptivePollingEnabled = enabled;
+            return this;
+        }
+
+        /**
+         * Sets the maximum delay between two requests of a cache when adaptive polling is enabled.
+         *
+         * @param delay the maximum adaptive delay
+         * @return the Builder instance
+         * @throws IllegalArgumentException if {@code delay} is negative
+         */
+        public Builder withAdaptivePollingMaxDelay(Duration delay) {
+            this.adaptivePollingMaxDelay = checkNotNull(delay, DELAY_CANNOT_BE_NULL);
+            checkArgument(!delay.isNegative(), "Delay must be positive");
+            return this;
+        }
+
+        /**
+         * Sets the budget that limits the rate of requests sent by caches.
+         * <p>
+         * Use the same instance for all clients to enforce a process-wide limit.
+         *
+         * @param budget the request budget to use
+         * @return the Builder instance
+         */
+        public Builder withRequestBudget(CacheRequestBudget budget) {
+            this.requestBudget = checkNotNull(budget, "Budget cannot be null");
+            return this;
+        }
+
+        /**
+         * Sets the maximum random delay added before each request of a cache.
+         * <p>
+         * When many caches watch the same data, a change wakes all of them at once, and they would otherwise
+         * all send their next request at the same moment. A random delay between zero and this jitter spreads
+         * those requests out, at the cost of delaying the detection of the next change by as much.
+         *
+         * @param jitter the maximum random delay, zero to disable jitter
+         * @return the Builder instance
+         * @throws IllegalArgumentException if {@code jitter} is negative
+         */
+        public Builder withPollingJitter(Duration jitter) {
+            this.pollingJitter = checkNotNull(jitter, "Jitter cannot be null");
+            checkArgument(!jitter.isNegative(), "Jitter must not be negative");
+            return this;
+        }
+
         public CacheConfig build() {
             return new CacheConfig(watchDuration,
                     minBackOffDelay,
@@ -282,7 +483,14 @@ public class CacheConfig {
                     minDelayOnEmptyResult,
                     timeoutAutoAdjustmentEnabled,
                     timeoutAutoAdjustmentMargin,
-                    refreshErrorLogConsumer);
+                    refreshErrorLogConsumer,
+                    sharedWatchSchedulerEnabled,
+                    watchSchedulerThreads,
+                    watchSchedulerTickDuration,
+                    adaptivePollingEnabled,
+                    adaptivePollingMaxDelay,
+                    requestBudget,
+                    pollingJitter);
         }
     }
 
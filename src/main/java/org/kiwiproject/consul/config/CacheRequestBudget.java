@@ -0,0 +1,69 @@
+package org.kiwiproject.consul.config;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreType;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket that limits the rate at which caches send requests to Consul.
+ * <p>
+ * Every cache poll reserves one token. When the bucket is empty, the reservation succeeds anyway and returns
+ * how long the cache must wait before sending its request, so that polls are delayed (in the order in which
+ * they were reserved) rather than dropped, and no thread is ever blocked waiting for a token.
+ * <p>
+ * A budget applies to all the caches whose {@link CacheConfig} holds it; to enforce a process-wide limit,
+ * use the same instance in the configuration of every client.
+ */
+@JsonIgnoreType
+public class CacheRequestBudget {
+
+    private final double permitsPerNano;
+    private final double capacity;
+    private final Ticker ticker;
+
+    // guarded by this
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * Create a budget.
+     *
+     * @param requestsPerSecond the sustained number of requests per second
+     * @param burst             the number of requests that can be sent at once after a quiet period
+     */
+    public CacheRequestBudget(double requestsPerSecond, int burst) {
+        this(requestsPerSecond, burst, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    CacheRequestBudget(double requestsPerSecond, int burst, Ticker ticker) {
+        checkArgument(requestsPerSecond > 0, "requestsPerSecond must be positive");
+        checkArgument(burst > 0, "burst must be positive");
+        this.permitsPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = burst;
+        this.ticker = ticker;
+        this.tokens = burst;
+        this.lastRefillNanos = ticker.read();
+    }
+
+    /**
+     * Reserve a token for one request.
+     *
+     * @return the number of milliseconds to wait before sending the request, zero if it can be sent now
+     */
+    public synchronized long reserve() {
+        long now = ticker.read();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+
+        tokens -= 1;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMillis((long) Math.ceil(-tokens / permitsPerNano));
+    }
+}
@@ -0,0 +1,249 @@
+package org.kiwiproject.consul.config;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Sizing and timeouts of one transport lane, i.e. the dispatcher and connection pool used for one kind of
+ * request when lane isolation is enabled on the {@link org.kiwiproject.consul.Consul.Builder Consul builder}.
+ * <p>
+ * Timeouts that are not set are the ones of the Consul builder.
+ */
+public class TransportLaneConfig {
+
+    @VisibleForTesting
+    static final int DEFAULT_MAX_REQUESTS = Integer.MAX_VALUE;
+    @VisibleForTesting
+    static final int DEFAULT_MAX_REQUESTS_PER_HOST = Integer.MAX_VALUE;
+    @VisibleForTesting
+    static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+    @VisibleForTesting
+    static final Duration DEFAULT_KEEP_ALIVE_DURATION = Duration.ofMinutes(5);
+
+    private final int maxRequests;
+    private final int maxRequestsPerHost;
+    private final int maxIdleConnections;
+    private final Duration keepAliveDuration;
+    private final Duration connectTimeout;
+    private final Duration readTimeout;
+    private final Duration writeTimeout;
+
+    private TransportLaneConfig(int maxRequests,
+                                int maxRequestsPerHost,
+                                int maxIdleConnections,
+                                Duration keepAliveDuration,
+                                Duration connectTimeout,
+                                Duration readTimeout,
+                                Duration writeTimeout) {
+        this.maxRequests = maxRequests;
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        this.maxIdleConnections = maxIdleConnections;
+        this.keepAliveDuration = keepAliveDuration;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.writeTimeout = writeTimeout;
+    }
+
+    /**
+     * Gets the maximum number of requests in flight in the lane.
+     *
+     * @return the maximum number of requests
+     */
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    /**
+     * Gets the maximum number of requests in flight in the lane to each Consul host.
+     *
+     * @return the maximum number of requests per host
+     */
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    /**
+     * Gets the maximum number of idle connections kept in the connection pool of the lane.
+     *
+     * @return the maximum number of idle connections
+     */
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    /**
+     * Gets how long an idle connection is kept in the connection pool of the lane.
+     *
+     * @return the keep-alive duration
+     */
+    public Duration getKeepAliveDuration() {
+        return keepAliveDuration;
+    }
+
+    /**
+     * Gets the connect timeout of the lane.
+     *
+     * @return an Optional containing the connect timeout, or an empty Optional to use the one of the Consul builder
+     */
+    public Optional<Duration> getConnectTimeout() {
+        return Optional.ofNullable(connectTimeout);
+    }
+
+    /**
+     * Gets the read timeout of the lane.
+     *
+     * @return an Optional containing the read timeout, or an empty Optional to use the one of the Consul builder
+     */
+    public Optional<Duration> getReadTimeout() {
+        return Optional.ofNullable(readTimeout);
+    }
+
+    /**
+     * Gets the write timeout of the lane.
+     *
+     * @return an Optional containing the write timeout, or an empty Optional to use the one of the Consul builder
+     */
+    public Optional<Duration> getWriteTimeout() {
+        return Optional.ofNullable(writeTimeout);
+    }
+
+    /**
+     * Creates a new {@link TransportLaneConfig.Builder} object.
+     *
+     * @return A new lane configuration builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private static final String TIMEOUT_CANNOT_BE_NULL = "Timeout cannot be null";
+        private static final String TIMEOUT_MUST_NOT_BE_NEGATIVE = "Timeout must not be negative";
+
+        private int maxRequests = DEFAULT_MAX_REQUESTS;
+        private int maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+        private int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+        private Duration keepAliveDuration = DEFAULT_KEEP_ALIVE_DURATION;
+        private Duration connectTimeout;
+        private Duration readTimeout;
+        private Duration writeTimeout;
+
+        private Builder() {
+
+        }
+
+        /**
+         * Sets the maximum number of requests in flight in the lane. Further requests wait until one completes.
+         *
+         * @param maxRequests the maximum number of requests
+         * @return the Builder instance
+         * @throws IllegalArgumentException if {@code maxRequests} is not positive
+         */
+        public Builder withMaxRequests(int maxRequests) {
+            checkArgument(maxRequests > 0, "Max requests must be positive");
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of requests in flight in the lane to each Consul host.
+         * <p>
+         * The {@link org.kiwiproject.consul.Consul.Builder#withMaxRequestsPerHost(int) maximum number of
+         * requests per host} of the Consul builder still applies if it is lower.
+         *
+         * @param maxRequestsPerHost the maximum number of requests per host
+         * @return the Builder instance
+         * @throws IllegalArgumentException if {@code maxRequestsPerHost} is not positive
+         */
+        public Builder withMaxRequestsPerHost(int maxRequestsPerHost) {
+            checkArgument(maxRequestsPerHost > 0, "Max requests per host must be positive");
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of idle connections kept in the connection pool of the lane.
+         *
+         * @param maxIdleConnections the maximum number of idle connections
+         * @return the Builder instance
+         * @throws IllegalArgumentException if {@code maxIdleConnections} is negative
+         */
+        public Builder withMaxIdleConnections(int maxIdleConnections) {
+            checkArgument(maxIdleConnections >= 0, "Max idle connections must not be negative");
+            this.maxIdleConnections = maxIdleConnections;
+            return this;
+        }
+
+        /**
+         * Sets how long an idle connection is kept in the connection pool of the lane.
+         *
+         * @param keepAliveDuration the keep-alive duration
+         * @return the Builder instance
+         * @throws IllegalArgumentException if {@code keepAliveDuration} is zero or negative
+         */
+        public Builder withKeepAliveDuration(Duration keepAliveDuration) {
+            this.keepAliveDuration = checkNotNull(keepAliveDuration, "Keep-alive duration cannot be null");
+            checkArgument(!keepAliveDuration.isNegative() && !keepAliveDuration.isZero(),
+                    "Keep-alive duration must be positive");
+            return this;
+        }
+
+        /**
+         * Sets the connect timeout of the lane.
+         *
+         * @param timeout the connect timeout, zero for no timeout
+         * @return the Builder instance
+         * @throws IllegalArgumentException if {@code timeout} is negative
+         */
+        public Builder withConnectTimeout(Duration timeout) {
+            this.connectTimeout = checkNotNull(timeout, TIMEOUT_CANNOT_BE_NULL);
+            checkArgument(!timeout.isNegative(), TIMEOUT_MUST_NOT_BE_NEGATIVE);
+            return this;
+        }
+
+        /**
+         * Sets the read timeout of the lane.
+         * <p>
+         * The read timeout of blocking queries is still adjusted to their wait time when the
+         * {@link CacheConfig.Builder#withTimeoutAutoAdjustmentEnabled(boolean) automatic adjustment} is enabled.
+         *
+         * @param timeout the read timeout, zero for no timeout
+         * @return the Builder instance
+         * @throws IllegalArgumentException if {@code timeout} is negative
+         */
+        public Builder withReadTimeout(Duration timeout) {
+            this.readTimeout = checkNotNull(timeout, TIMEOUT_CANNOT_BE_NULL);
+            checkArgument(!timeout.isNegative(), TIMEOUT_MUST_NOT_BE_NEGATIVE);
+            return this;
+        }
+
+        /**
+         * Sets the write timeout of the lane.
+         *
+         * @param timeout the write timeout, zero for no timeout
+         * @return the Builder instance
+         * @throws IllegalArgumentException if {@code timeout} is negative
+         */
+        public Builder withWriteTimeout(Duration timeout) {
+            this.writeTimeout = checkNotNull(timeout, TIMEOUT_CANNOT_BE_NULL);
+            checkArgument(!timeout.isNegative(), TIMEOUT_MUST_NOT_BE_NEGATIVE);
+            return this;
+        }
+
+        public TransportLaneConfig build() {
+            return new TransportLaneConfig(maxRequests,
+                    maxRequestsPerHost,
+                    maxIdleConnections,
+                    keepAliveDuration,
+                    connectTimeout,
+                    readTimeout,
+                    writeTimeout);
+        }
+    }
+}
@@ -57,6 +57,7 @@ public class ConsulResponse<T> {
     private final boolean knownLeader;
     private final BigInteger index;
     private final Optional<CacheResponseInfo> cacheResponseInfo;
+    private final boolean stale;
 
     @VisibleForTesting
     static CacheResponseInfo buildCacheResponseInfo(String headerHitMiss, String headerAge) throws NumberFormatException {
@@ -72,11 +73,21 @@ public class ConsulResponse<T> {
     }
 
     public ConsulResponse(T response, long lastContact, boolean knownLeader, BigInteger index, Optional<CacheResponseInfo> cacheInfo) {
+        this(response, lastContact, knownLeader, index, cacheInfo, false);
+    }
+
+    public ConsulResponse(T response,
+                          long lastContact,
+                          boolean knownLeader,
+                          BigInteger index,
+                          Optional<CacheResponseInfo> cacheInfo,
+                          boolean stale) {
         this.response = response;
         this.lastContact = lastContact;
         this.knownLeader = knownLeader;
         this.index = index;
         this.cacheResponseInfo = cacheInfo;
+        this.stale = stale;
     }
 
     public T getResponse() {
@@ -113,6 +124,16 @@ public class ConsulResponse<T> {
         return cacheResponseInfo;
     }
 
+    /**
+     * Whether this response was not obtained from Consul by the current process, e.g. a cache map that was
+     * preloaded from a snapshot on disk and has not yet been refreshed by a successful poll.
+     *
+     * @return true if the response is stale
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
     @Override
     public String toString() {
         return "ConsulResponse{" +
@@ -121,6 +142,7 @@ public class ConsulResponse<T> {
                 ", knownLeader=" + knownLeader +
                 ", index=" + index +
                 ", cache=" + cacheResponseInfo +
+                ", stale=" + stale +
                 '}';
     }
 
@@ -52,4 +52,10 @@ public abstract class CatalogService {
 
     @JsonProperty("NodeMeta")
     public abstract Map<String,String> getNodeMeta();
+
+    @JsonProperty("CreateIndex")
+    public abstract Optional<Long> getCreateIndex();
+
+    @JsonProperty("ModifyIndex")
+    public abstract Optional<Long> getModifyIndex();
 }
@@ -0,0 +1,33 @@
+package org.kiwiproject.consul.model.catalog;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+import java.util.List;
+
+/**
+ * The tags of a service, as an entry of a {@link org.kiwiproject.consul.cache.CatalogServicesCache}
+ */
+@Value.Immutable
+@Value.Style(jakarta = true)
+@JsonSerialize(as = ImmutableServiceTags.class)
+@JsonDeserialize(as = ImmutableServiceTags.class)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public abstract class ServiceTags {
+
+    @JsonProperty("ServiceName")
+    public abstract String getServiceName();
+
+    @JsonProperty("Tags")
+    public abstract List<String> getTags();
+
+    public static ServiceTags of(String serviceName, List<String> tags) {
+        return ImmutableServiceTags.builder()
+                .serviceName(serviceName)
+                .tags(tags)
+                .build();
+    }
+}
@@ -45,4 +45,10 @@ public abstract class HealthCheck {
     @JsonDeserialize(as = ImmutableList.class, contentAs = String.class)
     public abstract List<String> getServiceTags();
 
+    @JsonProperty("CreateIndex")
+    public abstract Optional<Long> getCreateIndex();
+
+    @JsonProperty("ModifyIndex")
+    public abstract Optional<Long> getModifyIndex();
+
 }
@@ -31,4 +31,10 @@ public abstract class Node {
 
     @JsonProperty("Meta")
     public abstract Optional<Map<String,String>> getNodeMeta();
+
+    @JsonProperty("CreateIndex")
+    public abstract Optional<Long> getCreateIndex();
+
+    @JsonProperty("ModifyIndex")
+    public abstract Optional<Long> getModifyIndex();
 }
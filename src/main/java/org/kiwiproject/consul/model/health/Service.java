@@ -43,4 +43,10 @@ public abstract class Service {
 
     @JsonProperty("Weights")
     public abstract Optional<ServiceWeights> getWeights();
+
+    @JsonProperty("CreateIndex")
+    public abstract Optional<Long> getCreateIndex();
+
+    @JsonProperty("ModifyIndex")
+    public abstract Optional<Long> getModifyIndex();
 }
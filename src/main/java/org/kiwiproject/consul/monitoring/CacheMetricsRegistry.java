@@ -0,0 +1,173 @@
+package org.kiwiproject.consul.monitoring;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.nonNull;
+
+import com.google.common.collect.MapMaker;
+import org.kiwiproject.consul.cache.CacheDescriptor;
+import org.kiwiproject.consul.cache.CacheMetrics;
+import org.kiwiproject.consul.cache.ConsulCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link ClientEventCallback} that keeps the latest {@link CacheMetrics} of every running cache of the
+ * clients it is registered with, so that they can all be exported from one place.
+ * <p>
+ * Register it with {@link org.kiwiproject.consul.Consul.Builder#withClientEventCallback(ClientEventCallback)};
+ * every cache created from that client then shows up here after its first poll, and is removed when it is
+ * stopped. Caches are told apart by the instance of their descriptor, which each cache creates for itself, so
+ * caches with equal descriptors (for instance two KV caches on the same key) are registered separately. All
+ * events are also forwarded to the delegate callback, if any. Exporters (for instance a
+ * Micrometer or Prometheus adapter) read the metrics with {@link #forEach(BiConsumer)}, typically when their
+ * registry is scraped.
+ */
+public class CacheMetricsRegistry implements ClientEventCallback {
+
+    private final ClientEventCallback delegate;
+    private final Map<CacheKey, CacheMetrics> metrics = new ConcurrentHashMap<>();
+    // descriptors of the stopped caches, compared by identity and held weakly
+    private final Set<CacheDescriptor> stopped = Collections.newSetFromMap(new MapMaker().weakKeys().makeMap());
+
+    public CacheMetricsRegistry() {
+        this(new NoOpClientEventCallback());
+    }
+
+    /**
+     * @param delegate the callback to forward all events to
+     */
+    public CacheMetricsRegistry(ClientEventCallback delegate) {
+        checkArgument(nonNull(delegate), "delegate must not be null");
+        this.delegate = delegate;
+    }
+
+    /**
+     * Call an action with the latest metrics of each registered cache.
+     *
+     * @param action the action to call with the client name and the metrics of each cache
+     */
+    public void forEach(BiConsumer<String, CacheMetrics> action) {
+        metrics.forEach((key, cacheMetrics) -> action.accept(key.clientName, cacheMetrics));
+    }
+
+    /**
+     * @return the latest metrics of each registered cache
+     */
+    public List<CacheMetrics> getAll() {
+        return List.copyOf(metrics.values());
+    }
+
+    /**
+     * @param clientName the name of a client
+     * @return the latest metrics of each registered cache of that client
+     */
+    public List<CacheMetrics> getAll(String clientName) {
+        List<CacheMetrics> result = new ArrayList<>();
+        forEach((name, cacheMetrics) -> {
+            if (name.equals(clientName)) {
+                result.add(cacheMetrics);
+            }
+        });
+        return result;
+    }
+
+    public int size() {
+        return metrics.size();
+    }
+
+    @Override
+    public void onCacheMetrics(String clientName, CacheDescriptor cacheDescriptor, CacheMetrics cacheMetrics) {
+        // a poll that completed while the cache was stopping must not register it again; checking after the put
+        // also covers a stop event received concurrently, since it is recorded before the metrics are removed
+        if (cacheMetrics.getState() != ConsulCache.State.STOPPED && !stopped.contains(cacheDescriptor)) {
+            var key = new CacheKey(clientName, cacheDescriptor);
+            metrics.put(key, cacheMetrics);
+            if (stopped.contains(cacheDescriptor)) {
+                metrics.remove(key);
+            }
+        }
+        delegate.onCacheMetrics(clientName, cacheDescriptor, cacheMetrics);
+    }
+
+    @Override
+    public void onCacheStop(String clientName, CacheDescriptor cacheDescriptor) {
+        stopped.add(cacheDescriptor);
+        metrics.remove(new CacheKey(clientName, cacheDescriptor));
+        delegate.onCacheStop(clientName, cacheDescriptor);
+    }
+
+    @Override
+    public void onHttpRequestSuccess(String clientName, String method, String queryString) {
+        delegate.onHttpRequestSuccess(clientName, method, queryString);
+    }
+
+    @Override
+    public void onHttpRequestFailure(String clientName, String method, String queryString, Throwable throwable) {
+        delegate.onHttpRequestFailure(clientName, method, queryString, throwable);
+    }
+
+    @Override
+    public void onHttpRequestInvalid(String clientName, String method, String queryString, Throwable throwable) {
+        delegate.onHttpRequestInvalid(clientName, method, queryString, throwable);
+    }
+
+    @Override
+    public void onCacheStart(String clientName, CacheDescriptor cacheDescriptor) {
+        delegate.onCacheStart(clientName, cacheDescriptor);
+    }
+
+    @Override
+    public void onCachePollingError(String clientName, CacheDescriptor cacheDescriptor, Throwable throwable) {
+        delegate.onCachePollingError(clientName, cacheDescriptor, throwable);
+    }
+
+    @Override
+    public void onCachePollingSuccess(String clientName, CacheDescriptor cacheDescriptor, boolean withNotification, Duration duration) {
+        delegate.onCachePollingSuccess(clientName, cacheDescriptor, withNotification, duration);
+    }
+
+    @Override
+    public void onCacheListenersNotified(String clientName, CacheDescriptor cacheDescriptor, int listenerCount, Duration duration) {
+        delegate.onCacheListenersNotified(clientName, cacheDescriptor, listenerCount, duration);
+    }
+
+    /**
+     * Identifies a cache by its client and its descriptor instance, since distinct caches may have equal
+     * descriptors.
+     */
+    private static final class CacheKey {
+
+        private final String clientName;
+        private final CacheDescriptor cacheDescriptor;
+
+        CacheKey(String clientName, CacheDescriptor cacheDescriptor) {
+            this.clientName = clientName;
+            this.cacheDescriptor = cacheDescriptor;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            var other = (CacheKey) o;
+            return Objects.equals(clientName, other.clientName) && cacheDescriptor == other.cacheDescriptor;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(clientName) + System.identityHashCode(cacheDescriptor);
+        }
+    }
+}
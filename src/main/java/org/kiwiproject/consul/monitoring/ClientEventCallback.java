@@ -1,6 +1,7 @@
 package org.kiwiproject.consul.monitoring;
 
 import org.kiwiproject.consul.cache.CacheDescriptor;
+import org.kiwiproject.consul.cache.CacheMetrics;
 
 import java.time.Duration;
 
@@ -19,4 +20,16 @@ public interface ClientEventCallback {
     default void onCachePollingError(String clientName, CacheDescriptor cacheDescriptor, Throwable throwable) { }
 
     default void onCachePollingSuccess(String clientName, CacheDescriptor cacheDescriptor, boolean withNotification, Duration duration) { }
+
+    /**
+     * Called after each poll of a cache, successful or not, with the current metrics of the cache.
+     *
+     * @see CacheMetricsRegistry
+     */
+    default void onCacheMetrics(String clientName, CacheDescriptor cacheDescriptor, CacheMetrics metrics) { }
+
+    /**
+     * Called each time the listeners of a cache have been notified of a change, with the time it took.
+     */
+    default void onCacheListenersNotified(String clientName, CacheDescriptor cacheDescriptor, int listenerCount, Duration duration) { }
 }
@@ -3,6 +3,7 @@ package org.kiwiproject.consul.monitoring;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import okhttp3.Request;
 import org.kiwiproject.consul.cache.CacheDescriptor;
+import org.kiwiproject.consul.cache.CacheMetrics;
 
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
@@ -56,6 +57,14 @@ public class ClientEventHandler {
         EVENT_EXECUTOR.submit(() -> callback.onCachePollingSuccess(clientName, cacheDescriptor, withNotification, Duration.of(duration, ChronoUnit.MILLIS)));
     }
 
+    public void cacheMetrics(CacheDescriptor cacheDescriptor, CacheMetrics metrics) {
+        EVENT_EXECUTOR.submit(() -> callback.onCacheMetrics(clientName, cacheDescriptor, metrics));
+    }
+
+    public void cacheListenersNotified(CacheDescriptor cacheDescriptor, int listenerCount, Duration duration) {
+        EVENT_EXECUTOR.submit(() -> callback.onCacheListenersNotified(clientName, cacheDescriptor, listenerCount, duration));
+    }
+
     public void stop() {
         EVENT_EXECUTOR.shutdownNow();
     }
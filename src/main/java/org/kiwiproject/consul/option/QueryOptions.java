@@ -1,10 +1,12 @@
 package org.kiwiproject.consul.option;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.nonNull;
 
 import org.immutables.value.Value;
 
 import java.math.BigInteger;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -96,6 +98,41 @@ public abstract class QueryOptions implements ParamAdder {
                 .hash(hash);
     }
 
+    /**
+     * Create a builder for options that let the local agent answer from its cache, using the agent's default
+     * freshness rules.
+     * <p>
+     * This is typically used with the caches of the health and catalog endpoints that support agent caching,
+     * such as {@code /v1/health/service} and {@code /v1/catalog/services}, so that many clients on the same
+     * agent share one watch on the servers. The {@code X-Cache} and {@code Age} response headers are then
+     * available from {@link org.kiwiproject.consul.model.ConsulResponse#getCacheResponseInfo()}.
+     *
+     * @return a builder with the cached consistency mode
+     * @see <a href="https://developer.hashicorp.com/consul/api-docs/features/caching">Agent Caching</a>
+     */
+    public static ImmutableQueryOptions.Builder cached() {
+        return ImmutableQueryOptions.builder()
+                .consistencyMode(ConsistencyMode.createCachedConsistencyWithMaxAgeAndStale(Optional.empty(), Optional.empty()));
+    }
+
+    /**
+     * Create a builder for options that let the local agent answer from its cache, with the given
+     * {@code Cache-Control} directives.
+     *
+     * @param maxAge       the maximum age of a cached result before the agent fetches a fresh one
+     * @param staleIfError how long the agent may keep serving a cached result when it cannot reach the servers
+     * @return a builder with the cached consistency mode
+     * @see #cached()
+     */
+    public static ImmutableQueryOptions.Builder cached(Duration maxAge, Duration staleIfError) {
+        checkArgument(nonNull(maxAge), "maxAge must not be null");
+        checkArgument(nonNull(staleIfError), "staleIfError must not be null");
+
+        return ImmutableQueryOptions.builder()
+                .consistencyMode(ConsistencyMode.createCachedConsistencyWithMaxAgeAndStale(
+                        Optional.of(maxAge.getSeconds()), Optional.of(staleIfError.getSeconds())));
+    }
+
     @Override
     public Map<String, Object> toQuery() {
         Map<String, Object> result = new HashMap<>();
@@ -1,9 +1,19 @@
 package org.kiwiproject.consul;
 
+import static java.util.Objects.nonNull;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.awaitility.Awaitility.await;
+import static org.awaitility.Durations.FIVE_SECONDS;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
 import com.google.common.net.HostAndPort;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -11,9 +21,17 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.kiwiproject.consul.async.ConsulResponseCallback;
+import org.kiwiproject.consul.config.TransportLaneConfig;
+import org.kiwiproject.consul.model.ConsulResponse;
+import org.kiwiproject.consul.option.QueryOptions;
 
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 @DisplayName("Consul")
@@ -49,6 +67,174 @@ class ConsulTest {
         );
     }
 
+    @Nested
+    class WithHttpProtocol {
+
+        @Test
+        void shouldRequireProtocol() {
+            assertThatIllegalArgumentException()
+                    .isThrownBy(() -> Consul.builder().withHttpProtocol(null));
+        }
+
+        @Test
+        void shouldNotAllowPriorKnowledgeWithHttps() {
+            var builder = Consul.builder()
+                    .withHttps(true)
+                    .withHttpProtocol(Consul.HttpProtocol.H2C_PRIOR_KNOWLEDGE)
+                    .withPing(false);
+
+            assertThatIllegalStateException()
+                    .isThrownBy(builder::build)
+                    .withMessage("HTTP/2 with prior knowledge cannot be used with HTTPS");
+        }
+
+        @ParameterizedTest
+        @ValueSource(ints = {-1, 0})
+        void shouldRequirePositiveMaxRequestsPerHost(int maxRequestsPerHost) {
+            assertThatIllegalArgumentException()
+                    .isThrownBy(() -> Consul.builder().withMaxRequestsPerHost(maxRequestsPerHost));
+        }
+
+        @Test
+        void shouldBuildWithPriorKnowledge() {
+            var consul = Consul.builder()
+                    .withHttpProtocol(Consul.HttpProtocol.H2C_PRIOR_KNOWLEDGE)
+                    .withMaxRequestsPerHost(500)
+                    .withPing(false)
+                    .build();
+            try {
+                assertThat(consul.isDestroyed()).isFalse();
+            } finally {
+                consul.destroy();
+            }
+        }
+    }
+
+    @Nested
+    class WithLaneIsolation {
+
+        @Test
+        void shouldRequireLaneConfigurations() {
+            var laneConfig = TransportLaneConfig.builder().build();
+
+            assertThatIllegalArgumentException()
+                    .isThrownBy(() -> Consul.builder().withLaneIsolation(null, laneConfig));
+            assertThatIllegalArgumentException()
+                    .isThrownBy(() -> Consul.builder().withLaneIsolation(laneConfig, null));
+        }
+
+        @Test
+        void shouldShareOneLane_ByDefault() {
+            var consul = Consul.builder().withPing(false).build();
+            try {
+                assertThat(consul.interactiveLane()).isSameAs(consul.blockingLane());
+                assertThat(consul.interactiveLane().getName()).isEqualTo("shared");
+            } finally {
+                consul.destroy();
+            }
+        }
+
+        @Test
+        void shouldConfigureEachLane() {
+            var consul = Consul.builder()
+                    .withReadTimeoutMillis(60_000)
+                    .withMaxRequestsPerHost(100)
+                    .withLaneIsolation(
+                            TransportLaneConfig.builder()
+                                    .withMaxRequests(16)
+                                    .withReadTimeout(Duration.ofSeconds(5))
+                                    .build(),
+                            TransportLaneConfig.builder()
+                                    .withMaxRequestsPerHost(500)
+                                    .build())
+                    .withPing(false)
+                    .build();
+            try {
+                TransportLane interactiveLane = consul.interactiveLane();
+                assertThat(interactiveLane.getName()).isEqualTo("interactive");
+                assertThat(interactiveLane.getMaxRequests()).isEqualTo(16);
+                assertThat(interactiveLane.getMaxRequestsPerHost()).isEqualTo(100);
+                assertThat(interactiveLane.getReadTimeoutMillis()).isEqualTo(5_000);
+
+                TransportLane blockingLane = consul.blockingLane();
+                assertThat(blockingLane.getName()).isEqualTo("blocking");
+                assertThat(blockingLane.getMaxRequests()).isEqualTo(Integer.MAX_VALUE);
+                assertThat(blockingLane.getMaxRequestsPerHost()).isEqualTo(100);
+                assertThat(blockingLane.getReadTimeoutMillis()).isEqualTo(60_000);
+            } finally {
+                consul.destroy();
+            }
+        }
+
+        @Test
+        void shouldNotDelayInteractiveRequestsBehindBlockingQueries() throws IOException {
+            try (var server = new MockWebServer()) {
+                server.setDispatcher(new BlockingQueryDispatcher(Duration.ofSeconds(5)));
+                server.start();
+
+                var consul = Consul.builder()
+                        .withUrl(server.url("/").toString())
+                        .withReadTimeoutMillis(30_000)
+                        .withLaneIsolation(
+                                TransportLaneConfig.builder().build(),
+                                TransportLaneConfig.builder().withMaxRequests(2).build())
+                        .withPing(false)
+                        .build();
+                try {
+                    QueryOptions queryOptions = QueryOptions.blockSeconds(10, BigInteger.ONE).build();
+                    for (int i = 0; i < 10; i++) {
+                        consul.keyValueClient().getValues("key-" + i, queryOptions, new IgnoringCallback<>());
+                    }
+                    await().atMost(FIVE_SECONDS).until(() -> consul.blockingLane().getRunningCallCount() == 2);
+                    assertThat(consul.blockingLane().getQueuedCallCount()).isEqualTo(8);
+
+                    assertTimeoutPreemptively(Duration.ofSeconds(2),
+                            () -> assertThat(consul.sessionClient().renewSession("session-1")).isEmpty());
+                    assertThat(consul.interactiveLane().getQueuedCallCount()).isZero();
+                } finally {
+                    consul.destroy();
+                }
+            }
+        }
+    }
+
+    /**
+     * Holds blocking queries like Consul does until the index moves, and answers everything else at once.
+     */
+    private static class BlockingQueryDispatcher extends Dispatcher {
+
+        private final Duration blockingTime;
+
+        BlockingQueryDispatcher(Duration blockingTime) {
+            this.blockingTime = blockingTime;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            var response = new MockResponse()
+                    .setHeader("Content-Type", "application/json")
+                    .setHeader("X-Consul-Index", "1")
+                    .setBody("[]");
+            if (nonNull(request.getRequestUrl()) && nonNull(request.getRequestUrl().queryParameter("index"))) {
+                response.setHeadersDelay(blockingTime.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            return response;
+        }
+    }
+
+    private static class IgnoringCallback<T> implements ConsulResponseCallback<T> {
+
+        @Override
+        public void onComplete(ConsulResponse<T> consulResponse) {
+            // only the requests in flight matter
+        }
+
+        @Override
+        public void onFailure(Throwable throwable) {
+            // the requests still in flight fail when the client is destroyed
+        }
+    }
+
     @Nested
     class WithFailoverInterceptor {
 
@@ -0,0 +1,142 @@
+package org.kiwiproject.consul;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.kiwiproject.consul.async.ConsulResponseCallback;
+import org.kiwiproject.consul.model.ConsulResponse;
+import org.kiwiproject.consul.model.kv.Value;
+import org.kiwiproject.consul.option.QueryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the connections and the heap used by 1,000 concurrent blocking queries against a local stand-in
+ * server, over HTTP/1.1 and over HTTP/2 with prior knowledge.
+ * <p>
+ * The server holds each query for a few seconds, like Consul does until the index moves. The measures are
+ * taken while all the queries are in flight. The heap measure is approximate (used heap after forcing garbage
+ * collections, including the stand-in server), so this only runs when asked to, for example with
+ * {@code mvn test -Dtest=Http2MultiplexingBenchmark -Dconsul.benchmarks=true}.
+ */
+@EnabledIfSystemProperty(named = "consul.benchmarks", matches = "true")
+class Http2MultiplexingBenchmark {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Http2MultiplexingBenchmark.class);
+
+    private static final int QUERY_COUNT = 1_000;
+    private static final Duration BLOCKING_TIME = Duration.ofSeconds(5);
+
+    @Test
+    void compareConnectionsAndHeap() throws Exception {
+        Measure http1 = measure(Consul.HttpProtocol.HTTP_1_1, Protocol.HTTP_1_1);
+        Measure http2 = measure(Consul.HttpProtocol.H2C_PRIOR_KNOWLEDGE, Protocol.H2_PRIOR_KNOWLEDGE);
+
+        LOG.info("{} blocking queries in flight: HTTP/1.1 {} connections, {} KiB; HTTP/2 {} connections, {} KiB",
+                QUERY_COUNT, http1.connections, http1.heapBytes / 1024, http2.connections, http2.heapBytes / 1024);
+        assertThat(http2.connections).isLessThan(http1.connections);
+    }
+
+    private static Measure measure(Consul.HttpProtocol clientProtocol, Protocol serverProtocol)
+            throws IOException, InterruptedException {
+
+        try (var server = new MockWebServer()) {
+            server.setProtocols(List.of(serverProtocol));
+            server.setDispatcher(new BlockingQueryDispatcher());
+            server.start();
+
+            long before = usedHeapAfterGc();
+            var connectionPool = new ConnectionPool();
+            Consul consul = Consul.builder()
+                    .withUrl(server.url("/").toString())
+                    .withHttpProtocol(clientProtocol)
+                    .withConnectionPool(connectionPool)
+                    .withReadTimeoutMillis(BLOCKING_TIME.multipliedBy(2).toMillis())
+                    .withPing(false)
+                    .build();
+            try {
+                var completed = new CountDownLatch(QUERY_COUNT);
+                QueryOptions queryOptions = QueryOptions.blockSeconds(30, BigInteger.ONE).build();
+                for (int i = 0; i < QUERY_COUNT; i++) {
+                    consul.keyValueClient().getValues("key-" + i, queryOptions, new CountingCallback(completed));
+                }
+
+                await().atMost(BLOCKING_TIME).until(() -> server.getRequestCount() == QUERY_COUNT);
+                var measure = new Measure(connectionPool.connectionCount(), usedHeapAfterGc() - before);
+
+                assertThat(completed.await(BLOCKING_TIME.multipliedBy(3).toMillis(), TimeUnit.MILLISECONDS)).isTrue();
+                return measure;
+            } finally {
+                consul.destroy();
+            }
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Answers every query with an empty list, after holding it like a blocking query whose index does not move.
+     */
+    private static class BlockingQueryDispatcher extends Dispatcher {
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            return new MockResponse()
+                    .setHeader("Content-Type", "application/json")
+                    .setHeader("X-Consul-Index", "1")
+                    .setBody("[]")
+                    .setHeadersDelay(BLOCKING_TIME.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static class CountingCallback implements ConsulResponseCallback<List<Value>> {
+
+        private final CountDownLatch completed;
+
+        CountingCallback(CountDownLatch completed) {
+            this.completed = completed;
+        }
+
+        @Override
+        public void onComplete(ConsulResponse<List<Value>> consulResponse) {
+            completed.countDown();
+        }
+
+        @Override
+        public void onFailure(Throwable throwable) {
+            completed.countDown();
+        }
+    }
+
+    private static class Measure {
+
+        private final int connections;
+        private final long heapBytes;
+
+        Measure(int connections, long heapBytes) {
+            this.connections = connections;
+            this.heapBytes = heapBytes;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.kiwiproject.consul;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class LaneRoutingCallFactoryTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "http://localhost:8500/v1/kv/key?index=42&wait=10s",
+            "http://localhost:8500/v1/health/service/web?index=42",
+            "http://localhost:8500/v1/agent/service/web?hash=abc&wait=10s",
+            "http://localhost:8500/v1/catalog/services?wait=5m"
+    })
+    void shouldRecognizeBlockingQueries(String url) {
+        var request = new Request.Builder().url(url).build();
+
+        assertThat(LaneRoutingCallFactory.isBlockingQuery(request)).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "http://localhost:8500/v1/kv/key",
+            "http://localhost:8500/v1/health/service/web?passing=true&dc=dc1",
+            "http://localhost:8500/v1/status/leader"
+    })
+    void shouldRecognizeInteractiveRequests(String url) {
+        var request = new Request.Builder().url(url).build();
+
+        assertThat(LaneRoutingCallFactory.isBlockingQuery(request)).isFalse();
+    }
+
+    @Test
+    void shouldNotTreatWritesAsBlockingQueries() {
+        var request = new Request.Builder()
+                .url("http://localhost:8500/v1/session/renew/session-1?index=42")
+                .put(RequestBody.create(new byte[0]))
+                .build();
+
+        assertThat(LaneRoutingCallFactory.isBlockingQuery(request)).isFalse();
+    }
+
+    @Test
+    void shouldRouteEachRequestToItsLane() {
+        var interactiveLane = new TransportLane("interactive", new OkHttpClient());
+        var blockingLane = new TransportLane("blocking", new OkHttpClient());
+        var callFactory = new LaneRoutingCallFactory(interactiveLane, blockingLane);
+
+        var blockingQuery = new Request.Builder().url("http://localhost:8500/v1/kv/key?index=42&wait=10s").build();
+        var interactiveRequest = new Request.Builder().url("http://localhost:8500/v1/kv/key").build();
+
+        assertThat(callFactory.laneFor(blockingQuery)).isSameAs(blockingLane);
+        assertThat(callFactory.laneFor(interactiveRequest)).isSameAs(interactiveLane);
+        assertThat(callFactory.newCall(interactiveRequest).request()).isSameAs(interactiveRequest);
+    }
+}
@@ -0,0 +1,43 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+class AdaptivePollingDelayTest {
+
+    @Test
+    void shouldGrowWhileIndexMoves_UpToTheMaximum() {
+        var delay = new AdaptivePollingDelay(Duration.ZERO, Duration.ofMillis(500));
+
+        assertThat(delay.next(true)).isEqualTo(AdaptivePollingDelay.INITIAL_DELAY);
+        assertThat(delay.next(true)).isEqualTo(Duration.ofMillis(200));
+        assertThat(delay.next(true)).isEqualTo(Duration.ofMillis(400));
+        assertThat(delay.next(true)).isEqualTo(Duration.ofMillis(500));
+        assertThat(delay.next(true)).isEqualTo(Duration.ofMillis(500));
+    }
+
+    @Test
+    void shouldShrinkBackToTheMinimum_WhenIndexStopsMoving() {
+        var delay = new AdaptivePollingDelay(Duration.ofMillis(10), Duration.ofMillis(800));
+        delay.next(true);
+        delay.next(true);
+        delay.next(true);
+        assertThat(delay.getCurrentDelay()).isEqualTo(Duration.ofMillis(400));
+
+        assertThat(delay.next(false)).isEqualTo(Duration.ofMillis(200));
+        assertThat(delay.next(false)).isEqualTo(Duration.ofMillis(100));
+        assertThat(delay.next(false)).isEqualTo(Duration.ofMillis(10));
+        assertThat(delay.next(false)).isEqualTo(Duration.ofMillis(10));
+    }
+
+    @Test
+    void shouldNeverGoBelowTheMinimum() {
+        var delay = new AdaptivePollingDelay(Duration.ofSeconds(1), Duration.ofMillis(500));
+
+        assertThat(delay.next(true)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(delay.next(false)).isEqualTo(Duration.ofSeconds(1));
+    }
+}
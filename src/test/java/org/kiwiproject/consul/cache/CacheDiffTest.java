@@ -0,0 +1,64 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.base.Equivalence;
+import org.junit.jupiter.api.Test;
+import org.kiwiproject.consul.model.kv.ImmutableValue;
+import org.kiwiproject.consul.model.kv.Value;
+
+import java.util.Map;
+import java.util.Optional;
+
+class CacheDiffTest {
+
+    private static final Equivalence<Value> MODIFY_INDEX =
+            ModifyIndexEquivalence.of(value -> Optional.of(value.getModifyIndex()));
+
+    @Test
+    void shouldTreatAllEntriesAsAdded_WhenThereIsNoPreviousMap() {
+        var a = createValue("a", 1, "x");
+        var diff = CacheDiff.between(null, Map.of("a", a), MODIFY_INDEX);
+
+        assertThat(diff.getAdded()).containsExactly(Map.entry("a", a));
+        assertThat(diff.getRemoved()).isEmpty();
+        assertThat(diff.getModified()).isEmpty();
+        assertThat(diff.isEmpty()).isFalse();
+    }
+
+    @Test
+    void shouldComputeAddedRemovedAndModifiedEntries() {
+        var a1 = createValue("a", 1, "x");
+        var b1 = createValue("b", 1, "y");
+        var c1 = createValue("c", 1, "z");
+        var b2 = createValue("b", 2, "y2");
+        var d1 = createValue("d", 3, "w");
+
+        var diff = CacheDiff.between(Map.of("a", a1, "b", b1, "c", c1), Map.of("a", a1, "b", b2, "d", d1), MODIFY_INDEX);
+
+        assertThat(diff.getAdded()).containsExactly(Map.entry("d", d1));
+        assertThat(diff.getRemoved()).containsExactly(Map.entry("c", c1));
+        assertThat(diff.getModified()).containsExactly(Map.entry("b", b2));
+    }
+
+    @Test
+    void shouldCompareModifyIndexesRatherThanValues() {
+        var before = createValue("a", 5, "x");
+        var sameIndex = createValue("a", 5, "y");
+
+        assertThat(CacheDiff.between(Map.of("a", before), Map.of("a", sameIndex), MODIFY_INDEX).isEmpty()).isTrue();
+        assertThat(CacheDiff.between(Map.of("a", before), Map.of("a", sameIndex), Equivalence.equals()).getModified())
+                .containsExactly(Map.entry("a", sameIndex));
+    }
+
+    private static Value createValue(String key, long modifyIndex, String value) {
+        return ImmutableValue.builder()
+                .key(key)
+                .createIndex(1)
+                .modifyIndex(modifyIndex)
+                .lockIndex(0)
+                .flags(0)
+                .value(value)
+                .build();
+    }
+}
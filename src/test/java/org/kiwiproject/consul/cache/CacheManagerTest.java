@@ -0,0 +1,150 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.awaitility.Awaitility.await;
+import static org.awaitility.Durations.FIVE_SECONDS;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.kiwiproject.consul.async.ConsulResponseCallback;
+import org.kiwiproject.consul.cache.ConsulCache.CallbackConsumer;
+import org.kiwiproject.consul.config.CacheConfig;
+import org.kiwiproject.consul.model.ConsulResponse;
+import org.kiwiproject.consul.model.kv.Value;
+import org.kiwiproject.consul.monitoring.ClientEventHandler;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+
+class CacheManagerTest {
+
+    private final List<String> requested = new CopyOnWriteArrayList<>();
+    private final Map<String, ConsulResponseCallback<List<Value>>> callbacks = new ConcurrentHashMap<>();
+    private CacheManager manager;
+
+    @AfterEach
+    void tearDown() {
+        if (manager != null) {
+            manager.stopAll();
+        }
+    }
+
+    @Test
+    void shouldStartCachesByPriority_WithBoundedConcurrency() throws InterruptedException {
+        manager = CacheManager.builder()
+                .withMaxConcurrentStarts(1)
+                .withStartSlotTimeout(Duration.ofMinutes(1))
+                .build();
+        manager.register(newCache("low"), 1);
+        manager.register(newCache("high"), 10);
+        manager.register(newCache("medium"), 5);
+
+        manager.startAll();
+
+        await().atMost(FIVE_SECONDS).until(() -> requested.size() == 1);
+        assertThat(requested).containsExactly("high");
+
+        respond("high");
+        await().atMost(FIVE_SECONDS).until(() -> requested.size() == 2);
+        assertThat(requested).containsExactly("high", "medium");
+
+        respond("medium");
+        await().atMost(FIVE_SECONDS).until(() -> requested.size() == 3);
+        respond("low");
+
+        CacheManager.InitializationReport report = manager.awaitAllInitialized(Duration.ofSeconds(5));
+        assertThat(report.isSuccessful()).isTrue();
+        assertThat(report.getInitialized()).hasSize(3);
+    }
+
+    @Test
+    void shouldReportCachesThatFailOrDoNotInitializeInTime() throws InterruptedException {
+        manager = CacheManager.builder()
+                .withMaxConcurrentStarts(4)
+                .withStartSlotTimeout(Duration.ZERO)
+                .build();
+        var good = manager.register(newCache("good"));
+        var slow = manager.register(newCache("slow"));
+        var broken = manager.register(new ConsulCache<>(Value::getKey, (index, callback) -> {
+            throw new IllegalStateException("boom");
+        }, CacheConfig.builder().build(), mock(ClientEventHandler.class), new CacheDescriptor("keyvalue", "broken")));
+
+        manager.startAll();
+        await().atMost(FIVE_SECONDS).until(() -> callbacks.containsKey("good"));
+        respond("good");
+
+        CacheManager.InitializationReport report = manager.awaitAllInitialized(Duration.ofMillis(200));
+
+        assertThat(report.isSuccessful()).isFalse();
+        assertThat(report.getInitialized()).containsExactly(good);
+        assertThat(report.getFailures()).containsOnlyKeys(slow, broken);
+        assertThat(report.getFailures().get(slow)).isInstanceOf(TimeoutException.class);
+        assertThat(report.getFailures().get(broken)).hasMessage("boom");
+    }
+
+    @Test
+    void shouldStopAllCaches() {
+        manager = CacheManager.builder().build();
+        var first = manager.register(newCache("first"));
+        var second = manager.register(newCache("second"));
+        manager.startAll();
+
+        manager.stopAll();
+
+        assertThat(first.getState()).isEqualTo(ConsulCache.State.STOPPED);
+        assertThat(second.getState()).isEqualTo(ConsulCache.State.STOPPED);
+        assertThat(manager.getCaches()).containsExactly(first, second);
+    }
+
+    @Test
+    void shouldNotRegisterCaches_AfterStop() {
+        manager = CacheManager.builder().build();
+        manager.register(newCache("first"));
+        manager.startAll();
+        manager.stopAll();
+
+        var late = newCache("late");
+
+        assertThatIllegalStateException()
+                .isThrownBy(() -> manager.register(late))
+                .withMessage("Cannot register a cache after the caches have been stopped");
+        assertThatIllegalStateException().isThrownBy(() -> manager.startAll());
+        assertThat(late.getState()).isEqualTo(ConsulCache.State.LATENT);
+        assertThat(manager.getCaches()).hasSize(1);
+    }
+
+    @Test
+    void shouldValidateUsage() {
+        manager = CacheManager.builder().build();
+
+        assertThatIllegalArgumentException().isThrownBy(() -> CacheManager.builder().withMaxConcurrentStarts(0));
+        assertThatIllegalStateException().isThrownBy(() -> manager.awaitAllInitialized(Duration.ZERO));
+
+        manager.startAll();
+
+        assertThatIllegalStateException().isThrownBy(() -> manager.startAll());
+    }
+
+    private ConsulCache<String, Value> newCache(String name) {
+        CallbackConsumer<Value> callbackConsumer = (index, callback) -> {
+            if (!callbacks.containsKey(name)) {
+                requested.add(name);
+                callbacks.put(name, callback);
+            }
+        };
+        return new ConsulCache<>(Value::getKey, callbackConsumer, CacheConfig.builder().build(),
+                mock(ClientEventHandler.class), new CacheDescriptor("keyvalue", name));
+    }
+
+    private void respond(String name) {
+        callbacks.get(name).onComplete(new ConsulResponse<>(List.of(), 0, true, BigInteger.ONE, null, null));
+    }
+}
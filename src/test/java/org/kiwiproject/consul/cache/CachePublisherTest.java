@@ -0,0 +1,228 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.awaitility.Durations.FIVE_SECONDS;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kiwiproject.consul.async.ConsulResponseCallback;
+import org.kiwiproject.consul.config.CacheConfig;
+import org.kiwiproject.consul.model.ConsulResponse;
+import org.kiwiproject.consul.model.kv.ImmutableValue;
+import org.kiwiproject.consul.model.kv.Value;
+import org.kiwiproject.consul.monitoring.ClientEventHandler;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+class CachePublisherTest {
+
+    private final AtomicReference<ConsulResponseCallback<List<Value>>> callback = new AtomicReference<>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private ConsulCache<String, Value> cache;
+    private long index;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ConsulCache<>(Value::getKey, (requestIndex, responseCallback) -> {
+            requestCount.incrementAndGet();
+            callback.set(responseCallback);
+        }, CacheConfig.builder().build(), mock(ClientEventHandler.class), new CacheDescriptor("keyvalue", "test"));
+        cache.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.stop();
+    }
+
+    @Test
+    void shouldShareThePollingOfTheCache() {
+        CachePublisher<String, Value, ConsulResponse<ImmutableMap<String, Value>>> publisher = cache.publisher();
+        assertThat(cache.publisher()).isSameAs(publisher);
+
+        var first = new RecordingSubscriber<ConsulResponse<ImmutableMap<String, Value>>>(Long.MAX_VALUE);
+        var second = new RecordingSubscriber<ConsulResponse<ImmutableMap<String, Value>>>(Long.MAX_VALUE);
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+
+        respond(createValue("a", 1));
+
+        assertThat(publisher.getSubscriberCount()).isEqualTo(2);
+        assertThat(first.items).hasSize(1);
+        assertThat(first.items.get(0).getResponse()).containsOnlyKeys("a");
+        assertThat(first.items.get(0).getIndex()).isEqualTo(BigInteger.valueOf(index));
+        assertThat(second.items).hasSize(1);
+        assertThat(cache.getListeners()).isEmpty();
+    }
+
+    @Test
+    void shouldSendTheCurrentVersionToNewSubscribers() {
+        respond(createValue("a", 1));
+
+        var subscriber = new RecordingSubscriber<ConsulResponse<ImmutableMap<String, Value>>>(1);
+        cache.publisher().subscribe(subscriber);
+
+        assertThat(subscriber.items).hasSize(1);
+        assertThat(subscriber.items.get(0).getResponse()).containsOnlyKeys("a");
+    }
+
+    @Test
+    void shouldConflateVersionsUntilRequested() {
+        var subscriber = new RecordingSubscriber<ConsulResponse<ImmutableMap<String, Value>>>(0);
+        cache.publisher().subscribe(subscriber);
+
+        respond(createValue("a", 1));
+        respond(createValue("a", 1), createValue("b", 2));
+        respond(createValue("b", 2), createValue("c", 3));
+        assertThat(subscriber.items).isEmpty();
+
+        subscriber.subscription.request(5);
+
+        assertThat(subscriber.items).hasSize(1);
+        assertThat(subscriber.items.get(0).getResponse()).containsOnlyKeys("b", "c");
+
+        respond(createValue("c", 3));
+
+        assertThat(subscriber.items).hasSize(2);
+        assertThat(subscriber.items.get(1).getResponse()).containsOnlyKeys("c");
+    }
+
+    @Test
+    void shouldMergeConflatedDiffs() {
+        var subscriber = new RecordingSubscriber<CacheDiff<String, Value>>(1);
+        cache.diffPublisher().subscribe(subscriber);
+
+        respond(createValue("a", 1), createValue("b", 1));
+        assertThat(subscriber.items).hasSize(1);
+        assertThat(subscriber.items.get(0).getAdded()).containsOnlyKeys("a", "b");
+
+        respond(createValue("a", 2), createValue("b", 1), createValue("c", 2));
+        respond(createValue("a", 3), createValue("c", 2));
+        respond(createValue("a", 3), createValue("d", 4));
+        subscriber.subscription.request(1);
+
+        assertThat(subscriber.items).hasSize(2);
+        CacheDiff<String, Value> diff = subscriber.items.get(1);
+        assertThat(diff.getAdded()).containsOnlyKeys("d");
+        assertThat(diff.getRemoved()).containsOnlyKeys("b");
+        assertThat(diff.getModified()).containsOnlyKeys("a");
+        assertThat(diff.getModified().get("a").getModifyIndex()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldNotSendDiffsWithoutChanges() {
+        respond(createValue("a", 1));
+        var subscriber = new RecordingSubscriber<CacheDiff<String, Value>>(0);
+        cache.diffPublisher().subscribe(subscriber);
+
+        respond(createValue("a", 1), createValue("b", 2));
+        respond(createValue("a", 1));
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertThat(subscriber.items).hasSize(1);
+        assertThat(subscriber.items.get(0).getAdded()).containsOnlyKeys("a");
+    }
+
+    @Test
+    void shouldRemoveCancelledSubscriptions() {
+        var publisher = cache.publisher();
+        var subscriber = new RecordingSubscriber<ConsulResponse<ImmutableMap<String, Value>>>(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        assertThat(publisher.getSubscriberCount()).isOne();
+
+        subscriber.subscription.cancel();
+        respond(createValue("a", 1));
+
+        assertThat(publisher.getSubscriberCount()).isZero();
+        assertThat(subscriber.items).isEmpty();
+    }
+
+    @Test
+    void shouldSignalInvalidRequests() {
+        var publisher = cache.publisher();
+        var subscriber = new RecordingSubscriber<ConsulResponse<ImmutableMap<String, Value>>>(0);
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertThat(subscriber.error.get()).isInstanceOf(IllegalArgumentException.class);
+        assertThat(publisher.getSubscriberCount()).isZero();
+    }
+
+    @Test
+    void shouldCompleteSubscribersWhenTheCacheIsStopped() {
+        var subscriber = new RecordingSubscriber<CacheDiff<String, Value>>(0);
+        cache.diffPublisher().subscribe(subscriber);
+
+        cache.stop();
+
+        assertThat(subscriber.completed.get()).isTrue();
+        assertThat(cache.diffPublisher().getSubscriberCount()).isZero();
+
+        var lateSubscriber = new RecordingSubscriber<ConsulResponse<ImmutableMap<String, Value>>>(1);
+        cache.publisher().subscribe(lateSubscriber);
+        assertThat(lateSubscriber.completed.get()).isTrue();
+    }
+
+    private void respond(Value... values) {
+        await().atMost(FIVE_SECONDS).until(() -> requestCount.get() > index);
+        index++;
+        callback.get().onComplete(new ConsulResponse<>(List.of(values), 0, true, BigInteger.valueOf(index), null, null));
+    }
+
+    private static Value createValue(String key, long modifyIndex) {
+        return ImmutableValue.builder()
+                .key(key)
+                .createIndex(1)
+                .modifyIndex(modifyIndex)
+                .lockIndex(0)
+                .flags(0)
+                .build();
+    }
+
+    private static class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+
+        private final long initialRequest;
+        private final List<T> items = new CopyOnWriteArrayList<>();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private Flow.Subscription subscription;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completed.set(true);
+        }
+    }
+}
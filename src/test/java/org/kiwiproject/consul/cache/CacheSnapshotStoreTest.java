@@ -0,0 +1,90 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.awaitility.Durations.FIVE_SECONDS;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kiwiproject.consul.model.kv.ImmutableValue;
+import org.kiwiproject.consul.model.kv.Value;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class CacheSnapshotStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldResolveRelativeFiles() {
+        var store = CacheSnapshotStore.of(Path.of("cache.json"), Value.class);
+
+        assertThat(store.getFile().isAbsolute()).isTrue();
+        assertThat(store.getFile().getParent()).isNotNull();
+    }
+
+    @Test
+    void shouldReturnEmpty_WhenThereIsNoSnapshotFile() {
+        var store = CacheSnapshotStore.of(tempDir.resolve("missing.json"), Value.class);
+
+        assertThat(store.load()).isEmpty();
+    }
+
+    @Test
+    void shouldReturnEmpty_WhenSnapshotFileIsCorrupt() throws IOException {
+        var file = Files.writeString(tempDir.resolve("corrupt.json"), "{\"index\": ");
+        var store = CacheSnapshotStore.of(file, Value.class);
+
+        assertThat(store.load()).isEmpty();
+    }
+
+    @Test
+    void shouldRoundTripSnapshots() throws IOException {
+        var store = CacheSnapshotStore.of(tempDir.resolve("nested/dir/cache.json"), Value.class);
+        var value = value();
+
+        store.save(new CacheSnapshot<>(BigInteger.valueOf(7), 12, true, 1_000L, List.of(value)));
+        store.save(new CacheSnapshot<>(BigInteger.valueOf(8), 13, false, 2_000L, List.of(value)));
+
+        assertThat(store.load()).hasValueSatisfying(snapshot -> {
+            assertThat(snapshot.getIndex()).isEqualTo(BigInteger.valueOf(8));
+            assertThat(snapshot.getLastContact()).isEqualTo(13);
+            assertThat(snapshot.isKnownLeader()).isFalse();
+            assertThat(snapshot.getSavedAtMillis()).isEqualTo(2_000L);
+            assertThat(snapshot.getValues()).containsExactly(value);
+        });
+        try (var files = Files.list(store.getFile().getParent())) {
+            assertThat(files).containsExactly(store.getFile());
+        }
+    }
+
+    @Test
+    void shouldSaveTheLatestSnapshotInBackground() {
+        var store = CacheSnapshotStore.of(tempDir.resolve("cache.json"), Value.class);
+        var value = value();
+
+        for (int i = 1; i <= 100; i++) {
+            store.saveInBackground(new CacheSnapshot<>(BigInteger.valueOf(i), 0, true, i, List.of(value)));
+        }
+
+        await().atMost(FIVE_SECONDS).untilAsserted(() ->
+                assertThat(store.load()).hasValueSatisfying(snapshot ->
+                        assertThat(snapshot.getIndex()).isEqualTo(BigInteger.valueOf(100))));
+    }
+
+    private static Value value() {
+        return ImmutableValue.builder()
+                .key("foo")
+                .createIndex(1)
+                .modifyIndex(7)
+                .lockIndex(0)
+                .flags(0)
+                .value("YmFy")
+                .build();
+    }
+}
@@ -0,0 +1,73 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.google.common.base.Ticker;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class CacheStatisticsTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    };
+
+    @Test
+    void shouldRecordPollsAndChanges() {
+        var statistics = new CacheStatistics(ticker);
+        statistics.recordSuccess(12, 3, BigInteger.TEN, true);
+        statistics.recordSuccess(5, 3, BigInteger.TEN, false);
+        statistics.recordFailure();
+        statistics.recordListeners(TimeUnit.MILLISECONDS.toNanos(4));
+        statistics.recordListeners(TimeUnit.MILLISECONDS.toNanos(2));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(7));
+
+        CacheMetrics metrics = statistics.fill(CacheMetrics.builder()).build();
+
+        assertThat(metrics.getPollSuccessCount()).isEqualTo(2);
+        assertThat(metrics.getPollFailureCount()).isOne();
+        assertThat(metrics.getChangeCount()).isOne();
+        assertThat(metrics.getLastResponseSize()).isEqualTo(3);
+        assertThat(metrics.getTimeSinceLastChange()).contains(Duration.ofSeconds(7));
+        assertThat(metrics.getLastListenerDuration()).isEqualTo(Duration.ofMillis(2));
+        assertThat(metrics.getMaxListenerDuration()).isEqualTo(Duration.ofMillis(4));
+        assertThat(metrics.getTotalListenerDuration()).isEqualTo(Duration.ofMillis(6));
+        assertThat(metrics.getPollLatency().getCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReportNoChange_WhenNothingChanged() {
+        var statistics = new CacheStatistics(ticker);
+
+        assertThat(statistics.fill(CacheMetrics.builder()).build().getTimeSinceLastChange()).isEmpty();
+    }
+
+    @Test
+    void shouldAverageIndexVelocity() {
+        var statistics = new CacheStatistics(ticker);
+        statistics.recordSuccess(0, 0, BigInteger.valueOf(100), true);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        statistics.recordSuccess(0, 0, BigInteger.valueOf(200), true);
+
+        assertThat(statistics.fill(CacheMetrics.builder()).build().getIndexVelocity()).isCloseTo(10.0, within(1e-9));
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        statistics.recordSuccess(0, 0, BigInteger.valueOf(200), false);
+
+        double expected = CacheStatistics.VELOCITY_ALPHA * 0 + (1 - CacheStatistics.VELOCITY_ALPHA) * 10.0;
+        assertThat(statistics.fill(CacheMetrics.builder()).build().getIndexVelocity()).isCloseTo(expected, within(1e-9));
+
+        // an index going backwards starts sampling again without affecting the velocity
+        statistics.recordSuccess(0, 0, BigInteger.ONE, true);
+        assertThat(statistics.fill(CacheMetrics.builder()).build().getIndexVelocity()).isCloseTo(expected, within(1e-9));
+    }
+}
@@ -0,0 +1,80 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kiwiproject.consul.CatalogClient;
+import org.kiwiproject.consul.config.ClientConfig;
+import org.kiwiproject.consul.model.catalog.ServiceTags;
+import org.kiwiproject.consul.monitoring.ClientEventHandler;
+import org.kiwiproject.consul.option.QueryOptions;
+
+import java.util.List;
+import java.util.Map;
+
+class CatalogServicesCacheTest {
+
+    private CatalogServicesCache cache;
+
+    @BeforeEach
+    void setUp() {
+        var catalogClient = mock(CatalogClient.class);
+        when(catalogClient.getConfig()).thenReturn(new ClientConfig());
+        when(catalogClient.getEventHandler()).thenReturn(mock(ClientEventHandler.class));
+
+        cache = CatalogServicesCache.newCache(catalogClient, QueryOptions.BLANK, 5);
+    }
+
+    @Test
+    void shouldIndexServicesByTag() {
+        var first = servicesOf(Map.of(
+                "web", List.of("http", "public"),
+                "api", List.of("http"),
+                "db", List.of()));
+        cache.onMapChanged(null, first);
+
+        assertThat(cache.getServicesWithTag("http")).containsExactlyInAnyOrder("web", "api");
+        assertThat(cache.getServicesWithTag("public")).containsExactly("web");
+        assertThat(cache.getServicesWithTag("unknown")).isEmpty();
+        assertThat(cache.getAllTags()).containsExactlyInAnyOrder("http", "public");
+    }
+
+    @Test
+    void shouldReplaceIndex_WhenTheMapChanges() {
+        var first = servicesOf(Map.of(
+                "web", List.of("http", "public"),
+                "api", List.of("http"),
+                "db", List.of("sql")));
+        cache.onMapChanged(null, first);
+
+        var second = servicesOf(Map.of(
+                "web", List.of("http"),
+                "api", List.of("http", "grpc"),
+                "cache", List.of("public")));
+        cache.onMapChanged(first, second);
+
+        assertThat(cache.getServicesWithTag("http")).containsExactlyInAnyOrder("web", "api");
+        assertThat(cache.getServicesWithTag("grpc")).containsExactly("api");
+        assertThat(cache.getServicesWithTag("public")).containsExactly("cache");
+        assertThat(cache.getServicesWithTag("sql")).isEmpty();
+        assertThat(cache.getAllTags()).containsExactlyInAnyOrder("http", "grpc", "public");
+    }
+
+    @Test
+    void shouldConvertServicesToServiceTags() {
+        var serviceTags = CatalogServicesCache.toServiceTags(Map.of("web", List.of("http")));
+
+        assertThat(serviceTags).containsExactly(ServiceTags.of("web", List.of("http")));
+        assertThat(CatalogServicesCache.toServiceTags(null)).isEmpty();
+    }
+
+    private static ImmutableMap<String, ServiceTags> servicesOf(Map<String, List<String>> services) {
+        var builder = ImmutableMap.<String, ServiceTags>builder();
+        services.forEach((name, tags) -> builder.put(name, ServiceTags.of(name, tags)));
+        return builder.build();
+    }
+}
@@ -0,0 +1,107 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.base.Equivalence;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.kiwiproject.consul.model.kv.ImmutableValue;
+import org.kiwiproject.consul.model.kv.Value;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Optional;
+
+class ChangeDetectorTest {
+
+    private static final Equivalence<Value> MODIFY_INDEX =
+            ModifyIndexEquivalence.of(value -> Optional.of(value.getModifyIndex()));
+
+    @Nested
+    class DeepEquals {
+
+        private final ChangeDetector<String, Value> detector = ChangeDetector.deepEquals();
+
+        @Test
+        void shouldNeverSkipBasedOnIndex() {
+            assertThat(detector.isUnchangedIndex(BigInteger.TEN, BigInteger.TEN)).isFalse();
+        }
+
+        @Test
+        void shouldCompareValues() {
+            var a = createValue("a", 1, "x");
+
+            assertThat(detector.hasChanged(null, Map.of("a", a))).isTrue();
+            assertThat(detector.hasChanged(Map.of("a", a), Map.of("a", a))).isFalse();
+            assertThat(detector.hasChanged(Map.of("a", a), Map.of("a", createValue("a", 1, "y")))).isTrue();
+        }
+    }
+
+    @Nested
+    class IndexBased {
+
+        private final ChangeDetector<String, Value> detector = ChangeDetector.indexBased(MODIFY_INDEX);
+
+        @Test
+        void shouldOnlySkipWhenTheSameNonZeroIndexIsReturned() {
+            assertThat(detector.isUnchangedIndex(BigInteger.TEN, BigInteger.TEN)).isTrue();
+            assertThat(detector.isUnchangedIndex(BigInteger.ONE, BigInteger.TEN)).isFalse();
+            assertThat(detector.isUnchangedIndex(BigInteger.ZERO, BigInteger.ZERO)).isFalse();
+            assertThat(detector.isUnchangedIndex(null, BigInteger.TEN)).isFalse();
+            assertThat(detector.isUnchangedIndex(BigInteger.TEN, null)).isFalse();
+        }
+
+        @Test
+        void shouldDetectAddedAndRemovedKeys() {
+            var a = createValue("a", 1, "x");
+            var b = createValue("b", 1, "y");
+
+            assertThat(detector.hasChanged(null, Map.of())).isTrue();
+            assertThat(detector.hasChanged(Map.of("a", a), Map.of("a", a, "b", b))).isTrue();
+            assertThat(detector.hasChanged(Map.of("a", a, "b", b), Map.of("a", a))).isTrue();
+            assertThat(detector.hasChanged(Map.of("a", a), Map.of("b", b))).isTrue();
+        }
+
+        @Test
+        void shouldCompareEntriesWithTheEquivalence() {
+            var before = createValue("a", 5, "x");
+
+            assertThat(detector.hasChanged(Map.of("a", before), Map.of("a", createValue("a", 5, "y")))).isFalse();
+            assertThat(detector.hasChanged(Map.of("a", before), Map.of("a", createValue("a", 6, "x")))).isTrue();
+        }
+
+        @Test
+        void shouldDetectSingleModificationInLargeMaps() {
+            var previous = createMap(10_000, 1);
+            var sameContent = createMap(10_000, 1);
+
+            var builder = ImmutableMap.<String, Value>builder().putAll(previous);
+            builder.put("key9999", createValue("key9999", 2, "value9999"));
+            var modified = builder.buildKeepingLast();
+
+            assertThat(detector.hasChanged(previous, sameContent)).isFalse();
+            assertThat(detector.hasChanged(previous, modified)).isTrue();
+        }
+    }
+
+    private static ImmutableMap<String, Value> createMap(int size, long modifyIndex) {
+        var builder = ImmutableMap.<String, Value>builder();
+        for (int i = 0; i < size; i++) {
+            var key = "key" + i;
+            builder.put(key, createValue(key, modifyIndex, "value" + i));
+        }
+        return builder.build();
+    }
+
+    private static Value createValue(String key, long modifyIndex, String value) {
+        return ImmutableValue.builder()
+                .key(key)
+                .createIndex(1)
+                .modifyIndex(modifyIndex)
+                .lockIndex(0)
+                .flags(0)
+                .value(value)
+                .build();
+    }
+}
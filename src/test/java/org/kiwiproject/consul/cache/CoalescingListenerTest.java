@@ -0,0 +1,117 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.Test;
+import org.kiwiproject.consul.config.CacheConfig;
+import org.kiwiproject.consul.model.kv.ImmutableValue;
+import org.kiwiproject.consul.model.kv.Value;
+import org.kiwiproject.consul.monitoring.ClientEventHandler;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+class CoalescingListenerTest {
+
+    @Test
+    void shouldOnlyDeliverTheLatestVersion_WhenDelegateIsBusy() {
+        var executor = new QueuedExecutor();
+        var delegate = new StubListener();
+        var listener = new CoalescingListener<>(delegate, executor);
+
+        listener.notify(Map.of("a", createValue("a")));
+        listener.notify(Map.of("b", createValue("b")));
+        listener.notify(Map.of("c", createValue("c")));
+
+        assertThat(delegate.getCallCount()).isZero();
+        assertThat(executor.tasks).hasSize(1);
+
+        executor.runAll();
+
+        assertThat(delegate.getCallCount()).isOne();
+        assertThat(delegate.getLastValues()).containsOnlyKeys("c");
+        assertThat(listener.getDeliveredVersionCount()).isOne();
+        assertThat(listener.getDroppedVersionCount()).isEqualTo(2);
+        assertThat(listener.getMaxDispatchLag()).isGreaterThanOrEqualTo(listener.getLastDispatchLag());
+    }
+
+    @Test
+    void shouldScheduleAgain_AfterDraining() {
+        var executor = new QueuedExecutor();
+        var delegate = new StubListener();
+        var listener = new CoalescingListener<>(delegate, executor);
+
+        listener.notify(Map.of("a", createValue("a")));
+        executor.runAll();
+        listener.notify(Map.of("b", createValue("b")));
+        executor.runAll();
+
+        assertThat(delegate.getCallCount()).isEqualTo(2);
+        assertThat(listener.getDroppedVersionCount()).isZero();
+    }
+
+    @Test
+    void shouldKeepDelivering_WhenDelegateThrows() {
+        var executor = new QueuedExecutor();
+        var listener = new CoalescingListener<>(new AlwaysThrowsListener(), executor);
+
+        listener.notify(Map.of());
+        executor.runAll();
+        listener.notify(Map.of());
+        executor.runAll();
+
+        assertThat(listener.getDeliveredVersionCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotifyOnTheListenerExecutor_WhenAddedToCache() {
+        var value = createValue("foo");
+        var callbackConsumer = new StubCallbackConsumer(List.of(value));
+        var executor = new QueuedExecutor();
+
+        try (var cache = new ConsulCache<>(Value::getKey, callbackConsumer, CacheConfig.builder().build(),
+                mock(ClientEventHandler.class), new CacheDescriptor(""))) {
+            var delegate = new StubListener();
+            var listener = cache.addListener(delegate, executor);
+            assertThat(cache.getListeners()).containsExactly(listener);
+
+            cache.start();
+            assertThat(delegate.getCallCount()).isZero();
+
+            executor.runAll();
+            assertThat(delegate.getCallCount()).isOne();
+            assertThat(delegate.getLastValues()).containsOnlyKeys("foo");
+        }
+    }
+
+    private static Value createValue(String key) {
+        return ImmutableValue.builder()
+                .key(key)
+                .createIndex(1)
+                .modifyIndex(1)
+                .lockIndex(0)
+                .flags(0)
+                .build();
+    }
+
+    private static class QueuedExecutor implements Executor {
+
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        synchronized void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+}
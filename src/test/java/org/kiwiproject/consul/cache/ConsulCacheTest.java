@@ -2,22 +2,31 @@ package org.kiwiproject.consul.cache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 import static org.awaitility.Awaitility.await;
 import static org.awaitility.Durations.FIVE_SECONDS;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.kiwiproject.consul.TestUtils;
+import org.kiwiproject.consul.async.ConsulResponseCallback;
 import org.kiwiproject.consul.cache.ConsulCache.CallbackConsumer;
 import org.kiwiproject.consul.cache.ConsulCache.Scheduler;
 import org.kiwiproject.consul.config.CacheConfig;
+import org.kiwiproject.consul.config.CacheRequestBudget;
 import org.kiwiproject.consul.model.ConsulResponse;
 import org.kiwiproject.consul.model.kv.ImmutableValue;
 import org.kiwiproject.consul.model.kv.Value;
@@ -27,10 +36,15 @@ import org.kiwiproject.consul.option.ImmutableQueryOptions;
 import org.kiwiproject.consul.option.QueryOptions;
 
 import java.math.BigInteger;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -166,6 +180,55 @@ class ConsulCacheTest {
             }
         }
 
+        @Test
+        void shouldKeepFirstValue_WhenKeysAreDuplicated() {
+            Function<Value, String> keyExtractor = input -> input.getKey().substring(0, 1);
+            var cacheConfig = mock(CacheConfig.class);
+            var eventHandler = mock(ClientEventHandler.class);
+            var callbackConsumer = new StubCallbackConsumer(List.of());
+
+            try (var consulCache = new ConsulCache<>(keyExtractor, callbackConsumer, cacheConfig, eventHandler, new CacheDescriptor(""))) {
+                var value1 = createTestValue("a1");
+                var value2 = createTestValue("b1");
+                var value3 = createTestValue("a2");
+                var consulResponse = new ConsulResponse<>(List.of(value1, value2, value3), 0, false, BigInteger.ONE, null, null);
+
+                ImmutableMap<String, Value> map = consulCache.convertToMap(consulResponse);
+
+                assertThat(map)
+                        .isUnmodifiable()
+                        .containsExactly(Map.entry("a", value1), Map.entry("b", value2));
+            }
+        }
+
+        @Test
+        void shouldCarryForwardEquivalentValues() {
+            Function<Value, String> keyExtractor = Value::getKey;
+            var cacheConfig = mock(CacheConfig.class);
+            var eventHandler = mock(ClientEventHandler.class);
+            var callbackConsumer = new StubCallbackConsumer(List.of());
+
+            try (var consulCache = new ConsulCache<>(keyExtractor, callbackConsumer, cacheConfig, eventHandler, new CacheDescriptor(""))) {
+                var previous = consulCache.convertToMap(new ConsulResponse<>(
+                        List.of(createTestValue("a"), createTestValue("b")), 0, false, BigInteger.ONE, null, null));
+
+                var modifiedB = ImmutableValue.copyOf(createTestValue("b")).withFlags(42);
+                var map = consulCache.convertToMap(new ConsulResponse<>(
+                        List.of(createTestValue("a"), modifiedB, createTestValue("c")), 0, false, BigInteger.TWO, null, null),
+                        previous);
+
+                assertThat(map).containsOnlyKeys("a", "b", "c");
+                assertThat(map.get("a")).isSameAs(previous.get("a"));
+                assertThat(map.get("b")).isSameAs(modifiedB);
+
+                var unchanged = consulCache.convertToMap(new ConsulResponse<>(
+                        List.of(createTestValue("a"), modifiedB, createTestValue("c")), 0, false, BigInteger.TWO, null, null),
+                        map);
+
+                assertThat(unchanged).isSameAs(map);
+            }
+        }
+
         private Value createTestValue(String key) {
             return ImmutableValue.builder()
                     .key(key)
@@ -219,6 +282,47 @@ class ConsulCacheTest {
         assertThat(actualQueryOptions).isEqualTo(expectedQueryOptions);
     }
 
+    @Test
+    void testWatchParamsWithFilteringOptions() {
+        var index = new BigInteger("12");
+        var additionalQueryOptions = ImmutableQueryOptions.builder()
+                .filter("Service.Meta.version == \"2\"")
+                .namespace("team-a")
+                .addNodeMeta("rack:r1")
+                .addTag("someTag")
+                .datacenter("dc2")
+                .build();
+
+        var actualQueryOptions = ConsulCache.watchParams(index, 10, additionalQueryOptions);
+
+        assertThat(actualQueryOptions.toQuery())
+                .containsEntry("filter", "Service.Meta.version == \"2\"")
+                .containsEntry("ns", "team-a")
+                .containsEntry("dc", "dc2")
+                .containsEntry("index", "12")
+                .containsEntry("wait", "10s");
+        assertThat(actualQueryOptions.getNodeMeta()).containsExactly("rack:r1");
+        assertThat(actualQueryOptions.getTag()).containsExactly("someTag");
+
+        var hashQueryOptions = ConsulCache.hashWatchParams("abc123", 10, additionalQueryOptions);
+
+        assertThat(hashQueryOptions.toQuery())
+                .containsEntry("filter", "Service.Meta.version == \"2\"")
+                .containsEntry("ns", "team-a")
+                .containsEntry("hash", "abc123");
+        assertThat(hashQueryOptions.getNodeMeta()).containsExactly("rack:r1");
+    }
+
+    @Test
+    void testWatchParamsWithAdditionalHashThrows() {
+        var additionalQueryOptions = ImmutableQueryOptions.builder()
+                .hash("abc123")
+                .build();
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> ConsulCache.watchParams(BigInteger.TEN, 10, additionalQueryOptions));
+    }
+
     @Test
     void testWatchParamsWithAdditionalIndexAndWaitingThrows() {
         var index = new BigInteger("12");
@@ -231,6 +335,24 @@ class ConsulCacheTest {
                 .isThrownBy(() -> ConsulCache.watchParams(index, 10, additionalQueryOptions));
     }
 
+    @Test
+    void testHashWatchParams() {
+        var additionalQueryOptions = ImmutableQueryOptions.builder()
+                .token("186596")
+                .build();
+
+        assertThat(ConsulCache.hashWatchParams(null, 10, additionalQueryOptions))
+                .isEqualTo(additionalQueryOptions);
+
+        var expectedQueryOptions = ImmutableQueryOptions.builder()
+                .hash("abc123")
+                .wait("10s")
+                .token("186596")
+                .build();
+        assertThat(ConsulCache.hashWatchParams("abc123", 10, additionalQueryOptions))
+                .isEqualTo(expectedQueryOptions);
+    }
+
     @ParameterizedTest(name = "min Delay: {0}, max Delay: {1}")
     @MethodSource("getRetryDurationSamples")
     void testRetryDuration(Duration minDelay, Duration maxDelay) {
@@ -354,6 +476,312 @@ class ConsulCacheTest {
         }
     }
 
+    @Test
+    void shouldPreloadSnapshotAndPersistChanges(@TempDir Path tempDir) throws Exception {
+        var cacheConfig = CacheConfig.builder().build();
+        var eventHandler = mock(ClientEventHandler.class);
+        var store = CacheSnapshotStore.of(tempDir.resolve("cache.json"), Value.class);
+
+        var persisted = ImmutableValue.builder()
+                .createIndex(1)
+                .modifyIndex(2)
+                .lockIndex(0)
+                .key("foo")
+                .flags(0)
+                .build();
+        store.save(new CacheSnapshot<>(BigInteger.valueOf(42), 5, true, System.currentTimeMillis(), List.of(persisted)));
+
+        var indexes = new CopyOnWriteArrayList<BigInteger>();
+        var callbacks = new CopyOnWriteArrayList<ConsulResponseCallback<List<Value>>>();
+        CallbackConsumer<Value> callbackConsumer = (index, callback) -> {
+            indexes.add(index);
+            callbacks.add(callback);
+        };
+
+        try (var cache = new ConsulCache<>(Value::getKey, callbackConsumer, cacheConfig, eventHandler, new CacheDescriptor(""))) {
+            cache.setSnapshotStore(store);
+            var listener = new StubListener();
+            cache.addListener(listener);
+
+            cache.start();
+
+            assertThat(cache.awaitInitialized(0, TimeUnit.MILLISECONDS)).isTrue();
+            assertThat(listener.getCallCount()).isOne();
+            assertThat(indexes).containsExactly(BigInteger.valueOf(42));
+            var preloaded = cache.getMapWithMetadata();
+            assertThat(preloaded.isStale()).isTrue();
+            assertThat(preloaded.getIndex()).isEqualTo(BigInteger.valueOf(42));
+            assertThat(preloaded.getResponse()).containsExactly(Map.entry("foo", persisted));
+
+            var updated = ImmutableValue.copyOf(persisted).withModifyIndex(43);
+            callbacks.get(0).onComplete(new ConsulResponse<>(List.of(updated), 0, true, BigInteger.valueOf(43), null, null));
+
+            assertThat(listener.getCallCount()).isEqualTo(2);
+            assertThat(cache.getMapWithMetadata().isStale()).isFalse();
+            await().atMost(FIVE_SECONDS).untilAsserted(() ->
+                    assertThat(store.load()).hasValueSatisfying(snapshot -> {
+                        assertThat(snapshot.getIndex()).isEqualTo(BigInteger.valueOf(43));
+                        assertThat(snapshot.getValues()).containsExactly(updated);
+                    }));
+        }
+    }
+
+    @Test
+    void shouldNotAllowSettingSnapshotStoreAfterStart(@TempDir Path tempDir) {
+        var cacheConfig = CacheConfig.builder().build();
+        var eventHandler = mock(ClientEventHandler.class);
+        var callbackConsumer = new StubCallbackConsumer(List.of());
+
+        try (var cache = new ConsulCache<>(Value::getKey, callbackConsumer, cacheConfig, eventHandler, new CacheDescriptor(""))) {
+            cache.start();
+
+            var store = CacheSnapshotStore.of(tempDir.resolve("cache.json"), Value.class);
+            assertThatIllegalStateException().isThrownBy(() -> cache.setSnapshotStore(store));
+        }
+    }
+
+    @Test
+    void shouldKeepCachedParamsAndReportAgentCacheInfo() {
+        var index = new BigInteger("12");
+        var cachedOptions = QueryOptions.cached(Duration.ofSeconds(5), Duration.ofSeconds(30)).build();
+
+        var watchParams = ConsulCache.watchParams(index, 10, cachedOptions);
+        assertThat(watchParams.toQuery()).containsKey("cached");
+        assertThat(watchParams.toHeaders()).containsEntry("Cache-Control", "max-age=5,stale-if-error=30");
+
+        var value = ImmutableValue.builder()
+                .createIndex(1)
+                .modifyIndex(1)
+                .lockIndex(0)
+                .key("foo")
+                .flags(0)
+                .build();
+        var callbacks = new CopyOnWriteArrayList<ConsulResponseCallback<List<Value>>>();
+        CallbackConsumer<Value> callbackConsumer = (ignoredIndex, callback) -> callbacks.add(callback);
+
+        try (var cache = new ConsulCache<>(Value::getKey, callbackConsumer, CacheConfig.builder().build(),
+                mock(ClientEventHandler.class), new CacheDescriptor(""))) {
+            cache.start();
+            callbacks.get(0).onComplete(new ConsulResponse<>(List.of(value), 0, true, index, "MISS", null));
+
+            var metadata = cache.getMapWithMetadata();
+            assertThat(metadata.getCacheResponseInfo()).hasValueSatisfying(info -> {
+                assertThat(info.isCacheHit()).isFalse();
+                assertThat(info.getAgeInSeconds()).isEmpty();
+            });
+
+            // the map does not change, but the cache info must be refreshed
+            callbacks.get(0).onComplete(new ConsulResponse<>(List.of(value), 0, true, index, "HIT", "3"));
+
+            metadata = cache.getMapWithMetadata();
+            assertThat(metadata.getResponse()).containsOnlyKeys("foo");
+            assertThat(metadata.getCacheResponseInfo()).hasValueSatisfying(info -> {
+                assertThat(info.isCacheHit()).isTrue();
+                assertThat(info.getAgeInSeconds()).contains(3L);
+            });
+        }
+    }
+
+    @Test
+    void shouldResetIndexWhenItGoesBackwards_AndClampZeroToOne() {
+        var indexes = new CopyOnWriteArrayList<BigInteger>();
+        var callbacks = new CopyOnWriteArrayList<ConsulResponseCallback<List<Value>>>();
+        CallbackConsumer<Value> callbackConsumer = (index, callback) -> {
+            indexes.add(index);
+            callbacks.add(callback);
+        };
+
+        try (var cache = new ConsulCache<>(Value::getKey, callbackConsumer, CacheConfig.builder().build(),
+                mock(ClientEventHandler.class), new CacheDescriptor(""))) {
+            cache.start();
+
+            callbacks.get(0).onComplete(new ConsulResponse<>(List.of(), 0, true, BigInteger.valueOf(10), null, null));
+            await().atMost(FIVE_SECONDS).until(() -> callbacks.size() == 2);
+            callbacks.get(1).onComplete(new ConsulResponse<>(List.of(), 0, true, BigInteger.valueOf(5), null, null));
+            await().atMost(FIVE_SECONDS).until(() -> callbacks.size() == 3);
+            callbacks.get(2).onComplete(new ConsulResponse<>(List.of(), 0, true, BigInteger.ZERO, null, null));
+            await().atMost(FIVE_SECONDS).until(() -> callbacks.size() == 4);
+
+            assertThat(indexes).containsExactly(null, BigInteger.valueOf(10), null, BigInteger.ONE);
+            assertThat(cache.getIndexResetCount()).isOne();
+        }
+    }
+
+    @Test
+    void shouldCountSpins_WhenBlockingQueryReturnsImmediatelyWithSameIndex() {
+        var calls = new AtomicInteger();
+        CallbackConsumer<Value> callbackConsumer = (index, callback) -> {
+            if (calls.incrementAndGet() <= 2) {
+                callback.onComplete(new ConsulResponse<>(List.of(), 0, true, BigInteger.valueOf(10), null, null));
+            }
+        };
+
+        try (var cache = new ConsulCache<>(Value::getKey, callbackConsumer, CacheConfig.builder().build(),
+                mock(ClientEventHandler.class), new CacheDescriptor(""))) {
+            cache.start();
+
+            await().atMost(FIVE_SECONDS).until(() -> calls.get() == 3);
+            assertThat(cache.getIndexSpinCount()).isOne();
+            assertThat(cache.getIndexResetCount()).isZero();
+        }
+    }
+
+    @Test
+    void shouldReportMetrics() {
+        var callbacks = new CopyOnWriteArrayList<ConsulResponseCallback<List<Value>>>();
+        CallbackConsumer<Value> callbackConsumer = (index, callback) -> callbacks.add(callback);
+        var eventHandler = mock(ClientEventHandler.class);
+        var descriptor = new CacheDescriptor("keyvalue", "root");
+
+        try (var cache = new ConsulCache<>(Value::getKey, callbackConsumer, CacheConfig.builder().build(),
+                eventHandler, descriptor)) {
+            cache.addListener(new StubListener());
+            cache.start();
+
+            var a = createValueWithFlags("a", 1, 1);
+            var b = createValueWithFlags("b", 1, 2);
+            callbacks.get(0).onComplete(new ConsulResponse<>(List.of(a, b), 25, true, BigInteger.TEN, null, null));
+            await().atMost(FIVE_SECONDS).until(() -> callbacks.size() == 2);
+            callbacks.get(1).onFailure(new RuntimeException("expected"));
+
+            CacheMetrics metrics = cache.getMetrics();
+            assertThat(metrics.getCacheDescriptor()).isSameAs(descriptor);
+            assertThat(metrics.getState()).isEqualTo(ConsulCache.State.STARTED);
+            assertThat(metrics.getEntryCount()).isEqualTo(2);
+            assertThat(metrics.getLastResponseSize()).isEqualTo(2);
+            assertThat(metrics.getIndex()).contains(BigInteger.TEN);
+            assertThat(metrics.getPollSuccessCount()).isOne();
+            assertThat(metrics.getPollFailureCount()).isOne();
+            assertThat(metrics.getChangeCount()).isOne();
+            assertThat(metrics.getTimeSinceLastChange()).isPresent();
+            assertThat(metrics.getLastContactMillis()).isEqualTo(25);
+            assertThat(metrics.isKnownLeader()).isTrue();
+            assertThat(metrics.getPollLatency().getCount()).isOne();
+            verify(eventHandler, times(2)).cacheMetrics(eq(descriptor), any(CacheMetrics.class));
+            verify(eventHandler).cacheListenersNotified(eq(descriptor), eq(1), any(Duration.class));
+        }
+    }
+
+    @Test
+    void shouldMaintainSecondaryIndexes() {
+        var callbacks = new CopyOnWriteArrayList<ConsulResponseCallback<List<Value>>>();
+        CallbackConsumer<Value> callbackConsumer = (index, callback) -> callbacks.add(callback);
+
+        try (var cache = new ConsulCache<>(Value::getKey, callbackConsumer, CacheConfig.builder().build(),
+                mock(ClientEventHandler.class), new CacheDescriptor(""))) {
+            cache.addIndex("flags", value -> List.of(value.getFlags()));
+            cache.start();
+
+            var a = createValueWithFlags("a", 1, 1);
+            var b = createValueWithFlags("b", 1, 2);
+            var c = createValueWithFlags("c", 1, 2);
+            callbacks.get(0).onComplete(new ConsulResponse<>(List.of(a, b, c), 0, true, BigInteger.ONE, null, null));
+
+            assertThat(cache.lookup("flags", 2L)).containsExactlyInAnyOrder(b, c);
+            assertThat(cache.<Long>index("flags").asMap()).containsOnlyKeys(1L, 2L);
+            ImmutableListMultimap<Long, Value> firstVersion = cache.index("flags");
+            assertThat(cache.<Long>index("flags")).isSameAs(firstVersion);
+
+            await().atMost(FIVE_SECONDS).until(() -> callbacks.size() == 2);
+            var movedB = createValueWithFlags("b", 2, 1);
+            callbacks.get(1).onComplete(new ConsulResponse<>(List.of(a, movedB), 0, true, BigInteger.TWO, null, null));
+
+            assertThat(cache.lookup("flags", 1L)).containsExactlyInAnyOrder(a, movedB);
+            assertThat(cache.lookup("flags", 2L)).isEmpty();
+            assertThat(cache.<Long>index("flags").get(1L)).containsExactlyInAnyOrder(a, movedB);
+            assertThat(cache.<Long>index("flags").containsKey(2L)).isFalse();
+            assertThat(firstVersion.get(2L)).containsExactlyInAnyOrder(b, c);
+
+            assertThatIllegalStateException().isThrownBy(() -> cache.addIndex("session", value -> List.of()));
+            assertThatIllegalArgumentException().isThrownBy(() -> cache.lookup("unknown", 1L));
+        }
+    }
+
+    @Test
+    void shouldUpdateLargeSecondaryIndexBuckets() {
+        var callbacks = new CopyOnWriteArrayList<ConsulResponseCallback<List<Value>>>();
+        CallbackConsumer<Value> callbackConsumer = (index, callback) -> callbacks.add(callback);
+
+        try (var cache = new ConsulCache<>(Value::getKey, callbackConsumer, CacheConfig.builder().build(),
+                mock(ClientEventHandler.class), new CacheDescriptor(""))) {
+            cache.addIndex("flags", value -> List.of(value.getFlags()));
+            cache.start();
+
+            List<Value> values = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                values.add(createValueWithFlags("key-" + i, 1, 1));
+            }
+            callbacks.get(0).onComplete(new ConsulResponse<>(values, 0, true, BigInteger.ONE, null, null));
+            assertThat(cache.lookup("flags", 1L)).hasSize(20_000);
+
+            // modify half of the entries, moving half of those to another bucket, and remove the other half
+            List<Value> updated = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++) {
+                updated.add(createValueWithFlags("key-" + i, 2, i % 2 == 0 ? 1 : 2));
+            }
+            await().atMost(FIVE_SECONDS).until(() -> callbacks.size() == 2);
+            callbacks.get(1).onComplete(new ConsulResponse<>(updated, 0, true, BigInteger.TWO, null, null));
+
+            assertThat(cache.lookup("flags", 1L))
+                    .hasSize(5_000)
+                    .allMatch(value -> value.getModifyIndex() == 2);
+            assertThat(cache.lookup("flags", 2L)).hasSize(5_000);
+        }
+    }
+
+    private static Value createValueWithFlags(String key, long modifyIndex, long flags) {
+        return ImmutableValue.builder()
+                .createIndex(1)
+                .modifyIndex(modifyIndex)
+                .lockIndex(0)
+                .key(key)
+                .flags(flags)
+                .build();
+    }
+
+    @Test
+    void testDiffListenerIsCalledWithAddedEntries() {
+        Function<Value, String> keyExtractor = Value::getKey;
+
+        var cacheConfig = CacheConfig.builder().build();
+        var eventHandler = mock(ClientEventHandler.class);
+
+        var key = "foo";
+        var value = ImmutableValue.builder()
+                .createIndex(1)
+                .modifyIndex(2)
+                .lockIndex(2)
+                .key(key)
+                .flags(0)
+                .build();
+        List<Value> result = List.of(value);
+        var callbackConsumer = new StubCallbackConsumer(result);
+
+        try (var cache = new ConsulCache<>(keyExtractor, callbackConsumer, cacheConfig, eventHandler, new CacheDescriptor(""))) {
+            var diffs = new ArrayList<CacheDiff<String, Value>>();
+            cache.addDiffListener(diffs::add);
+            assertThat(cache.getDiffListeners()).hasSize(1);
+
+            cache.start();
+
+            // the stub keeps returning the same result, so only the first poll produces a diff
+            assertThat(diffs).hasSize(1);
+            var diff = diffs.get(0);
+            assertThat(diff.getAdded()).containsExactly(Map.entry(key, value));
+            assertThat(diff.getRemoved()).isEmpty();
+            assertThat(diff.getModified()).isEmpty();
+
+            var lateDiffs = new ArrayList<CacheDiff<String, Value>>();
+            ConsulCache.DiffListener<String, Value> lateListener = lateDiffs::add;
+            cache.addDiffListener(lateListener);
+            assertThat(lateDiffs).hasSize(1);
+            assertThat(lateDiffs.get(0).getAdded()).containsExactly(Map.entry(key, value));
+
+            assertThat(cache.removeDiffListener(lateListener)).isTrue();
+            assertThat(cache.getDiffListeners()).hasSize(1);
+        }
+    }
+
     @Test
     void testListenerThrowingExceptionIsIsolated() {
         Function<Value, String> keyExtractor = Value::getKey;
@@ -434,4 +862,83 @@ class ConsulCacheTest {
         }
     }
 
+    @Test
+    void shouldReserveFromTheRequestBudgetWhenThePollIsDue() {
+        var cacheConfig = CacheConfig.builder()
+                .withMinDelayBetweenRequests(Duration.ofSeconds(2))
+                .withRequestBudget(new CacheRequestBudget(1, 1))
+                .build();
+        var callbackConsumer = new StubCallbackConsumer(List.of());
+        var scheduler = new RecordingScheduler();
+
+        try (var cache = new ConsulCache<>(Value::getKey, callbackConsumer, cacheConfig,
+                mock(ClientEventHandler.class), new CacheDescriptor(""), scheduler)) {
+
+            cache.start();
+
+            // the poll delay alone is long enough for the budget, which must not add its own wait to it
+            assertThat(callbackConsumer.getCallCount()).isOne();
+            assertThat(scheduler.delaysMillis).hasSize(1);
+            assertThat(scheduler.delaysMillis.get(0)).isBetween(1_900L, 2_000L);
+
+            // a poll that is due while the budget is exhausted waits for the budget only
+            scheduler.runLast();
+            assertThat(callbackConsumer.getCallCount()).isOne();
+            assertThat(scheduler.delaysMillis).hasSize(2);
+            assertThat(scheduler.delaysMillis.get(1)).isBetween(900L, 1_000L);
+
+            scheduler.runLast();
+            assertThat(callbackConsumer.getCallCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void shouldNotReserveFromTheRequestBudgetNorDelayPolls_WhenPollsDoNotSendRequests() {
+        var cacheConfig = CacheConfig.builder()
+                .withRequestBudget(new CacheRequestBudget(1, 1))
+                .withAdaptivePollingEnabled(true)
+                .withPollingJitter(Duration.ofSeconds(5))
+                .build();
+        var callbackConsumer = new StubCallbackConsumer(List.of());
+        var scheduler = new RecordingScheduler();
+
+        try (var cache = new ConsulCache<String, Value>(Value::getKey, callbackConsumer, cacheConfig,
+                mock(ClientEventHandler.class), new CacheDescriptor(""), scheduler) {
+            @Override
+            protected boolean sendsRequests() {
+                return false;
+            }
+        }) {
+            cache.start();
+            scheduler.runLast();
+            scheduler.runLast();
+
+            assertThat(callbackConsumer.getCallCount()).isEqualTo(3);
+            assertThat(scheduler.delaysMillis).containsExactly(0L, 0L, 0L);
+        }
+    }
+
+    /**
+     * Records the delays of the scheduled tasks, which only run when asked to.
+     */
+    private static class RecordingScheduler implements Scheduler {
+
+        private final List<Long> delaysMillis = new ArrayList<>();
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void schedule(Runnable r, long delay, TimeUnit unit) {
+            delaysMillis.add(unit.toMillis(delay));
+            tasks.add(r);
+        }
+
+        @Override
+        public void shutdownNow() {
+            tasks.clear();
+        }
+
+        void runLast() {
+            tasks.get(tasks.size() - 1).run();
+        }
+    }
 }
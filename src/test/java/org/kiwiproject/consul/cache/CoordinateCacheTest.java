@@ -0,0 +1,139 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kiwiproject.consul.Consul;
+import org.kiwiproject.consul.CoordinateClient;
+import org.kiwiproject.consul.async.ConsulResponseCallback;
+import org.kiwiproject.consul.config.ClientConfig;
+import org.kiwiproject.consul.model.ConsulResponse;
+import org.kiwiproject.consul.model.coordinate.Coord;
+import org.kiwiproject.consul.model.coordinate.Coordinate;
+import org.kiwiproject.consul.model.coordinate.ImmutableCoord;
+import org.kiwiproject.consul.model.coordinate.ImmutableCoordinate;
+import org.kiwiproject.consul.monitoring.ClientEventHandler;
+import org.kiwiproject.consul.option.QueryOptions;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class CoordinateCacheTest {
+
+    private CoordinateCache cache;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        List<Coordinate> coordinates = List.of(
+                coordinate("local", 0.0, 0.0),
+                coordinate("near", 0.003, 0.004),
+                coordinate("middle", 0.0, 0.010),
+                coordinate("far", 0.030, 0.040));
+
+        var coordinateClient = mock(CoordinateClient.class);
+        when(coordinateClient.getConfig()).thenReturn(new ClientConfig());
+        when(coordinateClient.getEventHandler()).thenReturn(mock(ClientEventHandler.class));
+        when(coordinateClient.getNetworkTimeoutConfig())
+                .thenReturn(new Consul.NetworkTimeoutConfig.Builder().withReadTimeout(10500).build());
+        var responded = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (responded.compareAndSet(false, true)) {
+                ConsulResponseCallback<List<Coordinate>> callback = invocation.getArgument(1);
+                callback.onComplete(new ConsulResponse<>(coordinates, 0, true, BigInteger.ONE, null, null));
+            }
+            return null;
+        }).when(coordinateClient).getNodes(any(QueryOptions.class), any());
+
+        cache = CoordinateCache.newCache(coordinateClient, QueryOptions.BLANK, 5);
+        cache.start();
+        assertThat(cache.awaitInitialized(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.stop();
+    }
+
+    @Test
+    void shouldEstimateRttBetweenCoordinates() {
+        Coord from = coord(0.0, 0.0, 0.001, 0.0);
+        Coord to = coord(0.003, 0.004, 0.002, 0.0);
+
+        assertThat(CoordinateCache.estimateRtt(from, to)).isEqualTo(Duration.ofMillis(8));
+    }
+
+    @Test
+    void shouldApplyAdjustmentsUnlessTheEstimateBecomesNegative() {
+        Coord from = coord(0.0, 0.0, 0.0, 0.001);
+        Coord to = coord(0.003, 0.004, 0.0, 0.002);
+        assertThat(CoordinateCache.estimateRtt(from, to)).isEqualTo(Duration.ofMillis(8));
+
+        Coord negativelyAdjusted = coord(0.003, 0.004, 0.0, -0.010);
+        assertThat(CoordinateCache.estimateRtt(from, negativelyAdjusted)).isEqualTo(Duration.ofMillis(5));
+    }
+
+    @Test
+    void shouldRejectCoordinatesWithDifferentDimensions() {
+        Coord from = ImmutableCoord.builder().vec(new double[] {0.0}).height(0).adjustment(0).error(0).build();
+        Coord to = coord(0.003, 0.004, 0.0, 0.0);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> CoordinateCache.estimateRtt(from, to));
+    }
+
+    @Test
+    void shouldEstimateRttBetweenNodes() {
+        assertThat(cache.estimateRtt("local", "near")).contains(Duration.ofMillis(5));
+        assertThat(cache.estimateRtt("local", "unknown")).isEmpty();
+    }
+
+    @Test
+    void shouldSortNearestFirst_WithUnknownNodesLast() {
+        List<String> nodes = List.of("unknown", "far", "near", "middle", "near");
+
+        assertThat(cache.sortByRtt("local", nodes, node -> node))
+                .containsExactly("near", "near", "middle", "far", "unknown");
+    }
+
+    @Test
+    void shouldKeepOrder_WhenTheSourceNodeIsUnknown() {
+        List<String> nodes = List.of("far", "near", "middle");
+
+        assertThat(cache.sortByRtt("elsewhere", nodes, node -> node)).containsExactly("far", "near", "middle");
+    }
+
+    @Test
+    void shouldGetTheKNearest() {
+        List<String> nodes = List.of("far", "unknown", "middle", "near");
+
+        assertThat(cache.nearest("local", nodes, node -> node, 2)).containsExactly("near", "middle");
+        assertThat(cache.nearest("local", nodes, node -> node, 10)).containsExactly("near", "middle", "far", "unknown");
+        assertThat(cache.nearest("local", nodes, node -> node, 0)).isEmpty();
+        assertThatIllegalArgumentException().isThrownBy(() -> cache.nearest("local", nodes, node -> node, -1));
+    }
+
+    private static Coordinate coordinate(String node, double x, double y) {
+        return ImmutableCoordinate.builder()
+                .node(node)
+                .coord(coord(x, y, 0.0, 0.0))
+                .build();
+    }
+
+    private static Coord coord(double x, double y, double height, double adjustment) {
+        return ImmutableCoord.builder()
+                .vec(new double[] {x, y})
+                .height(height)
+                .adjustment(adjustment)
+                .error(0.1)
+                .build();
+    }
+}
@@ -5,6 +5,7 @@ import static org.awaitility.Awaitility.await;
 import static org.awaitility.Durations.FIVE_SECONDS;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 
+import com.google.common.base.Equivalence;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -25,6 +26,8 @@ import retrofit2.mock.MockRetrofit;
 import retrofit2.mock.NetworkBehavior;
 
 import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -59,6 +62,45 @@ class KVCacheTest {
         );
     }
 
+    @Test
+    void shouldUpdateTrieIncrementally() {
+        Map<String, Value> previous = new LinkedHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            previous.put("a/" + i, createValue("a/" + i, 1));
+        }
+        previous.put("b/x", createValue("b/x", 1));
+        KVTrie trie = KVCache.updateTrie(KVTrie.empty(), null, previous, Equivalence.equals());
+
+        Map<String, Value> current = new LinkedHashMap<>(previous);
+        current.put("b/x", createValue("b/x", 2));
+        current.remove("a/9");
+        KVTrie updated = KVCache.updateTrie(trie, previous, current, Equivalence.equals());
+
+        assertThat(updated.toMap()).isEqualTo(current);
+        assertThat(updated.hasSubtreeChanged(trie, "a")).isTrue();
+        assertThat(updated.hasSubtreeChanged(trie, "b")).isTrue();
+
+        Map<String, Value> next = new LinkedHashMap<>(current);
+        next.put("b/y", createValue("b/y", 3));
+        KVTrie updatedAgain = KVCache.updateTrie(updated, current, next, Equivalence.equals());
+
+        assertThat(updatedAgain.get("b/y")).contains(createValue("b/y", 3));
+        assertThat(updatedAgain.hasSubtreeChanged(updated, "a")).isFalse();
+        assertThat(KVCache.updateTrie(updatedAgain, next, Map.copyOf(next), Equivalence.equals()))
+                .isSameAs(updatedAgain);
+    }
+
+    private Value createValue(final String key, final long modifyIndex) {
+        return ImmutableValue.builder()
+                .createIndex(1)
+                .modifyIndex(modifyIndex)
+                .lockIndex(0)
+                .flags(0)
+                .key(key)
+                .value(Optional.empty())
+                .build();
+    }
+
     private Value createValue(final String key) {
         return ImmutableValue.builder()
                 .createIndex(1234567890)
@@ -0,0 +1,141 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import org.junit.jupiter.api.Test;
+import org.kiwiproject.consul.model.kv.ImmutableValue;
+import org.kiwiproject.consul.model.kv.Value;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+class KVTrieTest {
+
+    @Test
+    void shouldLookUpKeysAndSubtrees() {
+        KVTrie trie = KVTrie.of(values("features/payments/enabled", "features/payments/limit",
+                "features/search", "features/", "top"));
+
+        assertThat(trie.size()).isEqualTo(5);
+        assertThat(trie.get("features/payments/limit")).contains(value("features/payments/limit", 1));
+        assertThat(trie.get("features/")).contains(value("features/", 1));
+        assertThat(trie.get("features")).isEmpty();
+        assertThat(trie.get("features/payments")).isEmpty();
+        assertThat(trie.get("missing/key")).isEmpty();
+
+        KVTrie payments = trie.subtree("features/payments/");
+        assertThat(payments.toMap()).containsExactly(
+                entry("enabled", value("features/payments/enabled", 1)),
+                entry("limit", value("features/payments/limit", 1)));
+        assertThat(trie.subtree("features/payments").toMap()).isEqualTo(payments.toMap());
+        assertThat(trie.subtree("features").toMap()).containsOnlyKeys("", "payments/enabled", "payments/limit", "search");
+        assertThat(trie.subtree("").toMap()).isEqualTo(trie.toMap());
+        assertThat(trie.subtree("nope").isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldListEntriesInKeyOrder() {
+        KVTrie trie = KVTrie.of(values("b/2", "a", "b/1", "c"));
+
+        assertThat(trie.toMap().keySet()).containsExactly("a", "b/1", "b/2", "c");
+        assertThat(trie.with("b/0", value("b/0", 1)).toMap().keySet()).containsExactly("a", "b/0", "b/1", "b/2", "c");
+    }
+
+    @Test
+    void shouldShareUntouchedSubtrees() {
+        KVTrie trie = KVTrie.of(values("a/x", "a/y", "b/x"));
+
+        KVTrie updated = trie.with("a/x", value("a/x", 2));
+
+        assertThat(trie.get("a/x")).contains(value("a/x", 1));
+        assertThat(updated.get("a/x")).contains(value("a/x", 2));
+        assertThat(updated.size()).isEqualTo(3);
+        assertThat(updated.hasSubtreeChanged(trie, "a")).isTrue();
+        assertThat(updated.hasSubtreeChanged(trie, "b")).isFalse();
+        assertThat(updated.hasSubtreeChanged(null, "b")).isTrue();
+    }
+
+    @Test
+    void shouldRemoveKeysAndPruneEmptyNodes() {
+        KVTrie trie = KVTrie.of(values("a/x/1", "a/y", "b"));
+
+        KVTrie removed = trie.without("a/x/1");
+
+        assertThat(removed.size()).isEqualTo(2);
+        assertThat(removed.toMap()).containsOnlyKeys("a/y", "b");
+        assertThat(removed.subtree("a/x").isEmpty()).isTrue();
+        assertThat(removed.hasSubtreeChanged(trie, "b")).isFalse();
+        assertThat(removed.without("missing")).isSameAs(removed);
+        assertThat(removed.without("a/y").without("b").isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldApplyManyChangesAtOnce() {
+        KVTrie trie = KVTrie.of(values("a/x", "a/y", "b/x", "c/x"));
+
+        KVTrie updated = trie.withChanges(
+                Map.of("a/x", value("a/x", 2), "a/z", value("a/z", 1), "d/x", value("d/x", 1)),
+                List.of("c/x", "missing/key"));
+
+        assertThat(updated.toMap().keySet()).containsExactly("a/x", "a/y", "a/z", "b/x", "d/x");
+        assertThat(updated.get("a/x")).contains(value("a/x", 2));
+        assertThat(updated.size()).isEqualTo(5);
+        assertThat(updated.subtree("c").isEmpty()).isTrue();
+        assertThat(updated.hasSubtreeChanged(trie, "a")).isTrue();
+        assertThat(updated.hasSubtreeChanged(trie, "b")).isFalse();
+        assertThat(updated.withChanges(Map.of(), List.of("missing"))).isSameAs(updated);
+        assertThat(updated.withChanges(Map.of(), List.of("a/x", "a/y", "a/z", "b/x", "d/x")).isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldBuildFlatPrefixesWithManyKeys() {
+        Map<String, Value> values = new LinkedHashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            values.put("flat/" + i, value("flat/" + i, 1));
+        }
+        KVTrie trie = KVTrie.of(values);
+
+        Map<String, Value> upserts = new LinkedHashMap<>();
+        for (int i = 20_000; i < 40_000; i++) {
+            upserts.put("flat/" + i, value("flat/" + i, 1));
+        }
+        KVTrie updated = trie.withChanges(upserts, List.of("flat/0"));
+
+        assertThat(trie.size()).isEqualTo(20_000);
+        assertThat(updated.size()).isEqualTo(39_999);
+        assertThat(updated.get("flat/39999")).contains(value("flat/39999", 1));
+        assertThat(updated.get("flat/0")).isEmpty();
+    }
+
+    @Test
+    void shouldNotCountThePrefixKeyInSubtree() {
+        KVTrie trie = KVTrie.of(values("a", "a/b"));
+
+        KVTrie updated = trie.with("a", value("a", 2));
+
+        assertThat(trie.subtree("a").toMap()).containsOnlyKeys("b");
+        assertThat(updated.hasSubtreeChanged(trie, "a")).isFalse();
+    }
+
+    private static Map<String, Value> values(String... keys) {
+        Map<String, Value> values = new LinkedHashMap<>();
+        for (String key : keys) {
+            values.put(key, value(key, 1));
+        }
+        return values;
+    }
+
+    private static Value value(String key, long modifyIndex) {
+        return ImmutableValue.builder()
+                .createIndex(1)
+                .modifyIndex(modifyIndex)
+                .lockIndex(0)
+                .flags(0)
+                .key(key)
+                .value(Optional.empty())
+                .build();
+    }
+}
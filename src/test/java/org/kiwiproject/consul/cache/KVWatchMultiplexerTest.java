@@ -0,0 +1,183 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.awaitility.Durations.FIVE_SECONDS;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.Multiset;
+import okhttp3.Headers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kiwiproject.consul.Consul;
+import org.kiwiproject.consul.KeyValueClient;
+import org.kiwiproject.consul.KeyValueClientFactory;
+import org.kiwiproject.consul.config.CacheConfig;
+import org.kiwiproject.consul.config.ClientConfig;
+import org.kiwiproject.consul.model.kv.ImmutableValue;
+import org.kiwiproject.consul.model.kv.Value;
+import org.kiwiproject.consul.monitoring.NoOpClientEventCallback;
+import org.kiwiproject.consul.option.QueryOptions;
+import retrofit2.Response;
+import retrofit2.mock.Calls;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+class KVWatchMultiplexerTest {
+
+    private final Multiset<String> requestedKeys = ConcurrentHashMultiset.create();
+    private final AtomicReference<List<Value>> values = new AtomicReference<>();
+    private final AtomicLong index = new AtomicLong(1);
+    private final Map<String, Long> indexByKey = new ConcurrentHashMap<>();
+    private final List<KVCache> caches = new ArrayList<>();
+
+    private KVWatchMultiplexer multiplexer;
+
+    @BeforeEach
+    void setUp() {
+        values.set(List.of(
+                createValue("config/a", 1),
+                createValue("config/app/b", 1),
+                createValue("config/app/db/c", 1),
+                createValue("other/x", 1)));
+
+        var api = mock(KeyValueClient.Api.class);
+        when(api.getValue(anyString(), anyMap())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            requestedKeys.add(key);
+            List<Value> matching = values.get().stream()
+                    .filter(value -> value.getKey().startsWith(key))
+                    .collect(Collectors.toList());
+            var headers = Headers.of("X-Consul-Index", String.valueOf(indexByKey.getOrDefault(key, index.get())));
+            return Calls.response(Response.success(matching, headers));
+        });
+
+        var cacheConfig = CacheConfig.builder()
+                .withMinDelayBetweenRequests(Duration.ofMillis(50))
+                .build();
+        var kvClient = KeyValueClientFactory.create(api,
+                new ClientConfig(cacheConfig),
+                new NoOpClientEventCallback(),
+                new Consul.NetworkTimeoutConfig.Builder().withReadTimeout(10500).build());
+
+        multiplexer = new KVWatchMultiplexer(kvClient, 5, QueryOptions.BLANK);
+    }
+
+    @AfterEach
+    void tearDown() {
+        caches.forEach(KVCache::stop);
+        multiplexer.close();
+    }
+
+    @Test
+    void shouldServeNestedCachesFromOneWatch_WithTheSameKeysAsKVCache() throws InterruptedException {
+        var appCache = startCache("config/app/");
+        var configCache = startCache("config/");
+        var dbCache = startCache("/config/app/db/");
+
+        assertThat(multiplexer.getWatchedPaths()).containsExactly("config/");
+        assertThat(configCache.getMap()).containsOnlyKeys("a", "app/b", "app/db/c");
+        assertThat(appCache.getMap()).containsOnlyKeys("b", "db/c");
+        assertThat(dbCache.getMap()).containsOnlyKeys("c");
+        assertThat(dbCache.getMap()).isEqualTo(expectedMap("config/app/db/"));
+
+        requestedKeys.clear();
+        var updated = new ArrayList<>(values.get());
+        updated.add(createValue("config/app/db/d", 2));
+        values.set(updated);
+        index.set(2);
+
+        await().atMost(FIVE_SECONDS).until(() -> dbCache.getMap().containsKey("d"));
+        assertThat(appCache.getMap()).containsOnlyKeys("b", "db/c", "db/d");
+        assertThat(configCache.getMap()).containsOnlyKeys("a", "app/b", "app/db/c", "app/db/d");
+        assertThat(requestedKeys.elementSet()).containsOnly("config/");
+    }
+
+    @Test
+    void shouldKeepSeparateWatchesForDisjointPaths() throws InterruptedException {
+        var configCache = startCache("config/");
+        var otherCache = startCache("other/");
+
+        assertThat(multiplexer.getWatchedPaths()).containsExactlyInAnyOrder("config/", "other/");
+        assertThat(configCache.getMap()).containsOnlyKeys("a", "app/b", "app/db/c");
+        assertThat(otherCache.getMap()).containsOnlyKeys("x");
+    }
+
+    @Test
+    void shouldShrinkTheWatch_WhenCachesStop() throws InterruptedException {
+        var configCache = startCache("config/");
+        var appCache = startCache("config/app/");
+        var secondConfigCache = startCache("config/");
+
+        configCache.stop();
+        assertThat(multiplexer.getWatchedPaths()).containsExactly("config/");
+
+        secondConfigCache.stop();
+        assertThat(multiplexer.getWatchedPaths()).containsExactly("config/app/");
+
+        requestedKeys.clear();
+        var updated = new ArrayList<>(values.get());
+        updated.add(createValue("config/app/e", 3));
+        values.set(updated);
+        index.set(3);
+
+        await().atMost(FIVE_SECONDS).until(() -> appCache.getMap().containsKey("e"));
+        assertThat(requestedKeys.elementSet()).containsOnly("config/app/");
+
+        appCache.stop();
+        assertThat(multiplexer.getWatchedPaths()).isEmpty();
+    }
+
+    @Test
+    void shouldNotResetCaches_WhenTheWatchMovesToAPathWithALowerIndex() throws InterruptedException {
+        index.set(5);
+        var appCache = startCache("config/app/");
+        indexByKey.put("config/", 3L);
+
+        startCache("config/");
+        await().atMost(FIVE_SECONDS).until(() -> requestedKeys.count("config/") > 1);
+
+        assertThat(multiplexer.getWatchedPaths()).containsExactly("config/");
+        assertThat(appCache.getMap()).containsOnlyKeys("b", "db/c");
+        assertThat(appCache.getIndexResetCount()).isZero();
+        assertThat(appCache.getMapWithMetadata().getIndex()).hasToString("5");
+    }
+
+    private KVCache startCache(String rootPath) throws InterruptedException {
+        var cache = multiplexer.newCache(rootPath);
+        caches.add(cache);
+        cache.start();
+        assertThat(cache.awaitInitialized(5, TimeUnit.SECONDS)).isTrue();
+        return cache;
+    }
+
+    private Map<String, Value> expectedMap(String keyPath) {
+        var keyExtractor = KVCache.getKeyExtractorFunction(keyPath);
+        return values.get().stream()
+                .filter(value -> value.getKey().startsWith(keyPath))
+                .collect(Collectors.toMap(keyExtractor, value -> value));
+    }
+
+    private static Value createValue(String key, long modifyIndex) {
+        return ImmutableValue.builder()
+                .key(key)
+                .createIndex(1)
+                .modifyIndex(modifyIndex)
+                .lockIndex(0)
+                .flags(0)
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+class LatencyHistogramTest {
+
+    @Test
+    void shouldBeEmptyInitially() {
+        var snapshot = new LatencyHistogram().snapshot();
+
+        assertThat(snapshot.getCount()).isZero();
+        assertThat(snapshot.getMean()).isZero();
+        assertThat(snapshot.getPercentile(99)).isZero();
+        assertThat(snapshot.getBucketCounts()).hasSize(snapshot.getBucketUpperBoundsMillis().length + 1);
+    }
+
+    @Test
+    void shouldCountLatenciesPerBucket() {
+        var histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(1);
+        histogram.record(3);
+        histogram.record(40);
+        histogram.record(400_000);
+
+        var snapshot = histogram.snapshot();
+
+        assertThat(snapshot.getCount()).isEqualTo(5);
+        assertThat(snapshot.getSum()).isEqualTo(Duration.ofMillis(400_044));
+        assertThat(snapshot.getMax()).isEqualTo(Duration.ofMillis(400_000));
+        long[] counts = snapshot.getBucketCounts();
+        assertThat(counts[0]).isEqualTo(2);
+        assertThat(counts[2]).isOne();
+        assertThat(counts[5]).isOne();
+        assertThat(counts[counts.length - 1]).isOne();
+    }
+
+    @Test
+    void shouldEstimatePercentiles() {
+        var histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(8);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(700);
+        }
+
+        var snapshot = histogram.snapshot();
+
+        assertThat(snapshot.getPercentile(50)).isEqualTo(Duration.ofMillis(10));
+        assertThat(snapshot.getPercentile(90)).isEqualTo(Duration.ofMillis(10));
+        assertThat(snapshot.getPercentile(99)).isEqualTo(Duration.ofMillis(700));
+        assertThatIllegalArgumentException().isThrownBy(() -> snapshot.getPercentile(101));
+    }
+}
@@ -0,0 +1,103 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.kiwiproject.consul.model.health.ImmutableHealthCheck;
+import org.kiwiproject.consul.model.health.ImmutableNode;
+import org.kiwiproject.consul.model.health.ImmutableService;
+import org.kiwiproject.consul.model.health.ImmutableServiceHealth;
+import org.kiwiproject.consul.model.health.ServiceHealth;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Measures the retained heap of a 100,000-instance catalog (500 services on 2,000 nodes, 50 instances per node)
+ * stored as deserialized, and stored in the compact form of {@link ServiceHealthCache#withCompactMode()}.
+ * <p>
+ * The measure is approximate (used heap after forcing garbage collections), so this only runs when asked to,
+ * for example with {@code mvn test -Dtest=ServiceHealthCompactMemoryBenchmark -Dconsul.benchmarks=true}.
+ */
+@EnabledIfSystemProperty(named = "consul.benchmarks", matches = "true")
+class ServiceHealthCompactMemoryBenchmark {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceHealthCompactMemoryBenchmark.class);
+
+    private static final int NODE_COUNT = 2_000;
+    private static final int SERVICE_COUNT = 500;
+    private static final int INSTANCES_PER_NODE = 50;
+
+    @Test
+    void measureRetainedHeap() {
+        long plainBytes = retainedBytes(UnaryOperator.identity());
+        var interner = new ServiceHealthInterner();
+        long compactBytes = retainedBytes(interner::intern);
+
+        LOG.info("Retained heap for {} instances: plain {} KiB, compact {} KiB ({}%)",
+                NODE_COUNT * INSTANCES_PER_NODE, plainBytes / 1024, compactBytes / 1024,
+                String.format("%.1f", 100.0 * compactBytes / plainBytes));
+        assertThat(compactBytes).isLessThan(plainBytes);
+    }
+
+    private static long retainedBytes(UnaryOperator<ServiceHealth> storage) {
+        long before = usedHeapAfterGc();
+        List<ServiceHealth> catalog = new ArrayList<>(NODE_COUNT * INSTANCES_PER_NODE);
+        for (int node = 0; node < NODE_COUNT; node++) {
+            for (int instance = 0; instance < INSTANCES_PER_NODE; instance++) {
+                int service = (node * INSTANCES_PER_NODE + instance) % SERVICE_COUNT;
+                catalog.add(storage.apply(createServiceHealth(node, service)));
+            }
+        }
+        long after = usedHeapAfterGc();
+        assertThat(catalog).hasSize(NODE_COUNT * INSTANCES_PER_NODE);
+        return after - before;
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Creates an instance made of distinct objects only, like a freshly deserialized one.
+     */
+    private static ServiceHealth createServiceHealth(int node, int service) {
+        String nodeName = "node-" + node;
+        String address = "10.0." + (node / 256) + "." + (node % 256);
+        return ImmutableServiceHealth.builder()
+                .node(ImmutableNode.builder()
+                        .node(nodeName)
+                        .address(address)
+                        .datacenter(new String("dc1"))
+                        .nodeMeta(Map.of(new String("rack"), "rack-" + (node % 40), new String("zone"), "zone-" + (node % 3)))
+                        .modifyIndex(1000L + node)
+                        .build())
+                .service(ImmutableService.builder()
+                        .id("service-" + service + "-" + node)
+                        .service("service-" + service)
+                        .address("10.0." + (node / 256) + "." + (node % 256))
+                        .port(20_000 + service)
+                        .tags(List.of(new String("http"), "team-" + (service % 20)))
+                        .meta(Map.of(new String("version"), "1." + (service % 5) + ".0"))
+                        .modifyIndex(5000L + service)
+                        .build())
+                .addChecks(ImmutableHealthCheck.builder()
+                        .node("node-" + node)
+                        .checkId(new String("serfHealth"))
+                        .name(new String("Serf Health Status"))
+                        .status(new String("passing"))
+                        .output(new String("Agent alive and reachable"))
+                        .modifyIndex(1000L + node)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,94 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.kiwiproject.consul.HealthClient;
+import org.kiwiproject.consul.config.ClientConfig;
+import org.kiwiproject.consul.model.ConsulResponse;
+import org.kiwiproject.consul.model.health.ImmutableHealthCheck;
+import org.kiwiproject.consul.model.health.ImmutableNode;
+import org.kiwiproject.consul.model.health.ImmutableService;
+import org.kiwiproject.consul.model.health.ImmutableServiceHealth;
+import org.kiwiproject.consul.model.health.ServiceHealth;
+import org.kiwiproject.consul.monitoring.ClientEventHandler;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+class ServiceHealthInternerTest {
+
+    @Test
+    void shouldReturnEqualInstances_SharingTheirCommonParts() {
+        var interner = new ServiceHealthInterner();
+        ServiceHealth first = createServiceHealth("web-1", 8080);
+        ServiceHealth second = createServiceHealth("web-2", 8081);
+
+        ServiceHealth compactFirst = interner.intern(first);
+        ServiceHealth compactSecond = interner.intern(second);
+
+        assertThat(compactFirst).isEqualTo(first);
+        assertThat(compactSecond).isEqualTo(second);
+        assertThat(compactSecond.getNode()).isSameAs(compactFirst.getNode());
+        assertThat(compactSecond.getService().getTags()).isSameAs(compactFirst.getService().getTags());
+        assertThat(compactSecond.getService().getMeta()).isSameAs(compactFirst.getService().getMeta());
+        assertThat(compactSecond.getNode().getDatacenter().orElseThrow())
+                .isSameAs(compactFirst.getNode().getDatacenter().orElseThrow());
+        assertThat(compactSecond.getChecks().get(0).getStatus())
+                .isSameAs(compactFirst.getChecks().get(0).getStatus());
+        assertThat(compactSecond.getService().getService()).isSameAs(compactFirst.getService().getService());
+    }
+
+    @Test
+    void shouldCompactNewValues_InCompactMode() {
+        var healthClient = mock(HealthClient.class);
+        when(healthClient.getConfig()).thenReturn(new ClientConfig());
+        when(healthClient.getEventHandler()).thenReturn(mock(ClientEventHandler.class));
+
+        try (var cache = ServiceHealthCache.newCache(healthClient, "web")) {
+            assertThat(cache.isCompactMode()).isFalse();
+            assertThat(cache.withCompactMode()).isSameAs(cache);
+            assertThat(cache.isCompactMode()).isTrue();
+
+            var response = new ConsulResponse<>(
+                    List.of(createServiceHealth("web-1", 8080), createServiceHealth("web-2", 8081)),
+                    0, true, BigInteger.ONE, null, null);
+            var map = List.copyOf(cache.convertToMap(response).values());
+
+            assertThat(map).hasSize(2);
+            assertThat(map.get(1).getNode()).isSameAs(map.get(0).getNode());
+        }
+    }
+
+    /**
+     * Creates an instance whose strings, lists and maps are all distinct objects, like freshly deserialized ones.
+     */
+    static ServiceHealth createServiceHealth(String id, int port) {
+        return ImmutableServiceHealth.builder()
+                .node(ImmutableNode.builder()
+                        .node(new String("node-1"))
+                        .address(new String("10.0.0.1"))
+                        .datacenter(new String("dc1"))
+                        .nodeMeta(Map.of(new String("rack"), new String("r1")))
+                        .build())
+                .service(ImmutableService.builder()
+                        .id(id)
+                        .service(new String("web"))
+                        .address(new String("10.0.0.1"))
+                        .port(port)
+                        .tags(List.of(new String("http"), new String("v2")))
+                        .meta(Map.of(new String("version"), new String("2.1.0")))
+                        .build())
+                .addChecks(ImmutableHealthCheck.builder()
+                        .node(new String("node-1"))
+                        .checkId(new String("serfHealth"))
+                        .name(new String("Serf Health Status"))
+                        .status(new String("passing"))
+                        .output("Agent alive and reachable")
+                        .build())
+                .build();
+    }
+}
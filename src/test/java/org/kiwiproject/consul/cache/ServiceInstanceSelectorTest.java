@@ -0,0 +1,123 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+import org.kiwiproject.consul.model.catalog.ImmutableServiceWeights;
+import org.kiwiproject.consul.model.health.ImmutableHealthCheck;
+import org.kiwiproject.consul.model.health.ImmutableNode;
+import org.kiwiproject.consul.model.health.ImmutableService;
+import org.kiwiproject.consul.model.health.ImmutableServiceHealth;
+import org.kiwiproject.consul.model.health.ServiceHealth;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+class ServiceInstanceSelectorTest {
+
+    @Test
+    void shouldReturnNull_WhenThereAreNoInstances() {
+        var selector = new ServiceInstanceSelector();
+
+        assertThat(selector.size()).isZero();
+        assertThat(selector.random()).isNull();
+        assertThat(selector.roundRobin()).isNull();
+        assertThat(selector.weighted()).isNull();
+        assertThat(selector.powerOfTwoChoices(instance -> 0)).isNull();
+    }
+
+    @Test
+    void shouldSkipCriticalInstancesAndInstancesWithZeroWeight() {
+        var selector = new ServiceInstanceSelector();
+        selector.notify(mapOf(
+                createServiceHealth("a", "passing", 1, 1),
+                createServiceHealth("b", "critical", 1, 1),
+                createServiceHealth("c", "warning", 1, 0)));
+
+        assertThat(selector.getInstances())
+                .extracting(instance -> instance.getService().getId())
+                .containsExactly("a");
+    }
+
+    @Test
+    void shouldCycleThroughInstances_WithRoundRobin() {
+        var selector = new ServiceInstanceSelector();
+        selector.notify(mapOf(
+                createServiceHealth("a", "passing", 1, 1),
+                createServiceHealth("b", "passing", 1, 1),
+                createServiceHealth("c", "passing", 1, 1)));
+
+        Set<String> selected = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            selected.add(selector.roundRobin().getService().getId());
+        }
+        assertThat(selected).containsExactlyInAnyOrder("a", "b", "c");
+    }
+
+    @Test
+    void shouldSelectProportionallyToWeights() {
+        var selector = new ServiceInstanceSelector();
+        selector.notify(mapOf(
+                createServiceHealth("heavy", "passing", 9, 1),
+                createServiceHealth("light", "warning", 9, 1)));
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            counts.merge(selector.weighted().getService().getId(), 1, Integer::sum);
+        }
+        assertThat(counts.get("heavy")).isBetween(8_500, 9_500);
+    }
+
+    @Test
+    void shouldPreferTheLeastLoadedInstance_WithPowerOfTwoChoices() {
+        var selector = new ServiceInstanceSelector();
+        selector.notify(mapOf(
+                createServiceHealth("busy", "passing", 1, 1),
+                createServiceHealth("idle", "passing", 1, 1)));
+
+        for (int i = 0; i < 100; i++) {
+            var selected = selector.powerOfTwoChoices(instance -> "busy".equals(instance.getService().getId()) ? 10 : 0);
+            assertThat(selected.getService().getId()).isEqualTo("idle");
+        }
+    }
+
+    @Test
+    void shouldUseDefaultWeight_WhenServiceHasNoWeights() {
+        var serviceHealth = ImmutableServiceHealth.builder()
+                .node(ImmutableNode.builder().node("node").address("10.0.0.1").build())
+                .service(ImmutableService.builder().id("a").service("svc").address("10.0.0.1").port(8080).build())
+                .build();
+
+        assertThat(ServiceInstanceSelector.weightOf(serviceHealth)).isEqualTo(ServiceInstanceSelector.DEFAULT_WEIGHT);
+    }
+
+    private static ImmutableMap<ServiceHealthKey, ServiceHealth> mapOf(ServiceHealth... serviceHealths) {
+        var builder = ImmutableMap.<ServiceHealthKey, ServiceHealth>builder();
+        for (ServiceHealth serviceHealth : serviceHealths) {
+            builder.put(ServiceHealthKey.fromServiceHealth(serviceHealth), serviceHealth);
+        }
+        return builder.build();
+    }
+
+    private static ServiceHealth createServiceHealth(String id, String status, int passingWeight, int warningWeight) {
+        return ImmutableServiceHealth.builder()
+                .node(ImmutableNode.builder().node("node").address("10.0.0.1").build())
+                .service(ImmutableService.builder()
+                        .id(id)
+                        .service("svc")
+                        .address("10.0.0.1")
+                        .port(8080)
+                        .weights(ImmutableServiceWeights.builder().passing(passingWeight).warning(warningWeight).build())
+                        .build())
+                .addChecks(ImmutableHealthCheck.builder()
+                        .node("node")
+                        .checkId("service:" + id)
+                        .name("check")
+                        .status(status)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,126 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.awaitility.Awaitility.await;
+import static org.awaitility.Durations.FIVE_SECONDS;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SharedWatchSchedulerTest {
+
+    private SharedWatchScheduler sharedScheduler;
+
+    @BeforeEach
+    void setUp() {
+        sharedScheduler = new SharedWatchScheduler(2, Duration.ofMillis(5), 16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sharedScheduler.close();
+    }
+
+    @Test
+    void shouldValidateArguments() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new SharedWatchScheduler(0, Duration.ofMillis(10)));
+        assertThatIllegalArgumentException().isThrownBy(() -> new SharedWatchScheduler(1, Duration.ZERO));
+        assertThatIllegalArgumentException().isThrownBy(() -> new SharedWatchScheduler(1, Duration.ofMillis(10), 100));
+    }
+
+    @Test
+    void shouldRunImmediateAndDelayedTasks() {
+        var scheduler = sharedScheduler.newCacheScheduler();
+        var counter = new AtomicInteger();
+
+        scheduler.schedule(counter::incrementAndGet, 0, TimeUnit.MILLISECONDS);
+        scheduler.schedule(counter::incrementAndGet, -10, TimeUnit.MILLISECONDS);
+        scheduler.schedule(counter::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+
+        await().atMost(FIVE_SECONDS).until(() -> counter.get() == 3);
+        assertThat(sharedScheduler.getScheduledTaskCount()).isEqualTo(3);
+        assertThat(sharedScheduler.getExecutedTaskCount()).isEqualTo(3);
+        assertThat(sharedScheduler.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void shouldRunTasksWithDelaysSpanningSeveralWheelRotations() {
+        var scheduler = sharedScheduler.newCacheScheduler();
+        var counter = new AtomicInteger();
+        long start = System.nanoTime();
+
+        // 16 buckets of 5 ms is one rotation every 80 ms
+        scheduler.schedule(counter::incrementAndGet, 200, TimeUnit.MILLISECONDS);
+
+        await().atMost(FIVE_SECONDS).until(() -> counter.get() == 1);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(200));
+    }
+
+    @Test
+    void shouldOnlyCancelTasksOfTheCacheBeingShutDown() {
+        var scheduler1 = sharedScheduler.newCacheScheduler();
+        var scheduler2 = sharedScheduler.newCacheScheduler();
+        var counter1 = new AtomicInteger();
+        var counter2 = new AtomicInteger();
+
+        scheduler1.schedule(counter1::incrementAndGet, 100, TimeUnit.MILLISECONDS);
+        scheduler2.schedule(counter2::incrementAndGet, 100, TimeUnit.MILLISECONDS);
+        assertThat(sharedScheduler.getQueueDepth()).isEqualTo(2);
+
+        scheduler1.shutdownNow();
+        assertThat(sharedScheduler.getQueueDepth()).isEqualTo(1);
+
+        await().atMost(FIVE_SECONDS).until(() -> counter2.get() == 1);
+        assertThat(counter1).hasValue(0);
+
+        scheduler1.schedule(counter1::incrementAndGet, 0, TimeUnit.MILLISECONDS);
+        assertThat(sharedScheduler.getScheduledTaskCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldIsolateTasksThatThrow() {
+        var scheduler = sharedScheduler.newCacheScheduler();
+        var counter = new AtomicInteger();
+
+        scheduler.schedule(() -> { throw new RuntimeException("oops"); }, 0, TimeUnit.MILLISECONDS);
+        scheduler.schedule(counter::incrementAndGet, 10, TimeUnit.MILLISECONDS);
+
+        await().atMost(FIVE_SECONDS).until(() -> counter.get() == 1);
+    }
+
+    @Test
+    void shouldIgnoreTasksAfterClose() {
+        var scheduler = sharedScheduler.newCacheScheduler();
+        var counter = new AtomicInteger();
+        sharedScheduler.close();
+
+        assertThat(sharedScheduler.isShutdown()).isTrue();
+        assertThatCode(() -> scheduler.schedule(counter::incrementAndGet, 0, TimeUnit.MILLISECONDS))
+                .doesNotThrowAnyException();
+        sharedScheduler.newCacheScheduler().schedule(counter::incrementAndGet, 0, TimeUnit.MILLISECONDS);
+
+        assertThat(counter).hasValue(0);
+        assertThat(sharedScheduler.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void shouldCancelPendingTasksOnClose_WithoutMakingQueueDepthNegative() {
+        var scheduler = sharedScheduler.newCacheScheduler();
+        scheduler.schedule(() -> { }, 1, TimeUnit.MINUTES);
+        scheduler.schedule(() -> { }, 2, TimeUnit.MINUTES);
+        assertThat(sharedScheduler.getQueueDepth()).isEqualTo(2);
+
+        sharedScheduler.close();
+        assertThat(sharedScheduler.getQueueDepth()).isZero();
+
+        scheduler.shutdownNow();
+        assertThat(sharedScheduler.getQueueDepth()).isZero();
+    }
+}
@@ -0,0 +1,128 @@
+package org.kiwiproject.consul.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kiwiproject.consul.model.kv.ImmutableValue;
+import org.kiwiproject.consul.model.kv.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+class TypedKVCacheTest {
+
+    private KVCache kvCache;
+    private List<String> decodedKeys;
+    private TypedKVCache<Integer> typedCache;
+
+    @BeforeEach
+    void setUp() {
+        kvCache = mock(KVCache.class);
+        decodedKeys = new ArrayList<>();
+        typedCache = TypedKVCache.forCache(kvCache, value -> {
+            decodedKeys.add(value.getKey());
+            return value.getValue().map(Integer::valueOf).orElse(null);
+        });
+    }
+
+    @Test
+    void shouldRegisterAsListener() {
+        verify(kvCache).addListener(typedCache);
+
+        typedCache.close();
+
+        verify(kvCache).removeListener(typedCache);
+    }
+
+    @Test
+    void shouldOnlyDecodeEntriesWhoseModifyIndexChanged() {
+        typedCache.notify(Map.of("a", value("a", "1", 10), "b", value("b", "2", 11)));
+
+        assertThat(typedCache.getMap()).containsOnly(Map.entry("a", 1), Map.entry("b", 2));
+        Integer decodedA = typedCache.get("a").orElseThrow();
+
+        typedCache.notify(Map.of("a", value("a", "1", 10), "b", value("b", "3", 12), "c", value("c", "4", 13)));
+
+        assertThat(typedCache.getMap()).containsOnly(Map.entry("a", 1), Map.entry("b", 3), Map.entry("c", 4));
+        assertThat(typedCache.get("a")).containsSame(decodedA);
+        assertThat(decodedKeys).containsExactlyInAnyOrder("a", "b", "b", "c");
+        assertThat(typedCache.getDecodeCount()).isEqualTo(4);
+
+        typedCache.notify(Map.of("c", value("c", "4", 13)));
+
+        assertThat(typedCache.getMap()).containsOnlyKeys("c");
+        assertThat(typedCache.getDecodeCount()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldLeaveOutEntriesThatCannotBeDecoded_UntilTheyAreModified() {
+        typedCache.notify(Map.of("bad", value("bad", "not a number", 5), "folder/", value("folder/", null, 6)));
+
+        assertThat(typedCache.getMap()).isEmpty();
+        assertThat(typedCache.getDecodeFailureCount()).isOne();
+
+        typedCache.notify(Map.of("bad", value("bad", "not a number", 5), "folder/", value("folder/", null, 6)));
+
+        assertThat(typedCache.getDecodeCount()).isEqualTo(2);
+
+        typedCache.notify(Map.of("bad", value("bad", "42", 7)));
+
+        assertThat(typedCache.get("bad")).contains(42);
+        assertThat(typedCache.getDecodeFailureCount()).isOne();
+    }
+
+    @Test
+    void shouldNotifyTypedListeners() {
+        var listener = new StubTypedListener();
+        typedCache.addListener(listener);
+
+        typedCache.notify(Map.of("a", value("a", "1", 10)));
+
+        assertThat(listener.lastValues).containsOnly(Map.entry("a", 1));
+        assertThat(typedCache.removeListener(listener)).isTrue();
+    }
+
+    @Test
+    void shouldNotifyNewListenersWithTheCurrentValues_OnceTheViewIsPopulated() {
+        var earlyListener = new StubTypedListener();
+        typedCache.addListener(earlyListener);
+
+        assertThat(earlyListener.lastValues).isNull();
+
+        typedCache.notify(Map.of("a", value("a", "1", 10)));
+        var lateListener = new StubTypedListener();
+        typedCache.addListener(lateListener);
+
+        assertThat(lateListener.lastValues).containsOnly(Map.entry("a", 1));
+        assertThat(typedCache.getDecodeCount()).isOne();
+    }
+
+    private static class StubTypedListener implements ConsulCache.Listener<String, Integer> {
+
+        private Map<String, Integer> lastValues;
+
+        @Override
+        public void notify(Map<String, Integer> newValues) {
+            lastValues = newValues;
+        }
+    }
+
+    /**
+     * Note that the value is stored as is; it is not Base64-encoded like in actual Consul responses.
+     */
+    private static Value value(String key, String value, long modifyIndex) {
+        return ImmutableValue.builder()
+                .createIndex(1)
+                .modifyIndex(modifyIndex)
+                .lockIndex(0)
+                .flags(0)
+                .key(key)
+                .value(Optional.ofNullable(value))
+                .build();
+    }
+}
@@ -3,6 +3,7 @@ package org.kiwiproject.consul.config;
 import static java.util.Objects.nonNull;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatNullPointerException;
 import static org.assertj.core.api.Assertions.fail;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
@@ -56,6 +57,13 @@ class CacheConfigTest {
         assertThat(config.getMinimumDurationDelayOnEmptyResult()).isEqualTo(CacheConfig.DEFAULT_MIN_DELAY_ON_EMPTY_RESULT);
         assertThat(config.isTimeoutAutoAdjustmentEnabled()).isEqualTo(CacheConfig.DEFAULT_TIMEOUT_AUTO_ADJUSTMENT_ENABLED);
         assertThat(config.getTimeoutAutoAdjustmentMargin()).isEqualTo(CacheConfig.DEFAULT_TIMEOUT_AUTO_ADJUSTMENT_MARGIN);
+        assertThat(config.isSharedWatchSchedulerEnabled()).isEqualTo(CacheConfig.DEFAULT_SHARED_WATCH_SCHEDULER_ENABLED);
+        assertThat(config.getWatchSchedulerThreads()).isEqualTo(CacheConfig.DEFAULT_WATCH_SCHEDULER_THREADS);
+        assertThat(config.getWatchSchedulerTickDuration()).isEqualTo(CacheConfig.DEFAULT_WATCH_SCHEDULER_TICK_DURATION);
+        assertThat(config.isAdaptivePollingEnabled()).isEqualTo(CacheConfig.DEFAULT_ADAPTIVE_POLLING_ENABLED);
+        assertThat(config.getAdaptivePollingMaxDelay()).isEqualTo(CacheConfig.DEFAULT_ADAPTIVE_POLLING_MAX_DELAY);
+        assertThat(config.getRequestBudget()).isEmpty();
+        assertThat(config.getPollingJitter()).isEqualTo(CacheConfig.DEFAULT_POLLING_JITTER);
 
         var loggedAsWarn = new AtomicBoolean(false);
         var logger = mock(Logger.class);
@@ -117,6 +125,61 @@ class CacheConfigTest {
         assertThat(config.getTimeoutAutoAdjustmentMargin()).isEqualTo(margin);
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void testOverrideSharedWatchSchedulerEnabled(boolean enabled) {
+        var config = CacheConfig.builder().withSharedWatchSchedulerEnabled(enabled).build();
+        assertThat(config.isSharedWatchSchedulerEnabled()).isEqualTo(enabled);
+    }
+
+    @Test
+    void testOverrideWatchSchedulerSettings() {
+        var config = CacheConfig.builder()
+                .withWatchSchedulerThreads(4)
+                .withWatchSchedulerTickDuration(Duration.ofMillis(50))
+                .build();
+        assertThat(config.getWatchSchedulerThreads()).isEqualTo(4);
+        assertThat(config.getWatchSchedulerTickDuration()).isEqualTo(Duration.ofMillis(50));
+    }
+
+    @Test
+    void shouldNotPermitInvalidWatchSchedulerSettings() {
+        var builder = CacheConfig.builder();
+        assertThatIllegalArgumentException().isThrownBy(() -> builder.withWatchSchedulerThreads(0));
+        assertThatIllegalArgumentException().isThrownBy(() -> builder.withWatchSchedulerTickDuration(Duration.ZERO));
+    }
+
+    @Test
+    void testOverrideAdaptivePollingAndRequestBudget() {
+        var budget = new CacheRequestBudget(100, 10);
+        var config = CacheConfig.builder()
+                .withAdaptivePollingEnabled(true)
+                .withAdaptivePollingMaxDelay(Duration.ofSeconds(2))
+                .withRequestBudget(budget)
+                .build();
+        assertThat(config.isAdaptivePollingEnabled()).isTrue();
+        assertThat(config.getAdaptivePollingMaxDelay()).isEqualTo(Duration.ofSeconds(2));
+        assertThat(config.getRequestBudget()).containsSame(budget);
+    }
+
+    @Test
+    void shouldNotPermitInvalidAdaptivePollingSettings() {
+        var builder = CacheConfig.builder();
+        assertThatIllegalArgumentException().isThrownBy(() -> builder.withAdaptivePollingMaxDelay(Duration.ofSeconds(-1)));
+        assertThatNullPointerException().isThrownBy(() -> builder.withRequestBudget(null));
+    }
+
+    @Test
+    void testOverridePollingJitter() {
+        var config = CacheConfig.builder()
+                .withPollingJitter(Duration.ofMillis(250))
+                .build();
+        assertThat(config.getPollingJitter()).isEqualTo(Duration.ofMillis(250));
+
+        var builder = CacheConfig.builder();
+        assertThatIllegalArgumentException().isThrownBy(() -> builder.withPollingJitter(Duration.ofMillis(-1)));
+    }
+
     @ParameterizedTest
     @ValueSource(booleans = { true, false })
     void testOverrideRefreshErrorLogConsumer(boolean logLevelWarning) {
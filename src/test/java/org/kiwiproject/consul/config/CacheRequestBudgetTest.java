@@ -0,0 +1,52 @@
+package org.kiwiproject.consul.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import com.google.common.base.Ticker;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+class CacheRequestBudgetTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    };
+
+    @Test
+    void shouldValidateArguments() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new CacheRequestBudget(0, 1));
+        assertThatIllegalArgumentException().isThrownBy(() -> new CacheRequestBudget(10, 0));
+    }
+
+    @Test
+    void shouldAllowBurstThenDelayRequests() {
+        var budget = new CacheRequestBudget(10, 2, ticker);
+
+        assertThat(budget.reserve()).isZero();
+        assertThat(budget.reserve()).isZero();
+        assertThat(budget.reserve()).isEqualTo(100);
+        assertThat(budget.reserve()).isEqualTo(200);
+    }
+
+    @Test
+    void shouldRefillOverTime_UpToTheBurst() {
+        var budget = new CacheRequestBudget(10, 2, ticker);
+        budget.reserve();
+        budget.reserve();
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(budget.reserve()).isZero();
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertThat(budget.reserve()).isZero();
+        assertThat(budget.reserve()).isZero();
+        assertThat(budget.reserve()).isEqualTo(100);
+    }
+}
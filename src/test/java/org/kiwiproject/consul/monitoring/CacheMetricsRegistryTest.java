@@ -0,0 +1,101 @@
+package org.kiwiproject.consul.monitoring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.kiwiproject.consul.KeyValueClient;
+import org.kiwiproject.consul.cache.CacheDescriptor;
+import org.kiwiproject.consul.cache.CacheMetrics;
+import org.kiwiproject.consul.cache.ConsulCache;
+import org.kiwiproject.consul.cache.KVCache;
+import org.kiwiproject.consul.config.ClientConfig;
+import org.kiwiproject.consul.option.QueryOptions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+class CacheMetricsRegistryTest {
+
+    @Test
+    void shouldKeepLatestMetricsOfRunningCaches() {
+        var delegate = mock(ClientEventCallback.class);
+        var registry = new CacheMetricsRegistry(delegate);
+        var descriptor = new CacheDescriptor("health.service", "web");
+        var otherDescriptor = new CacheDescriptor("health.service", "web");
+        var first = metrics(ConsulCache.State.LATENT);
+        var second = metrics(ConsulCache.State.LATENT);
+
+        registry.onCacheMetrics("client", descriptor, first);
+        registry.onCacheMetrics("client", descriptor, second);
+        registry.onCacheMetrics("client", otherDescriptor, first);
+        registry.onCacheMetrics("other", descriptor, first);
+
+        assertThat(registry.size()).isEqualTo(3);
+        assertThat(registry.getAll("client")).containsExactlyInAnyOrder(second, first);
+        Map<CacheMetrics, String> exported = new HashMap<>();
+        registry.forEach((clientName, cacheMetrics) -> exported.put(cacheMetrics, clientName));
+        assertThat(exported).containsEntry(second, "client");
+        verify(delegate).onCacheMetrics("client", descriptor, second);
+
+        registry.onCacheStop("client", descriptor);
+
+        assertThat(registry.size()).isEqualTo(2);
+        assertThat(registry.getAll()).doesNotContain(second);
+        verify(delegate).onCacheStop("client", descriptor);
+    }
+
+    @Test
+    void shouldNotRegisterStoppedCaches() {
+        var registry = new CacheMetricsRegistry();
+
+        registry.onCacheMetrics("client", new CacheDescriptor("keyvalue"), metrics(ConsulCache.State.STOPPED));
+
+        assertThat(registry.size()).isZero();
+    }
+
+    @Test
+    void shouldNotRegisterCachesAgain_AfterTheyStopped() {
+        var registry = new CacheMetricsRegistry();
+        var descriptor = new CacheDescriptor("keyvalue");
+
+        registry.onCacheStop("client", descriptor);
+        registry.onCacheMetrics("client", descriptor, metrics(ConsulCache.State.LATENT));
+
+        assertThat(registry.size()).isZero();
+    }
+
+    @Test
+    void shouldKeepCachesWithEqualDescriptorsApart() {
+        var registry = new CacheMetricsRegistry();
+        var first = metrics(ConsulCache.State.LATENT);
+        var second = metrics(ConsulCache.State.LATENT);
+
+        registry.onCacheMetrics("client", first.getCacheDescriptor(), first);
+        registry.onCacheMetrics("client", second.getCacheDescriptor(), second);
+
+        assertThat(registry.getAll("client")).containsExactlyInAnyOrder(first, second);
+
+        registry.onCacheStop("client", first.getCacheDescriptor());
+
+        assertThat(registry.getAll("client")).containsExactly(second);
+    }
+
+    /**
+     * Get real metrics from a cache that is never started, stopping it first when a stopped state is wanted.
+     */
+    private static CacheMetrics metrics(ConsulCache.State state) {
+        var kvClient = mock(KeyValueClient.class);
+        when(kvClient.getConfig()).thenReturn(new ClientConfig());
+        when(kvClient.getEventHandler()).thenReturn(mock(ClientEventHandler.class));
+
+        try (var cache = KVCache.newCache(kvClient, "root", 5, QueryOptions.BLANK)) {
+            if (state == ConsulCache.State.STOPPED) {
+                cache.stop();
+            }
+            return cache.getMetrics();
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package org.kiwiproject.consul.option;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.entry;
 import static org.kiwiproject.consul.TestUtils.randomUUIDString;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+
 @DisplayName("QueryOptions")
 class QueryOptionsTest {
 
@@ -66,4 +70,30 @@ class QueryOptionsTest {
                     .containsExactly(tag1, tag2, tag3);
         }
     }
+
+    @Nested
+    class Cached {
+
+        @Test
+        void shouldAddCachedParam_WithoutCacheControl() {
+            var queryOptions = QueryOptions.cached().build();
+
+            assertThat(queryOptions.toQuery()).containsEntry("cached", "");
+            assertThat(queryOptions.toHeaders()).isEmpty();
+        }
+
+        @Test
+        void shouldAddCacheControlHeader_WithMaxAgeAndStaleIfError() {
+            var queryOptions = QueryOptions.cached(Duration.ofSeconds(5), Duration.ofMinutes(1)).build();
+
+            assertThat(queryOptions.toQuery()).containsEntry("cached", "");
+            assertThat(queryOptions.toHeaders()).containsExactly(entry("Cache-Control", "max-age=5,stale-if-error=60"));
+        }
+
+        @Test
+        void shouldRequireDurations() {
+            assertThatIllegalArgumentException().isThrownBy(() -> QueryOptions.cached(null, Duration.ofSeconds(1)));
+            assertThatIllegalArgumentException().isThrownBy(() -> QueryOptions.cached(Duration.ofSeconds(1), null));
+        }
+    }
 }